@@ -23,6 +23,7 @@ package omero.gateway;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +33,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -85,6 +89,7 @@ import omero.api.RenderingEnginePrx;
 import omero.api.SearchPrx;
 import omero.api.SearchPrxHelper;
 import omero.api.ServiceFactoryPrx;
+import omero.api.ServiceFactoryPrxHelper;
 import omero.api.ServiceInterfacePrx;
 import omero.api.StatefulServiceInterfacePrx;
 import omero.api.ThumbnailStorePrx;
@@ -116,9 +121,33 @@ class Connector
      */
     private final int ELAPSED_TIME = 30000;
 
+    /**
+     * The time in milliseconds after which a keep alive is considered
+     * failed if the server hasn't replied.
+     */
+    private static final int KEEP_ALIVE_TIMEOUT = 10000;
+
+    /**
+     * The number of consecutive failed keep alives, e.g. timeouts, after
+     * which the session is considered lost.
+     */
+    private static final int MAX_KEEP_ALIVE_FAILURES = 3;
+
+    /** The number of consecutive failed keep alives. */
+    private final AtomicInteger keepAliveFailures = new AtomicInteger();
+
     /** Keeps track of the last keep alive action.*/
     private final AtomicLong lastKeepAlive = new AtomicLong(System.currentTimeMillis());
 
+    /**
+     * Random delay added to {@link #ELAPSED_TIME}, drawn again after each
+     * keep alive so that the connectors don't all ping at the same time.
+     */
+    private volatile long keepAliveJitter = nextJitter();
+
+    /** Flag indicating that a keep alive is in progress.*/
+    private final AtomicBoolean keepAliveRunning = new AtomicBoolean();
+
     /** 
      * The Blitz client object, this is the entry point to the
      * OMERO Server using a secure connection.
@@ -772,32 +801,197 @@ class Connector
     }
     
     /**
-     * Keeps the services alive.
-     * Returns <code>true</code> if success, <code>false</code> otherwise.
-     * 
+     * Notified when an asynchronous keep alive completed.
+     */
+    interface KeepAliveListener
+    {
+        /**
+         * Invoked once the server replied or the keep alive failed.
+         *
+         * @param success Pass <code>true</code> if the session is alive,
+         *                <code>false</code> otherwise.
+         * @param lost Pass <code>true</code> if the session is lost, i.e.
+         *             the server reported that it doesn't exist anymore or
+         *             {@link #MAX_KEEP_ALIVE_FAILURES} keep alives failed in
+         *             a row, <code>false</code> otherwise. A single failure,
+         *             e.g. a timeout of a slow server, doesn't mean that the
+         *             session is lost.
+         */
+        void done(boolean success, boolean lost);
+    }
+
+    /**
+     * Keeps the services alive without blocking: the keep alive is sent
+     * to the encrypted session and then, if any, to the unencrypted one.
+     * The listener is invoked from an Ice thread, at the latest after
+     * {@link #KEEP_ALIVE_TIMEOUT} per session. Returns <code>false</code>
+     * if a keep alive is already in progress, in which case the listener
+     * is not invoked.
+     *
+     * @param listener The listener to notify.
      * @return See above.
      */
-     boolean keepSessionAlive()
+    boolean keepSessionAliveAsync(final KeepAliveListener listener)
     {
-        boolean success = true;
-        try {
-            entryEncrypted.keepAllAlive(null);
-        } catch (Exception e) {
-            success = false;
-            logger.warn(this, new LogMessage("Failed encrypted keep alive: " ,e));
-        }
+        if (!keepAliveRunning.compareAndSet(false, true))
+            return false;
+        final ServiceFactoryPrx encrypted = withTimeout(entryEncrypted);
+        final ServiceFactoryPrx unencrypted = withTimeout(entryUnencrypted);
         try {
-            if (entryUnencrypted != null && success)
-                entryUnencrypted.keepAllAlive(null);
+            encrypted.begin_keepAllAlive(null, new Ice.Callback() {
+                @Override
+                public void completed(Ice.AsyncResult r) {
+                    try {
+                        encrypted.end_keepAllAlive(r);
+                    } catch (Exception e) {
+                        logger.warn(Connector.this, new LogMessage(
+                                "Failed encrypted keep alive: ", e));
+                        keepAliveDone(listener, e);
+                        return;
+                    }
+                    if (unencrypted == null) {
+                        keepAliveDone(listener, null);
+                        return;
+                    }
+                    try {
+                        unencrypted.begin_keepAllAlive(null, new Ice.Callback() {
+                            @Override
+                            public void completed(Ice.AsyncResult r) {
+                                Exception error = null;
+                                try {
+                                    unencrypted.end_keepAllAlive(r);
+                                } catch (Exception e) {
+                                    error = e;
+                                    logger.warn(Connector.this, new LogMessage(
+                                            "failed unencrypted keep alive: ", e));
+                                }
+                                keepAliveDone(listener, error);
+                            }
+                        });
+                    } catch (Exception e) {
+                        logger.warn(Connector.this, new LogMessage(
+                                "failed unencrypted keep alive: ", e));
+                        keepAliveDone(listener, e);
+                    }
+                }
+            });
         } catch (Exception e) {
-            success = false;
-            logger.warn(this, new LogMessage("failed unencrypted keep alive: ", e));
+            logger.warn(this, new LogMessage("Failed encrypted keep alive: ", e));
+            keepAliveDone(listener, e);
         }
+        return true;
+    }
 
-        if (success) {
+    /**
+     * Returns a proxy for the specified entry point whose invocations fail
+     * after {@link #KEEP_ALIVE_TIMEOUT}, so that a keep alive never hangs.
+     *
+     * @param entry The entry point, may be <code>null</code>.
+     * @return See above.
+     */
+    private static ServiceFactoryPrx withTimeout(ServiceFactoryPrx entry)
+    {
+        if (entry == null)
+            return null;
+        return ServiceFactoryPrxHelper.uncheckedCast(
+                entry.ice_invocationTimeout(KEEP_ALIVE_TIMEOUT));
+    }
+
+    /**
+     * Records the end of a keep alive and notifies the listener.
+     *
+     * @param listener The listener to notify.
+     * @param error The exception thrown by the keep alive,
+     *              <code>null</code> if it succeeded.
+     */
+    private void keepAliveDone(KeepAliveListener listener, Exception error)
+    {
+        boolean lost = false;
+        if (error == null) {
+            keepAliveFailures.set(0);
             lastKeepAlive.set(System.currentTimeMillis());
+            keepAliveJitter = nextJitter();
+        } else {
+            int failures = keepAliveFailures.incrementAndGet();
+            lost = isSessionLost(error)
+                    || failures >= MAX_KEEP_ALIVE_FAILURES;
         }
-        return success;
+        keepAliveRunning.set(false);
+        listener.done(error == null, lost);
+    }
+
+    /**
+     * Returns <code>true</code> if the specified exception shows that the
+     * session doesn't exist anymore, <code>false</code> otherwise, e.g. for
+     * a timeout.
+     *
+     * @param e The exception thrown by a keep alive.
+     * @return See above.
+     */
+    private static boolean isSessionLost(Exception e)
+    {
+        return e instanceof Ice.ObjectNotExistException
+                || e instanceof omero.SessionException
+                || e instanceof Glacier2.SessionNotExistException;
+    }
+
+    /**
+     * Returns a random delay of up to half of {@link #ELAPSED_TIME}.
+     *
+     * @return See above.
+     */
+    private long nextJitter()
+    {
+        return ThreadLocalRandom.current().nextLong(ELAPSED_TIME / 2);
+    }
+
+    /**
+     * Returns the derived connectors, see {@link #getConnector(String)}.
+     *
+     * @return See above.
+     */
+    Collection<Connector> getDerivedConnectors()
+    {
+        return new ArrayList<Connector>(derived.asMap().values());
+    }
+
+    /**
+     * Removes a derived connector, e.g. if its session has died. A new one
+     * will be created when requested.
+     *
+     * @param c The connector to remove.
+     * @return <code>true</code> if the connector has been removed,
+     *         <code>false</code> if it wasn't registered.
+     */
+    boolean removeDerived(Connector c)
+    {
+        return derived.asMap().values().remove(c);
+    }
+
+    /**
+     * Returns the number of open stateful services, i.e. the transfers in
+     * progress, used to decide whether another connector is added to the
+     * pool of the group.
+     *
+     * @return See above.
+     */
+    int getLoad()
+    {
+        return statefulServices.size() + reServices.size()
+                + (importStore != null ? 1 : 0);
+    }
+
+    /**
+     * Returns <code>true</code> if the specified proxy has been created by
+     * this connector, <code>false</code> otherwise.
+     *
+     * @param proxy The proxy.
+     * @return See above.
+     */
+    boolean isOwner(StatefulServiceInterfacePrx proxy)
+    {
+        return statefulServices.containsValue(proxy)
+                || reServices.containsValue(proxy);
     }
 
     /**
@@ -1007,7 +1201,7 @@ class Connector
     {
         long last = lastKeepAlive.get();
         long elapsed = System.currentTimeMillis() - last;
-        return elapsed > ELAPSED_TIME;
+        return elapsed > ELAPSED_TIME + keepAliveJitter;
     }
 
     /**
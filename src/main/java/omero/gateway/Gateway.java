@@ -26,6 +26,7 @@ import java.beans.PropertyChangeSupport;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -33,12 +34,20 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -76,6 +85,7 @@ import omero.gateway.exception.ConnectionStatus;
 import omero.gateway.exception.DSOutOfServiceException;
 import omero.gateway.facility.Facility;
 import omero.gateway.util.NetworkChecker;
+import omero.gateway.util.VirtualThreadExecutor;
 import omero.grid.ProcessCallbackI;
 import omero.grid.ScriptProcessPrx;
 import omero.grid.SharedResourcesPrx;
@@ -92,10 +102,8 @@ import Ice.DNSException;
 import Ice.SocketException;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.LinkedListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimaps;
 
 /**
  * A Gateway for simplifying access to an OMERO server
@@ -148,6 +156,9 @@ public class Gateway implements AutoCloseable {
 
     /** Property to indicate that a stateless service has been created */
     public static final String PROP_STATELESS_SERVICE_CREATED = "PROP_STATELESS_SERVICE_CREATED";
+
+    /** The default maximum number of keep alive pings in progress */
+    public static final int DEFAULT_MAX_KEEP_ALIVES = 16;
     
     /** Reference to a {@link Logger} */
     private Logger log;
@@ -164,16 +175,41 @@ public class Gateway implements AutoCloseable {
     /** Keeps the session alive */
     private ScheduledThreadPoolExecutor keepAliveExecutor;
 
+    /** The delay in seconds between two checks for connectors to ping */
+    private static final int KEEP_ALIVE_SWEEP = 5;
+
+    /** The maximum number of keep alive pings in progress */
+    private volatile int maxKeepAlives = DEFAULT_MAX_KEEP_ALIVES;
+
+    /** Bounds the number of keep alive pings in progress */
+    private volatile Semaphore keepAlivePermits;
+
+    /** The keep alive counters */
+    private final KeepAliveStatistics keepAliveStatistics = new KeepAliveStatistics();
+
     /** The login credentials used for connecting to the server */
     private LoginCredentials login;
 
     /** The logged in user */
     private ExperimenterData loggedInUser;
 
-    /** Holds all {@link Connector}s for different {@link SecurityContext}s */
-    private ListMultimap<Long, Connector> groupConnectorMap = Multimaps
-            .<Long, Connector> synchronizedListMultimap(LinkedListMultimap
-                    .<Long, Connector> create());
+    /**
+     * Holds all {@link Connector}s for different {@link SecurityContext}s.
+     * The lists are immutable and replaced on change, so that looking up a
+     * connector doesn't need any lock.
+     */
+    private final ConcurrentMap<Long, ImmutableList<Connector>> groupConnectorMap =
+            new ConcurrentHashMap<Long, ImmutableList<Connector>>();
+
+    /** The maximum number of {@link Connector}s per group */
+    private volatile int connectorsPerGroup = 1;
+
+    /** Counter used for the round robin selection of the connectors */
+    private final AtomicInteger nextConnector = new AtomicInteger();
+
+    /** The groups for which a {@link Connector} is being added to the pool */
+    private final Set<Long> growingPools = Collections
+            .newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
 
     /** Optional reference to a {@link CacheService} */
     private CacheService cacheService;
@@ -269,6 +305,117 @@ public class Gateway implements AutoCloseable {
                 : executorShutdownOnDisconnect;
     }
 
+    /**
+     * Creates a new Gateway instance which runs the asynchronous tasks on
+     * virtual threads if the JVM supports them (Java 21 or later), and on a
+     * thread pool otherwise. Blocking facility calls can be run in large
+     * numbers with {@link #submit(Callable)}; at most
+     * <code>maxConcurrency</code> of them run at the same time, the others
+     * wait for a running one to complete. The executor is shut down on
+     * disconnect.
+     * <p>
+     * Note that the synchronous Ice invocations made by the facilities
+     * wait in <code>synchronized</code> blocks and <code>Object.wait</code>,
+     * which pin the virtual thread to its carrier thread on Java 21 to 23.
+     * There, at most as many calls are in flight as there are carrier
+     * threads (by default the number of processors), whatever
+     * <code>maxConcurrency</code>; use an explicit thread pool with
+     * {@link #Gateway(Logger, ExecutorService, boolean)} if more are needed.
+     * Java 24 and later don't pin the virtual threads in this case.
+     * </p>
+     *
+     * @param log
+     *            A {@link Logger}
+     * @param maxConcurrency
+     *            The maximum number of asynchronous tasks running at the same
+     *            time against the server, <code>0</code> for no limit
+     * @see VirtualThreadExecutor
+     * @since 5.11.1
+     */
+    public Gateway(Logger log, int maxConcurrency) {
+        this(log, newExecutor(maxConcurrency,
+                VirtualThreadExecutor.isSupported()), true);
+    }
+
+    /**
+     * Creates the executor of the asynchronous tasks: a
+     * {@link VirtualThreadExecutor} if requested, a thread pool with at most
+     * <code>maxConcurrency</code> threads otherwise.
+     *
+     * @param maxConcurrency
+     *            The maximum number of tasks running at the same time,
+     *            <code>0</code> for no limit
+     * @param virtualThreads
+     *            Pass <code>true</code> to run the tasks on virtual threads,
+     *            only if {@link VirtualThreadExecutor#isSupported()}
+     * @return See above.
+     */
+    static ExecutorService newExecutor(int maxConcurrency,
+            boolean virtualThreads) {
+        if (maxConcurrency < 0)
+            throw new IllegalArgumentException("Invalid concurrency limit "
+                    + maxConcurrency);
+        if (virtualThreads)
+            return new VirtualThreadExecutor(maxConcurrency);
+        if (maxConcurrency == 0)
+            return Executors.newCachedThreadPool();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency,
+                maxConcurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Returns <code>true</code> if the asynchronous tasks run on virtual
+     * threads, <code>false</code> otherwise.
+     *
+     * @return See above.
+     * @since 5.11.1
+     */
+    public boolean isUsingVirtualThreads() {
+        return executorService instanceof VirtualThreadExecutor;
+    }
+
+    /**
+     * Runs a task periodically while the gateway is connected, e.g. to
+     * release resources which haven't been used for some time. The task is
+     * triggered by the keep alive thread and run on the executor of the
+     * asynchronous tasks, see {@link #submit(Callable)}. It is cancelled on
+     * disconnect.
+     * 
+     * @param task
+     *            The task
+     * @param delay
+     *            The delay between the end of a run and the next one
+     * @param unit
+     *            The unit of the delay
+     * @return The future to cancel the task with, <code>null</code> if the
+     *         gateway isn't connected
+     * @since 5.11.1
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable task,
+            long delay, TimeUnit unit) {
+        ScheduledThreadPoolExecutor scheduler = keepAliveExecutor;
+        if (scheduler == null || scheduler.isShutdown())
+            return null;
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executorService.execute(task);
+                } catch (RejectedExecutionException e) {
+                    // disconnected
+                }
+            }
+        };
+        try {
+            return scheduler.scheduleWithFixedDelay(r, delay, delay, unit);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
     /**
      * Submits an async task
      * 
@@ -280,6 +427,77 @@ public class Gateway implements AutoCloseable {
         return executorService.submit(task);
     }
     
+    /**
+     * Sets the maximum number of {@link Connector}s, i.e. sessions and
+     * connections to the server, used concurrently for a group. The
+     * connectors are used one after the other: the stateless services are
+     * looked up on the connector picked for each call, stateful services
+     * stay with the connector which created them. An additional connector
+     * is created in the background when the connector picked for a call
+     * holds open stateful services, e.g. raw pixels or file stores or an
+     * import, as these transfer the bulk data. Default is <code>1</code>.
+     *
+     * @param connectorsPerGroup
+     *            The maximum number of connectors per group
+     * @since 5.11.1
+     */
+    public void setConnectorsPerGroup(int connectorsPerGroup) {
+        if (connectorsPerGroup < 1)
+            throw new IllegalArgumentException("Invalid number of connectors "
+                    + connectorsPerGroup);
+        this.connectorsPerGroup = connectorsPerGroup;
+    }
+
+    /**
+     * Returns the maximum number of {@link Connector}s used concurrently
+     * for a group.
+     *
+     * @return See above.
+     * @since 5.11.1
+     */
+    public int getConnectorsPerGroup() {
+        return connectorsPerGroup;
+    }
+
+    /**
+     * Sets the maximum number of keep alive pings in progress at the same
+     * time; further connectors are pinged once a reply arrived. Takes
+     * effect on the next connection. Default is
+     * {@link #DEFAULT_MAX_KEEP_ALIVES}.
+     *
+     * @param maxKeepAlives
+     *            The maximum number of concurrent keep alive pings
+     * @since 5.11.1
+     */
+    public void setMaxConcurrentKeepAlives(int maxKeepAlives) {
+        if (maxKeepAlives < 1)
+            throw new IllegalArgumentException(
+                    "Invalid number of keep alives " + maxKeepAlives);
+        this.maxKeepAlives = maxKeepAlives;
+    }
+
+    /**
+     * Returns the maximum number of keep alive pings in progress at the
+     * same time.
+     *
+     * @return See above.
+     * @since 5.11.1
+     */
+    public int getMaxConcurrentKeepAlives() {
+        return maxKeepAlives;
+    }
+
+    /**
+     * Returns the counters of the keep alive pings, e.g. the number of
+     * failures and the latency.
+     *
+     * @return See above.
+     * @since 5.11.1
+     */
+    public KeepAliveStatistics getKeepAliveStatistics() {
+        return keepAliveStatistics;
+    }
+
     // Public connection handling methods
 
     /**
@@ -360,7 +578,7 @@ public class Gateway implements AutoCloseable {
             }
         }
         Facility.clear();
-        groupConnectorMap.clear();
+        removeAllConnectors();
         if (keepAliveExecutor != null)
             keepAliveExecutor.shutdown();
         connected = false;
@@ -389,7 +607,7 @@ public class Gateway implements AutoCloseable {
     public String getSessionId(ExperimenterData user)
             throws DSOutOfServiceException {
         Connector c = getConnector(new SecurityContext(user.getGroupId()),
-                false, false);
+                false, false, false);
         if (c != null) {
             return c.getClient().getSessionId();
         }
@@ -515,7 +733,7 @@ public class Gateway implements AutoCloseable {
      */
     public void closeImport(SecurityContext ctx, String userName) {
         try {
-            Connector c = getConnector(ctx, false, true);
+            Connector c = getConnector(ctx, false, true, false);
             if (c != null) {
                 if (StringUtils.isNotEmpty(userName))
                     c = c.getConnector(userName);
@@ -703,7 +921,8 @@ public class Gateway implements AutoCloseable {
      */
     public IUpdatePrx getUpdateService(SecurityContext ctx, String userName)
             throws DSOutOfServiceException {
-        Connector c = getConnector(ctx, true, false);
+        Connector c = getConnector(ctx, true, false,
+                StringUtils.isEmpty(userName));
         if (StringUtils.isNotEmpty(userName)) {
             try {
                 c = c.getConnector(userName);
@@ -945,7 +1164,8 @@ public class Gateway implements AutoCloseable {
      */
     public OMEROMetadataStoreClient getImportStore(SecurityContext ctx,
             String userName) throws DSOutOfServiceException {
-        Connector c = getConnector(ctx, true, false);
+        // the import store is kept by the primary connector
+        Connector c = getConnector(ctx, true, false, false);
         if (StringUtils.isNotEmpty(userName)) {
             try {
                 c = c.getConnector(userName);
@@ -989,15 +1209,78 @@ public class Gateway implements AutoCloseable {
      * @return The connectors the map held previously
      */
     private List<Connector> removeAllConnectors() {
-        synchronized (groupConnectorMap) {
-            // This should be the only location which calls values().
-            List<Connector> rv = new ArrayList<Connector>(
-                    groupConnectorMap.values());
-            groupConnectorMap.clear();
-            return rv;
+        List<Connector> rv = new ArrayList<Connector>();
+        for (Long groupId : groupConnectorMap.keySet()) {
+            List<Connector> clist = groupConnectorMap.remove(groupId);
+            if (clist != null)
+                rv.addAll(clist);
+        }
+        return rv;
+    }
+
+    /**
+     * Adds a connector to the connectors of its group
+     * 
+     * @param groupId
+     *            The id of the group
+     * @param c
+     *            The connector
+     */
+    private void addConnector(long groupId, Connector c) {
+        while (true) {
+            ImmutableList<Connector> current = groupConnectorMap.get(groupId);
+            if (current == null) {
+                if (groupConnectorMap.putIfAbsent(groupId,
+                        ImmutableList.of(c)) == null)
+                    return;
+            } else if (groupConnectorMap.replace(groupId, current,
+                    ImmutableList.<Connector> builder().addAll(current).add(c)
+                            .build()))
+                return;
         }
     }
 
+    /**
+     * Removes a connector of a group
+     * 
+     * @param groupId
+     *            The id of the group
+     * @param c
+     *            The connector to remove
+     * @return <code>true</code> if the connector has been removed,
+     *         <code>false</code> if it wasn't registered
+     */
+    private boolean removeConnector(long groupId, Connector c) {
+        while (true) {
+            ImmutableList<Connector> current = groupConnectorMap.get(groupId);
+            if (current == null || !current.contains(c))
+                return false;
+            if (current.size() == 1) {
+                if (groupConnectorMap.remove(groupId, current))
+                    return true;
+                continue;
+            }
+            ImmutableList.Builder<Connector> b = ImmutableList.builder();
+            for (Connector other : current)
+                if (other != c)
+                    b.add(other);
+            if (groupConnectorMap.replace(groupId, current, b.build()))
+                return true;
+        }
+    }
+
+    /**
+     * Removes all the connectors of a group
+     * 
+     * @param groupId
+     *            The id of the group
+     * @return The removed connectors
+     */
+    private List<Connector> removeConnectors(long groupId) {
+        List<Connector> clist = groupConnectorMap.remove(groupId);
+        return clist != null ? clist : ImmutableList.<Connector> of();
+    }
+
     /**
      * Initiates a session
      * 
@@ -1091,8 +1374,10 @@ public class Gateway implements AutoCloseable {
                 }
             }
         };
+        keepAlivePermits = new Semaphore(maxKeepAlives);
         keepAliveExecutor = new ScheduledThreadPoolExecutor(1);
-        keepAliveExecutor.scheduleWithFixedDelay(r, 60, 60, TimeUnit.SECONDS);
+        keepAliveExecutor.scheduleWithFixedDelay(r, KEEP_ALIVE_SWEEP,
+                KEEP_ALIVE_SWEEP, TimeUnit.SECONDS);
         
         return new SessionWrapper(secureClient, isSessionID(username));
     }
@@ -1218,7 +1503,7 @@ public class Gateway implements AutoCloseable {
                         .getPropertyChangeListeners())
                     connector.addPropertyChangeListener(l);
                 this.pcs.firePropertyChange(Gateway.PROP_CONNECTOR_CREATED, null, session.client.getSessionId());
-                groupConnectorMap.put(ctx.getGroupID(), connector);
+                addConnector(ctx.getGroupID(), connector);
                 if (defaultID == cred.getGroupID())
                     return exp;
                 try {
@@ -1232,7 +1517,7 @@ public class Gateway implements AutoCloseable {
                             .getPropertyChangeListeners())
                         connector.addPropertyChangeListener(l);
                     exp = getUserDetails(ctx, userName);
-                    groupConnectorMap.put(ctx.getGroupID(), connector);
+                    addConnector(ctx.getGroupID(), connector);
                 } catch (Exception e) {
                     LogMessage msg = new LogMessage();
                     msg.print("Error while changing group.");
@@ -1253,7 +1538,7 @@ public class Gateway implements AutoCloseable {
             for(PropertyChangeListener l : this.pcs.getPropertyChangeListeners())
                 connector.addPropertyChangeListener(l);
             this.pcs.firePropertyChange(Gateway.PROP_CONNECTOR_CREATED, null, session.client.getSessionId());
-            groupConnectorMap.put(ctx.getGroupID(), connector);
+            addConnector(ctx.getGroupID(), connector);
             return exp;
         } catch (DSOutOfServiceException e) {
             throw e;
@@ -1266,7 +1551,10 @@ public class Gateway implements AutoCloseable {
 
     /**
      * Keeps the session active, prevents premature automatic closing of the
-     * session.
+     * session. The connectors due for a keep alive are pinged asynchronously,
+     * at most {@link #getMaxConcurrentKeepAlives()} at a time, so a slow
+     * server doesn't delay the other connectors; the ones exceeding the
+     * limit are pinged by the next sweep.
      * 
      * @throws DSOutOfServiceException
      *             Thrown if the service cannot be initialized.
@@ -1274,22 +1562,79 @@ public class Gateway implements AutoCloseable {
     private void keepSessionAlive() throws DSOutOfServiceException {
         // Check if network is up before keeping service otherwise
         // we block until timeout.
-        try {
-            isNetworkUp(false);
-        } catch (Exception e) {
+        if (!isNetworkUp(false))
             throw new DSOutOfServiceException("Network not available");
+        for (Connector c : getAllConnectors()) {
+            keepAlive(c, null);
+            for (Connector d : c.getDerivedConnectors())
+                keepAlive(d, c);
         }
-        Iterator<Connector> i = getAllConnectors().iterator();
-        Connector c;
-        while (i.hasNext()) {
-            c = i.next();
-            if (c.needsKeepAlive()) {
-                if (!c.keepSessionAlive()) {
-                    // Session has died, e. g. due to server restart.
-                    // Remove connectors, so new ones will be created as requested.
-                    groupConnectorMap.removeAll(c.getGroupID());
+    }
+
+    /**
+     * Sends a keep alive ping to the specified connector if it is due and
+     * the maximum number of pings in progress is not reached.
+     * 
+     * @param c
+     *            The connector to ping
+     * @param parent
+     *            The connector <code>c</code> is derived from,
+     *            <code>null</code> for a group connector
+     */
+    private void keepAlive(final Connector c, final Connector parent) {
+        if (!c.needsKeepAlive())
+            return;
+        final Semaphore permits = keepAlivePermits;
+        if (!permits.tryAcquire()) {
+            keepAliveStatistics.deferred();
+            return;
+        }
+        final long start = System.nanoTime();
+        boolean sent = c.keepSessionAliveAsync(new Connector.KeepAliveListener() {
+            @Override
+            public void done(boolean success, boolean lost) {
+                permits.release();
+                keepAliveStatistics.record(System.nanoTime() - start, success);
+                if (!lost)
+                    return;
+                // Session has died, e. g. due to server restart, or hasn't
+                // replied several times in a row. Remove the connector, so a
+                // new one will be created as requested, and close it off the
+                // Ice thread. A slow server only records a failure.
+                boolean removed = parent != null ? parent.removeDerived(c)
+                        : removeConnector(c.getGroupID(), c);
+                if (removed)
+                    closeDeadConnector(c);
+            }
+        });
+        if (!sent)
+            permits.release();
+    }
+
+    /**
+     * Closes a connector whose session is lost.
+     * 
+     * @param c
+     *            The connector to close
+     */
+    private void closeDeadConnector(final Connector c) {
+        Runnable r = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    c.close(isNetworkUp(true));
+                } catch (Throwable t) {
+                    if (log != null)
+                        log.warn(this, new LogMessage(
+                                "Cannot close connector", t));
                 }
             }
+        };
+        ScheduledThreadPoolExecutor executor = keepAliveExecutor;
+        try {
+            executor.execute(r);
+        } catch (RejectedExecutionException e) {
+            // disconnected in the meantime, the connector is closed there
         }
     }
 
@@ -1386,9 +1731,73 @@ public class Gateway implements AutoCloseable {
      * @return See above
      */
     private List<Connector> getAllConnectors() {
-        synchronized (groupConnectorMap) {
-            // This should be the only location which calls values().
-            return new ArrayList<Connector>(groupConnectorMap.values());
+        List<Connector> rv = new ArrayList<Connector>();
+        for (List<Connector> clist : groupConnectorMap.values())
+            rv.addAll(clist);
+        return rv;
+    }
+
+    /**
+     * Get the connectors of a group
+     * 
+     * @param groupId
+     *            The id of the group
+     * @return See above
+     */
+    private List<Connector> getGroupConnectors(long groupId) {
+        List<Connector> clist = groupConnectorMap.get(groupId);
+        return clist != null ? clist : ImmutableList.<Connector> of();
+    }
+
+    /**
+     * Picks one of the connectors of a group, one after the other
+     * 
+     * @param clist
+     *            The connectors of the group, not empty
+     * @return See above
+     */
+    private Connector selectConnector(List<Connector> clist) {
+        return clist.get((nextConnector.getAndIncrement() & Integer.MAX_VALUE)
+                % clist.size());
+    }
+
+    /**
+     * Adds a connector to the pool of a group in the background if it holds
+     * less than {@link #getConnectorsPerGroup()} connectors. Does nothing if
+     * a connector is already being added for the group.
+     * 
+     * @param ctx
+     *            The {@link SecurityContext}
+     */
+    private void growPool(final SecurityContext ctx) {
+        final long groupId = ctx.getGroupID();
+        if (!growingPools.add(groupId))
+            return;
+        try {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int size = getGroupConnectors(groupId).size();
+                        if (!connected || size == 0
+                                || size >= connectorsPerGroup)
+                            return;
+                        Connector c = createConnector(ctx, true);
+                        // disconnected in the meantime
+                        if (c != null && !connected
+                                && removeConnector(groupId, c))
+                            c.close(isNetworkUp(false));
+                    } catch (Throwable e) {
+                        if (log != null)
+                            log.warn(Gateway.this, "Could not add a connector: "
+                                    + e.getMessage());
+                    } finally {
+                        growingPools.remove(groupId);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            growingPools.remove(groupId);
         }
     }
 
@@ -1413,7 +1822,7 @@ public class Gateway implements AutoCloseable {
      *            The {@link SecurityContext}
      */
     public void closeConnector(SecurityContext ctx) {
-        List<Connector> clist = groupConnectorMap.removeAll(ctx.getGroupID());
+        List<Connector> clist = removeConnectors(ctx.getGroupID());
         if (CollectionUtils.isEmpty(clist))
             return;
 
@@ -1433,7 +1842,8 @@ public class Gateway implements AutoCloseable {
         try {
             Connector c = getConnector(ctx);
             if (c != null)
-                c.closeSessionOnExit(closeSession);
+                for (Connector gc : getGroupConnectors(c.getGroupID()))
+                    gc.closeSessionOnExit(closeSession);
         } catch (DSOutOfServiceException e) {
             if (log != null)
                 log.warn(this, String.format("Could not set close session flag; %s", e));
@@ -1451,8 +1861,14 @@ public class Gateway implements AutoCloseable {
     public void closeService(SecurityContext ctx,
             StatefulServiceInterfacePrx svc) {
         try {
-            Connector c = getConnector(ctx, false, true);
+            Connector c = getConnector(ctx, false, true, false);
             if (c != null) {
+                for (Connector gc : getGroupConnectors(c.getGroupID())) {
+                    if (gc.isOwner(svc)) {
+                        c = gc;
+                        break;
+                    }
+                }
                 c.close(svc);
             } else {
                 svc.close(); // Last ditch effort to close.
@@ -1494,7 +1910,7 @@ public class Gateway implements AutoCloseable {
         if (ctx == null)
             return null;
         // check import as
-        Connector c = getConnector(ctx, true, false);
+        Connector c = getConnector(ctx, true, false, false);
         ExperimenterData exp = ctx.getExperimenterData();
         if (exp != null && ctx.isSudo()) {
             try {
@@ -1540,21 +1956,32 @@ public class Gateway implements AutoCloseable {
      */
     public Connector getConnector(SecurityContext ctx, boolean recreate,
             boolean permitNull) throws DSOutOfServiceException {
-        try {
-            isNetworkUp(true); // Need safe version?
-        } catch (Exception e1) {
-            if (permitNull) {
-                if (log != null)
-                    log.warn(
-                        this,
-                        new LogMessage(
-                                "Failed to check network. Returning null connector",
-                                e1));
-                return null;
-            }
-            throw new DSOutOfServiceException("Network not available", e1, ConnectionStatus.NETWORK);
-        }
+        return getConnector(ctx, recreate, permitNull, true);
+    }
 
+    /**
+     * Returns the connector corresponding to the passed context.
+     * 
+     * @param ctx
+     *            The security context.
+     * @param recreate
+     *            whether or not to allow the recreation of the
+     *            {@link Connector}. A {@link DSOutOfServiceException} is thrown
+     *            if this is set to false and no {@link Connector} is available.
+     * @param permitNull
+     *            whether or not to throw a {@link DSOutOfServiceException} if
+     *            no {@link Connector} is available by the end of the execution.
+     * @param pooled
+     *            Pass <code>true</code> to pick any of the connectors of the
+     *            group, <code>false</code> to get the primary connector which
+     *            holds the import store and the derived connectors.
+     * @return See above.
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     */
+    private Connector getConnector(SecurityContext ctx, boolean recreate,
+            boolean permitNull, boolean pooled) throws DSOutOfServiceException {
+        // isNetworkUp doesn't throw, errors are reported as network down
         if (!isNetworkUp(true)) {
             if (permitNull) {
                 if (log != null)
@@ -1574,26 +2001,22 @@ public class Gateway implements AutoCloseable {
             throw new DSOutOfServiceException("Null SecurityContext");
         }
 
+        ExperimenterData exp = ctx.getExperimenterData();
+        // the derived connectors are kept by the primary connector
+        if (exp != null && ctx.isSudo())
+            pooled = false;
+
         Connector c = null;
-        List<Connector> clist = groupConnectorMap.get(ctx.getGroupID());
+        List<Connector> clist = getGroupConnectors(ctx.getGroupID());
+        // The sessions are kept alive by the background task, which also
+        // removes the connectors of dead sessions, so that no caller blocks
+        // on a keep alive.
         if (clist.size() > 0) {
-            c = clist.get(0);
-            if (c.needsKeepAlive()) {
-                // Check if network is up before keeping service otherwise
-                // we block until timeout.
-                try {
-                    isNetworkUp(true);
-                } catch (Exception e) {
-                    throw new DSOutOfServiceException("Network down.", e,
-                            ConnectionStatus.NETWORK);
-                }
-                if (!c.keepSessionAlive()) {
-                    // Session has died, e. g. due to server restart.
-                    // Remove connectors, so a new ones will be created.
-                    groupConnectorMap.removeAll(c.getGroupID());
-                    c = null;
-                }
-            }
+            c = pooled ? selectConnector(clist) : clist.get(0);
+            // grow the pool only if the connector is transferring data
+            if (pooled && recreate && clist.size() < connectorsPerGroup
+                    && c.getLoad() > 0)
+                growPool(ctx);
         }
 
         // We are going to create a connector and activate a session.
@@ -1610,7 +2033,6 @@ public class Gateway implements AutoCloseable {
             }
         }
 
-        ExperimenterData exp = ctx.getExperimenterData();
         if (exp != null && ctx.isSudo()) {
             try {
                 c = c.getConnector(exp.getUserName());
@@ -1634,10 +2056,11 @@ public class Gateway implements AutoCloseable {
      */
     public void shutDownDerivedConnector(SecurityContext ctx)
             throws DSOutOfServiceException {
-        Connector c = getConnector(ctx, true, true);
+        Connector c = getConnector(ctx, true, true, false);
         if (c == null)
             return;
-        c.closeDerived(isNetworkUp(true));
+        for (Connector gc : getGroupConnectors(c.getGroupID()))
+            gc.closeDerived(isNetworkUp(true));
     }
 
     /**
@@ -1662,8 +2085,7 @@ public class Gateway implements AutoCloseable {
      * @param pixelsID The pixels id
      */
     public void shutdownRenderingEngine(SecurityContext ctx, long pixelsID) {
-        List<Connector> clist = groupConnectorMap.get(ctx.getGroupID());
-        for (Connector c : clist) {
+        for (Connector c : getGroupConnectors(ctx.getGroupID())) {
             c.shutDownRenderingEngine(pixelsID);
         }
     }
@@ -1726,7 +2148,7 @@ public class Gateway implements AutoCloseable {
                     .getPropertyChangeListeners())
                 c.addPropertyChangeListener(l);
             this.pcs.firePropertyChange(Gateway.PROP_CONNECTOR_CREATED, null, client.getSessionId());
-            groupConnectorMap.put(ctx.getGroupID(), c);
+            addConnector(ctx.getGroupID(), c);
         } catch (Throwable e) {
             if (!permitNull) {
                 throw new DSOutOfServiceException("Failed to create connector",
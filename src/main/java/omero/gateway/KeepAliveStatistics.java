@@ -0,0 +1,151 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+package omero.gateway;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the keep alive pings sent by the {@link Gateway} to keep the
+ * sessions of its connectors alive. The counters are updated while the
+ * {@link Gateway} is connected; they are not reset on reconnect.
+ *
+ * @since 5.11.1
+ */
+public class KeepAliveStatistics {
+
+    /** The number of completed pings */
+    private final AtomicLong pings = new AtomicLong();
+
+    /** The number of failed pings */
+    private final AtomicLong failures = new AtomicLong();
+
+    /** The number of pings postponed because too many were in progress */
+    private final AtomicLong deferred = new AtomicLong();
+
+    /** The total latency of the completed pings, in nanoseconds */
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    /** The highest latency of a completed ping, in nanoseconds */
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /** The latency of the last completed ping, in nanoseconds */
+    private final AtomicLong lastLatency = new AtomicLong();
+
+    /**
+     * Creates a new instance.
+     */
+    KeepAliveStatistics() {
+    }
+
+    /**
+     * Records a completed ping.
+     *
+     * @param latency
+     *            The latency in nanoseconds
+     * @param success
+     *            Pass <code>true</code> if the session is alive,
+     *            <code>false</code> otherwise
+     */
+    void record(long latency, boolean success) {
+        pings.incrementAndGet();
+        if (!success)
+            failures.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        lastLatency.set(latency);
+        long max = maxLatency.get();
+        while (latency > max && !maxLatency.compareAndSet(max, latency))
+            max = maxLatency.get();
+    }
+
+    /**
+     * Records a ping postponed to the next sweep.
+     */
+    void deferred() {
+        deferred.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of completed pings, successful or not.
+     *
+     * @return See above.
+     */
+    public long getPingCount() {
+        return pings.get();
+    }
+
+    /**
+     * Returns the number of failed pings. The connector is closed and
+     * removed if the server reports that its session doesn't exist anymore
+     * or after several failures in a row, a new one is created when
+     * requested.
+     *
+     * @return See above.
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Returns the number of pings postponed to the next sweep because the
+     * maximum number of concurrent pings was reached.
+     *
+     * @return See above.
+     */
+    public long getDeferredCount() {
+        return deferred.get();
+    }
+
+    /**
+     * Returns the average latency of the completed pings in milliseconds.
+     *
+     * @return See above.
+     */
+    public double getAverageLatency() {
+        long n = pings.get();
+        return n == 0 ? 0 : totalLatency.get() / (n * 1000000d);
+    }
+
+    /**
+     * Returns the highest latency of a completed ping in milliseconds.
+     *
+     * @return See above.
+     */
+    public double getMaxLatency() {
+        return maxLatency.get() / 1000000d;
+    }
+
+    /**
+     * Returns the latency of the last completed ping in milliseconds.
+     *
+     * @return See above.
+     */
+    public double getLastLatency() {
+        return lastLatency.get() / 1000000d;
+    }
+
+    @Override
+    public String toString() {
+        return "KeepAliveStatistics [pings=" + getPingCount() + ", failures="
+                + getFailureCount() + ", deferred=" + getDeferredCount()
+                + ", averageLatency=" + getAverageLatency() + "ms, maxLatency="
+                + getMaxLatency() + "ms]";
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+package omero.gateway.facility;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Completes a {@link CompletableFuture} when an asynchronous Ice invocation
+ * returns. Subclasses collect the result of the invocation with the
+ * <code>end_</code> method of the proxy and convert it. Errors are mapped
+ * like the ones of the blocking facility methods, see
+ * {@link Facility#handleException(Object, Throwable, String)}.
+ * <p>
+ * The Ice client thread only hands the reply over: the conversion and the
+ * completion of the future, hence the dependent stages which don't
+ * specify an executor, run on the executor of the
+ * {@link omero.gateway.Gateway}, see
+ * {@link omero.gateway.Gateway#submit(Callable)}. The conversion may
+ * therefore make further blocking calls. If the gateway doesn't accept
+ * tasks anymore, e.g. because it has been disconnected, the callback runs
+ * on the Ice client thread.
+ * </p>
+ *
+ * @param <T>
+ *            The type of the result
+ * @since 5.11.1
+ */
+abstract class AsyncCallback<T> extends Ice.Callback {
+
+    /** The future to complete */
+    private final CompletableFuture<T> future;
+
+    /** The facility making the call */
+    private final Facility facility;
+
+    /** The context message used if the call fails */
+    private final String message;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param future
+     *            The future to complete
+     * @param facility
+     *            The facility making the call
+     * @param message
+     *            The context message used if the call fails
+     */
+    AsyncCallback(CompletableFuture<T> future, Facility facility,
+            String message) {
+        this.future = future;
+        this.facility = facility;
+        this.message = message;
+    }
+
+    /**
+     * Collects the result of the invocation and converts it.
+     *
+     * @param r
+     *            The result of the <code>begin_</code> method
+     * @return See above.
+     * @throws Exception
+     *             If the invocation or the conversion failed
+     */
+    abstract T end(Ice.AsyncResult r) throws Exception;
+
+    @Override
+    public final void completed(final Ice.AsyncResult r) {
+        Callable<Void> task = new Callable<Void>() {
+            @Override
+            public Void call() {
+                complete(r);
+                return null;
+            }
+        };
+        try {
+            facility.gateway.submit(task);
+        } catch (RejectedExecutionException e) {
+            complete(r);
+        }
+    }
+
+    /**
+     * Converts the result of the invocation and completes the future.
+     *
+     * @param r
+     *            The result of the <code>begin_</code> method
+     */
+    private void complete(Ice.AsyncResult r) {
+        try {
+            future.complete(end(r));
+        } catch (Throwable t) {
+            facility.completeExceptionally(future, facility, t, message);
+        }
+    }
+}
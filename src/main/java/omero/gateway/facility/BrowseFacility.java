@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import omero.RLong;
@@ -1233,13 +1234,7 @@ public class BrowseFacility extends Facility {
             List<Image> images = service.getImages(
                     PojoMapper.getModelType(ImageData.class).getName(),
                     idsList, params);
-
-            Collection<ImageData> result = new ArrayList<ImageData>(
-                    images.size());
-            for (Image img : images)
-                result.add((ImageData) PojoMapper.asDataObject(img));
-
-            return result;
+            return asImageData(images);
         } catch (Throwable t) {
             handleException(this, t, "Could not load images");
         }
@@ -1247,6 +1242,64 @@ public class BrowseFacility extends Facility {
         return Collections.emptyList();
     }
 
+    /**
+     * Loads the images with the given ids without blocking. The request is
+     * sent asynchronously, the returned future is completed when the server
+     * replied, on the executor of the gateway (see
+     * {@link Gateway#submit(java.util.concurrent.Callable)}).
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param ids
+     *            The ids of the images to load
+     * @param params
+     *            Custom parameters, can be <code>null</code>
+     * @return A future completed with the collection of {@link ImageData}s,
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<ImageData>> getImagesAsync(
+            SecurityContext ctx, Collection<Long> ids, ParametersI params) {
+        CompletableFuture<Collection<ImageData>> future = new CompletableFuture<Collection<ImageData>>();
+        if (CollectionUtils.isEmpty(ids)) {
+            future.complete(Collections.<ImageData>emptyList());
+            return future;
+        }
+
+        String msg = "Could not load images";
+        try {
+            final IContainerPrx service = gateway.getPojosService(ctx);
+            service.begin_getImages(
+                    PojoMapper.getModelType(ImageData.class).getName(),
+                    new ArrayList<Long>(ids), params,
+                    new AsyncCallback<Collection<ImageData>>(future, this, msg) {
+                        @Override
+                        Collection<ImageData> end(Ice.AsyncResult r)
+                                throws Exception {
+                            return asImageData(service.end_getImages(r));
+                        }
+                    });
+        } catch (Throwable t) {
+            completeExceptionally(future, this, t, msg);
+        }
+        return future;
+    }
+
+    /**
+     * Converts the specified images.
+     *
+     * @param images
+     *            The images to convert
+     * @return See above.
+     */
+    private static Collection<ImageData> asImageData(List<Image> images) {
+        Collection<ImageData> result = new ArrayList<ImageData>(images.size());
+        for (Image img : images)
+            result.add((ImageData) PojoMapper.asDataObject(img));
+        return result;
+    }
+
     /**
      * Get orphaned images for a certain user
      *
@@ -21,21 +21,21 @@
 package omero.gateway.facility;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import omero.cmd.Chgrp2;
@@ -43,11 +43,9 @@ import omero.gateway.util.Links;
 import omero.sys.ParametersI;
 import org.apache.commons.collections.CollectionUtils;
 
-import omero.ServerError;
 import omero.api.IContainerPrx;
 import omero.api.IUpdatePrx;
 import omero.cmd.CmdCallbackI;
-import omero.api.RawFileStorePrx;
 import omero.cmd.Delete2;
 import omero.cmd.graphs.ChildOption;
 import omero.gateway.Gateway;
@@ -109,8 +107,8 @@ public class DataManagerFacility extends Facility {
     /** Reference to the {@link BrowseFacility} */
     private BrowseFacility browse;
 
-    /** Default file upload buffer size */
-    private int INC = 262144;
+    /** Uploads the content of attached files */
+    private final FileUploader uploader;
     
     /**
      * Creates a new instance
@@ -121,6 +119,8 @@ public class DataManagerFacility extends Facility {
     DataManagerFacility(Gateway gateway) throws ExecutionException {
         super(gateway);
         this.browse = gateway.getFacility(BrowseFacility.class);
+        this.uploader = new FileUploader(gateway, FileUploader.INC,
+                FileUploader.MAX_WRITES);
     }
 
     /**
@@ -632,94 +632,304 @@ public class DataManagerFacility extends Facility {
     public Future<FileAnnotationData> attachFile(final SecurityContext ctx,
             final File file, String mimetype, final String description,
             final String namespace, final DataObject target) {
+        return attachFile(ctx, file, mimetype, description, namespace, target,
+                null);
+    }
+
+    /**
+     * Attaches a {@link File} to a {@link DataObject}. The upload keeps
+     * several chunks in flight and the SHA1 checksum computed while
+     * uploading is checked against the one of the saved file.
+     * 
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param file
+     *            The {@link File} to attach
+     * @param mimetype
+     *            The mimetype of the file (can be <code>null</code>)
+     * @param description
+     *            A description (can be <code>null</code>)
+     * @param namespace
+     *            The namespace (can be <code>null</code>)
+     * @param target
+     *            The {@link DataObject} to attach the file to
+     * @param listener
+     *            Notified of the upload progress (can be <code>null</code>)
+     * @return The {@link Future} {@link FileAnnotationData}
+     */
+    public Future<FileAnnotationData> attachFile(final SecurityContext ctx,
+            final File file, String mimetype, final String description,
+            final String namespace, final DataObject target,
+            final ProgressListener listener) {
         if (file == null || target == null)
             return null;
         
-        final String name = file.getName();
-        String absolutePath = file.getAbsolutePath();
-        final String path = absolutePath.substring(0, absolutePath.length()
-                - name.length());
+        final OriginalFile toSave = createOriginalFile(file, mimetype);
+        Callable<FileAnnotationData> c = new Callable<FileAnnotationData>() {
+            @Override
+            public FileAnnotationData call() throws Exception {
+                OriginalFile originalFile = (OriginalFile) saveAndReturnObject(ctx,
+                        toSave);
 
-        final String mime;
-        if (mimetype == null) {
-            try {
-                mimetype = Files.probeContentType(Paths.get(file.toURI()));
-            } catch (IOException e) {
-                mimetype = null;
+                originalFile = uploader.upload(ctx, file, originalFile,
+                        listener);
+                if (originalFile == null)
+                    return null;
+                FileAnnotation fa = new FileAnnotationI();
+                fa.setFile(originalFile);
+                if (description != null)
+                    fa.setDescription(omero.rtypes.rstring(description));
+                fa.setNs(omero.rtypes.rstring(namespace));
+                fa = (FileAnnotation) saveAndReturnObject(ctx, fa);
+
+                if (target != null)
+                    return attachAnnotation(ctx,
+                            new FileAnnotationData(fa), target);
+                else
+                    return new FileAnnotationData(fa);
             }
-            mime = mimetype != null ? mimetype : "application/octet-stream";
-        } else
-            mime = mimetype;
+        };
 
-        Callable<FileAnnotationData> c = new Callable<FileAnnotationData>() {
+        return gateway.submit(c);
+    }
+    
+    /**
+     * Attaches several {@link File}s, each one to its {@link DataObject}.
+     * 
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param files
+     *            The {@link File}s to attach mapped to the {@link DataObject}
+     *            to attach them to (the target can be <code>null</code>)
+     * @return The {@link Future} {@link FileAnnotationData}s by {@link File}
+     * @see #attachFiles(SecurityContext, Map, String, ProgressListener)
+     */
+    public Future<Map<File, FileAnnotationData>> attachFiles(
+            SecurityContext ctx, Map<File, ? extends DataObject> files) {
+        return attachFiles(ctx, files, null, null);
+    }
+
+    /**
+     * Attaches several {@link File}s, each one to its {@link DataObject}.
+     * All the OriginalFiles are created in one call, the files are uploaded
+     * concurrently, then all the annotations and all the links are created
+     * in one call each. The targets are linked without being reloaded.
+     * The files are attached all or none: if a file cannot be uploaded or
+     * attached, or if the upload is cancelled, the OriginalFiles already
+     * created are deleted again.
+     * 
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param files
+     *            The {@link File}s to attach mapped to the {@link DataObject}
+     *            to attach them to (the target can be <code>null</code>)
+     * @param namespace
+     *            The namespace (can be <code>null</code>)
+     * @param listener
+     *            Notified of the upload progress (can be <code>null</code>)
+     * @return The {@link Future} {@link FileAnnotationData}s by {@link File},
+     *         <code>null</code> if the upload has been cancelled
+     */
+    public Future<Map<File, FileAnnotationData>> attachFiles(
+            final SecurityContext ctx,
+            final Map<File, ? extends DataObject> files,
+            final String namespace, final ProgressListener listener) {
+        if (files == null)
+            return null;
+
+        final List<File> localFiles = new ArrayList<File>(files.keySet());
+        final List<DataObject> targets = new ArrayList<DataObject>();
+        final List<IObject> originalFiles = new ArrayList<IObject>();
+        for (File file : localFiles) {
+            targets.add(files.get(file));
+            originalFiles.add(createOriginalFile(file, null));
+        }
+
+        Callable<Map<File, FileAnnotationData>> c = new Callable<Map<File, FileAnnotationData>>() {
             @Override
-            public FileAnnotationData call() throws Exception {
-                RawFileStorePrx rawFileStore = null;
-                FileInputStream stream = null;
+            public Map<File, FileAnnotationData> call() throws Exception {
+                final List<IObject> saved = saveAndReturnObject(ctx,
+                        originalFiles, null, null);
                 try {
-                    OriginalFile originalFile = new OriginalFileI();
-                    originalFile.setName(omero.rtypes.rstring(name));
-                    originalFile.setPath(omero.rtypes.rstring(path));
-                    originalFile.setSize(omero.rtypes.rlong(file.length()));
-                    final ChecksumAlgorithm checksumAlgorithm = new ChecksumAlgorithmI();
-                    checksumAlgorithm.setValue(omero.rtypes
-                            .rstring(ChecksumAlgorithmSHA1160.value));
-                    originalFile.setHasher(checksumAlgorithm);
-                    originalFile.setMimetype(omero.rtypes.rstring(mime));
-                    originalFile = (OriginalFile) saveAndReturnObject(ctx,
-                            originalFile);
-
-                    rawFileStore = gateway.getRawFileService(ctx);
-                    rawFileStore.setFileId(originalFile.getId().getValue());
-                    stream = new FileInputStream(file);
-                    long pos = 0;
-                    int rlen;
-                    byte[] buf = new byte[INC];
-                    ByteBuffer bbuf;
-                    while (((rlen = stream.read(buf)) > 0)) {
-                        if (Thread.currentThread().isInterrupted()) {
-                            stream.close();
+                    Map<File, FileAnnotationData> result = attach(saved);
+                    if (result != null)
+                        return result;
+                } catch (Exception e) {
+                    deleteOriginalFiles(ctx, saved);
+                    throw e;
+                }
+                // cancelled
+                deleteOriginalFiles(ctx, saved);
+                return null;
+            }
+
+            /**
+             * Uploads the files, then creates the annotations and the links.
+             *
+             * @param saved
+             *            The saved OriginalFiles
+             * @return See above or <code>null</code> if the upload has been
+             *         cancelled.
+             * @throws Exception
+             *             If a file couldn't be uploaded or attached
+             */
+            private Map<File, FileAnnotationData> attach(
+                    final List<IObject> saved) throws Exception {
+                final int n = localFiles.size();
+                final OriginalFile[] uploaded = new OriginalFile[n];
+                final AtomicInteger next = new AtomicInteger();
+                runWorkers(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        int i;
+                        while ((i = next.getAndIncrement()) < n) {
                             try {
-                                rawFileStore.close();
-                            } catch (ServerError e) {
+                                uploaded[i] = uploader.upload(ctx,
+                                        localFiles.get(i),
+                                        (OriginalFile) saved.get(i), listener);
+                            } catch (Exception e) {
+                                // stop the other workers too
+                                next.set(n);
+                                throw e;
                             }
-                            return null;
+                            if (uploaded[i] == null)
+                                break;
                         }
-                        rawFileStore.write(buf, pos, rlen);
-                        pos += rlen;
-                        bbuf = ByteBuffer.wrap(buf);
-                        bbuf.limit(rlen);
+                        return null;
                     }
+                }, Math.min(FileUploader.MAX_FILES, n));
+                for (OriginalFile of : uploaded) {
+                    if (of == null)
+                        return null;
+                }
 
-                    originalFile = rawFileStore.save();
+                List<IObject> annotations = new ArrayList<IObject>();
+                for (OriginalFile of : uploaded) {
                     FileAnnotation fa = new FileAnnotationI();
-                    fa.setFile(originalFile);
-                    if (description != null)
-                        fa.setDescription(omero.rtypes.rstring(description));
+                    fa.setFile(of);
                     fa.setNs(omero.rtypes.rstring(namespace));
-                    fa = (FileAnnotation) saveAndReturnObject(ctx, fa);
-
-                    if (target != null)
-                        return attachAnnotation(ctx,
-                                new FileAnnotationData(fa), target);
-                    else
-                        return new FileAnnotationData(fa);
-                } finally {
-                    if (stream != null)
-                        stream.close();
-                    if (rawFileStore != null) {
-                        try {
-                            rawFileStore.close();
-                        } catch (ServerError e) {
-                        }
-                    }
+                    annotations.add(fa);
+                }
+                annotations = saveAndReturnObject(ctx, annotations, null, null);
+
+                Map<File, FileAnnotationData> result = new LinkedHashMap<File, FileAnnotationData>();
+                List<IObject> links = new ArrayList<IObject>();
+                for (int i = 0; i < n; i++) {
+                    FileAnnotation fa = (FileAnnotation) annotations.get(i);
+                    result.put(localFiles.get(i), new FileAnnotationData(fa));
+                    if (targets.get(i) != null)
+                        links.add(createAnnotationLink(ctx, fa, targets.get(i)));
                 }
+                saveAndReturnObject(ctx, links, null, null);
+                return result;
             }
         };
 
         return gateway.submit(c);
     }
-    
+
+    /**
+     * Deletes the OriginalFiles created by an unsuccessful
+     * {@link #attachFiles(SecurityContext, Map, String, ProgressListener)},
+     * and so the annotations and links referring to them. Failures are only
+     * logged.
+     * 
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param originalFiles
+     *            The saved OriginalFiles
+     */
+    private void deleteOriginalFiles(SecurityContext ctx,
+            List<IObject> originalFiles) {
+        try {
+            CmdCallbackI cb = delete(ctx, originalFiles);
+            if (cb != null)
+                cb.loop(30, 500);
+        } catch (Throwable t) {
+            logWarn(this, "Cannot delete the files of an unsuccessful upload",
+                    t);
+        }
+    }
+
+    /**
+     * Creates a new, unsaved, {@link OriginalFile} describing the given
+     * {@link File}, using the SHA1 checksum algorithm.
+     * 
+     * @param file
+     *            The {@link File}
+     * @param mimetype
+     *            The mimetype of the file (can be <code>null</code>, then
+     *            it's guessed from the file name)
+     * @return See above.
+     */
+    private OriginalFile createOriginalFile(File file, String mimetype) {
+        String name = file.getName();
+        String absolutePath = file.getAbsolutePath();
+        String path = absolutePath.substring(0, absolutePath.length()
+                - name.length());
+        if (mimetype == null) {
+            try {
+                mimetype = Files.probeContentType(Paths.get(file.toURI()));
+            } catch (IOException e) {
+                mimetype = null;
+            }
+            if (mimetype == null)
+                mimetype = "application/octet-stream";
+        }
+
+        OriginalFile originalFile = new OriginalFileI();
+        originalFile.setName(omero.rtypes.rstring(name));
+        originalFile.setPath(omero.rtypes.rstring(path));
+        originalFile.setSize(omero.rtypes.rlong(file.length()));
+        ChecksumAlgorithm checksumAlgorithm = new ChecksumAlgorithmI();
+        checksumAlgorithm.setValue(omero.rtypes
+                .rstring(ChecksumAlgorithmSHA1160.value));
+        originalFile.setHasher(checksumAlgorithm);
+        originalFile.setMimetype(omero.rtypes.rstring(mimetype));
+        return originalFile;
+    }
+
+    /**
+     * Creates a new, unsaved, link between the annotation and the target,
+     * see {@link Links}, referring to both by unloaded proxies. A
+     * {@link WellSampleData} is linked via its image.
+     * 
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param annotation
+     *            The saved annotation
+     * @param target
+     *            The {@link DataObject} to link the annotation to
+     * @return See above.
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If the target type is not supported or an error occurred
+     *             while trying to retrieve data from OMERO service.
+     */
+    private IObject createAnnotationLink(SecurityContext ctx,
+            FileAnnotation annotation, DataObject target)
+            throws DSOutOfServiceException, DSAccessException {
+        if (target instanceof WellSampleData) {
+            WellSampleData w = (WellSampleData) target;
+            if (w.getImage() == null)
+                w = browse.findObject(ctx, WellSampleData.class, w.getId());
+            target = w.getImage();
+        }
+        try {
+            IObject link = Links.getLinkClass(target.getClass(),
+                    FileAnnotationData.class).newInstance();
+            // link unloaded proxies, the caller's objects may be stale
+            return Links.setObjects(link, PojoMapper.asDataObject(target
+                    .asIObject().proxy()), new FileAnnotationData(
+                    (FileAnnotation) annotation.proxy()));
+        } catch (ReflectiveOperationException e) {
+            throw new DSAccessException("Cannot link a file to "
+                    + target.getClass().getSimpleName(), e);
+        }
+    }
+
     /**
      * Create/attach an {@link AnnotationData} to a given {@link DataObject}
      * 
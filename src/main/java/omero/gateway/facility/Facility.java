@@ -24,8 +24,14 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ome.conditions.SessionTimeoutException;
 import omero.AuthenticationException;
@@ -317,6 +323,74 @@ public abstract class Facility {
         throw new DSAccessException("Cannot access data. \n" + message, t);
     }
 
+    /**
+     * Completes the future of an asynchronous call with the exception
+     * {@link #handleException(Object, Throwable, String)} maps the specified
+     * exception to.
+     * 
+     * @param future
+     *            The future to complete
+     * @param originator
+     *            The originator
+     * @param t
+     *            The exception.
+     * @param message
+     *            The context message.
+     */
+    void completeExceptionally(CompletableFuture<?> future,
+            Object originator, Throwable t, String message) {
+        try {
+            handleException(originator, t, message);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Runs the worker <code>n</code> times concurrently: once on the calling
+     * thread and the other times on threads started for this call only.
+     * The workers are not run on the executor of the gateway, as the
+     * callers usually run there themselves and waiting for other tasks of
+     * a bounded executor could deadlock. Returns once all the runs
+     * completed.
+     * 
+     * @param worker
+     *            The worker
+     * @param n
+     *            The number of concurrent runs
+     * @throws Exception
+     *             The first exception thrown by a run
+     */
+    static void runWorkers(Callable<Void> worker, int n) throws Exception {
+        ExecutorService threads = n > 1 ? Executors.newFixedThreadPool(n - 1)
+                : null;
+        List<Future<Void>> others = new ArrayList<Future<Void>>();
+        Exception error = null;
+        try {
+            for (int i = 1; i < n; i++)
+                others.add(threads.submit(worker));
+            try {
+                worker.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            for (Future<Void> other : others) {
+                try {
+                    other.get();
+                } catch (ExecutionException e) {
+                    if (error == null)
+                        error = e.getCause() instanceof Exception ? (Exception) e
+                                .getCause() : e;
+                }
+            }
+        } finally {
+            if (threads != null)
+                threads.shutdownNow();
+        }
+        if (error != null)
+            throw error;
+    }
+
     /**
      * Returns one of the constants defined by this class or <code>-1</code>.
      * 
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.facility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import omero.ServerError;
+import omero.api.RawFileStorePrx;
+import omero.gateway.Gateway;
+import omero.gateway.SecurityContext;
+import omero.gateway.exception.DSAccessException;
+import omero.gateway.exception.DSOutOfServiceException;
+import omero.model.OriginalFile;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Uploads the content of local files into {@link OriginalFile}s.
+ * The local file is read through memory-mapped windows, several chunks are
+ * written asynchronously at once and the SHA1 checksum is computed while
+ * uploading, then compared to the one computed by the server.
+ */
+class FileUploader {
+
+    /** Default file upload buffer size */
+    static final int INC = 262144;
+
+    /** Default number of chunks written at once */
+    static final int MAX_WRITES = 4;
+
+    /** Default number of files uploaded concurrently */
+    static final int MAX_FILES = 4;
+
+    /** The size of the regions of the file mapped at once */
+    private static final long WINDOW = 64L * 1024 * 1024;
+
+    /** Reference to the {@link Gateway} */
+    private final Gateway gateway;
+
+    /** The size of the chunks */
+    private final int chunkSize;
+
+    /** The number of chunks written at once */
+    private final int maxWrites;
+
+    /**
+     * Creates a new instance
+     *
+     * @param gateway
+     *            Reference to the {@link Gateway}
+     * @param chunkSize
+     *            The size of the chunks
+     * @param maxWrites
+     *            The number of chunks written at once
+     */
+    FileUploader(Gateway gateway, int chunkSize, int maxWrites) {
+        this.gateway = gateway;
+        this.chunkSize = chunkSize;
+        this.maxWrites = maxWrites;
+    }
+
+    /**
+     * Uploads the content of the file into the given, already saved,
+     * {@link OriginalFile} with a SHA1 hasher.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param file
+     *            The local file
+     * @param originalFile
+     *            The {@link OriginalFile}
+     * @param listener
+     *            Notified of the progress (can be <code>null</code>)
+     * @return The {@link OriginalFile} returned by the server, or
+     *         <code>null</code> if the thread was interrupted
+     * @throws IOException
+     *             If the file cannot be read
+     * @throws ServerError
+     *             If the data cannot be written
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If the checksum computed by the server doesn't match
+     */
+    OriginalFile upload(SecurityContext ctx, File file,
+            OriginalFile originalFile, ProgressListener listener)
+            throws IOException, ServerError, DSOutOfServiceException,
+            DSAccessException {
+        RawFileStorePrx rawFileStore = null;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            rawFileStore = gateway.getRawFileService(ctx);
+            rawFileStore.setFileId(originalFile.getId().getValue());
+
+            long size = channel.size();
+            Hasher hasher = Hashing.sha1().newHasher();
+            // a buffer is reused once the write it was passed to completed
+            byte[][] buffers = new byte[maxWrites][chunkSize];
+            Deque<Ice.AsyncResult> pending = new ArrayDeque<Ice.AsyncResult>();
+            Deque<Integer> lengths = new ArrayDeque<Integer>();
+            MappedByteBuffer window = null;
+            long pos = 0;
+            long written = 0;
+            int slot = 0;
+            while (pos < size || !pending.isEmpty()) {
+                if (Thread.currentThread().isInterrupted())
+                    return null;
+                if (pos < size && pending.size() < maxWrites) {
+                    if (window == null || !window.hasRemaining())
+                        window = channel.map(FileChannel.MapMode.READ_ONLY,
+                                pos, Math.min(WINDOW, size - pos));
+                    int rlen = (int) Math.min(chunkSize, window.remaining());
+                    byte[] buf = buffers[slot];
+                    slot = (slot + 1) % maxWrites;
+                    window.get(buf, 0, rlen);
+                    hasher.putBytes(buf, 0, rlen);
+                    pending.add(rawFileStore.begin_write(buf, pos, rlen));
+                    lengths.add(rlen);
+                    pos += rlen;
+                    continue;
+                }
+                rawFileStore.end_write(pending.poll());
+                written += lengths.poll();
+                if (listener != null)
+                    listener.progress(file, written, size);
+            }
+
+            OriginalFile saved = rawFileStore.save();
+            String hash = hasher.hash().toString();
+            if (saved.getHash() != null
+                    && !hash.equalsIgnoreCase(saved.getHash().getValue()))
+                throw new DSAccessException("Checksum mismatch for "
+                        + file.getAbsolutePath() + ": local " + hash
+                        + ", server " + saved.getHash().getValue());
+            return saved;
+        } finally {
+            if (rawFileStore != null) {
+                try {
+                    rawFileStore.close();
+                } catch (ServerError e) {
+                }
+            }
+        }
+    }
+}
@@ -35,11 +35,11 @@ import omero.gateway.model.ScreenData;
 import omero.gateway.model.WellData;
 import omero.model.IObject;
 import omero.sys.ParametersI;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A Facility for loading basic objects. Note: These are shallow objects with just
@@ -127,21 +127,62 @@ public class LoadFacility extends Facility {
             ParametersI param = new ParametersI();
             param.addIds(ids);
             List<IObject> tmp = qs.findAllByQuery(query, param);
-            List<T> result = new ArrayList<T>();
-            if (tmp != null && !tmp.isEmpty()) {
-                for (IObject o : tmp) {
-                    T inst = type.getDeclaredConstructor(o.getClass().getSuperclass()).newInstance(o);
-                    result.add(inst);
-                }
-            }
-            return result;
-        } catch (DSOutOfServiceException | ServerError | InstantiationException | IllegalAccessException |
-                 InvocationTargetException | NoSuchMethodException e) {
+            return asDataObjects(tmp, type);
+        } catch (DSOutOfServiceException | ServerError | ReflectiveOperationException e) {
             handleException(this, e, "Could not get objects");
         }
         return null;
     }
 
+    /**
+     * Queries the DB for certain objects without blocking
+     * @param ctx The SecurityContext
+     * @param query The hql query
+     * @param type The class of the objects expected
+     * @param ids The ids of the objects to insert into the query
+     * @return A future completed with the objects
+     * @param <T>
+     */
+    private <T extends DataObject> CompletableFuture<Collection<T>> queryDbAsync(SecurityContext ctx,
+            String query, final Class<T> type, Collection<Long> ids) {
+        String msg = "Could not get objects";
+        CompletableFuture<Collection<T>> future = new CompletableFuture<Collection<T>>();
+        try {
+            final IQueryPrx qs = gateway.getQueryService(ctx);
+            ParametersI param = new ParametersI();
+            param.addIds(ids);
+            qs.begin_findAllByQuery(query, param, new AsyncCallback<Collection<T>>(future, this, msg) {
+                @Override
+                Collection<T> end(Ice.AsyncResult r) throws Exception {
+                    return asDataObjects(qs.end_findAllByQuery(r), type);
+                }
+            });
+        } catch (Throwable t) {
+            completeExceptionally(future, this, t, msg);
+        }
+        return future;
+    }
+
+    /**
+     * Converts the objects returned by a query
+     * @param objects The objects, can be <code>null</code>
+     * @param type The class of the objects expected
+     * @return See above
+     * @param <T>
+     * @throws ReflectiveOperationException If an object can't be converted
+     */
+    private static <T extends DataObject> List<T> asDataObjects(List<IObject> objects, Class<T> type)
+            throws ReflectiveOperationException {
+        List<T> result = new ArrayList<T>();
+        if (objects != null && !objects.isEmpty()) {
+            for (IObject o : objects) {
+                T inst = type.getDeclaredConstructor(o.getClass().getSuperclass()).newInstance(o);
+                result.add(inst);
+            }
+        }
+        return result;
+    }
+
     /**
      * Get a dataset
      * @param ctx The SecurityContext
@@ -171,6 +212,21 @@ public class LoadFacility extends Facility {
         return queryDb(ctx, GET_DATASETS_QUERY, DatasetData.class, ids);
     }
 
+    /**
+     * Get datasets without blocking: the query is sent asynchronously and the
+     * returned future is completed when the server replied, on the executor
+     * of the gateway (see {@link Gateway#submit(java.util.concurrent.Callable)})
+     * @param ctx The SecurityContext
+     * @param ids The ids of the datasets
+     * @return A future completed with the collection of datasets (can be empty),
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<DatasetData>> getDatasetsAsync(SecurityContext ctx, Collection<Long> ids) {
+        return queryDbAsync(ctx, GET_DATASETS_QUERY, DatasetData.class, ids);
+    }
+
     /**
      * Get datasets of a project
      * @param ctx The SecurityContext
@@ -214,6 +270,21 @@ public class LoadFacility extends Facility {
         return queryDb(ctx, GET_PROJECTS_QUERY, ProjectData.class, ids);
     }
 
+    /**
+     * Get projects without blocking: the query is sent asynchronously and the
+     * returned future is completed when the server replied, on the executor
+     * of the gateway (see {@link Gateway#submit(java.util.concurrent.Callable)})
+     * @param ctx The SecurityContext
+     * @param ids The ids of the projects
+     * @return A future completed with the collection of projects (can be empty),
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<ProjectData>> getProjectsAsync(SecurityContext ctx, Collection<Long> ids) {
+        return queryDbAsync(ctx, GET_PROJECTS_QUERY, ProjectData.class, ids);
+    }
+
     /**
      * Get a image
      * @param ctx The SecurityContext
@@ -243,6 +314,21 @@ public class LoadFacility extends Facility {
         return queryDb(ctx, GET_IMAGES_QUERY, ImageData.class, ids);
     }
 
+    /**
+     * Get images without blocking: the query is sent asynchronously and the
+     * returned future is completed when the server replied, on the executor
+     * of the gateway (see {@link Gateway#submit(java.util.concurrent.Callable)})
+     * @param ctx The SecurityContext
+     * @param ids The ids of the images
+     * @return A future completed with the collection of images (can be empty),
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<ImageData>> getImagesAsync(SecurityContext ctx, Collection<Long> ids) {
+        return queryDbAsync(ctx, GET_IMAGES_QUERY, ImageData.class, ids);
+    }
+
     /**
      * Get images of a dataset
      * @param ctx The SecurityContext
@@ -286,6 +372,21 @@ public class LoadFacility extends Facility {
         return queryDb(ctx, GET_SCREENS_QUERY, ScreenData.class, ids);
     }
 
+    /**
+     * Get screens without blocking: the query is sent asynchronously and the
+     * returned future is completed when the server replied, on the executor
+     * of the gateway (see {@link Gateway#submit(java.util.concurrent.Callable)})
+     * @param ctx The SecurityContext
+     * @param ids The ids of the screens
+     * @return A future completed with the collection of screens (can be empty),
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<ScreenData>> getScreensAsync(SecurityContext ctx, Collection<Long> ids) {
+        return queryDbAsync(ctx, GET_SCREENS_QUERY, ScreenData.class, ids);
+    }
+
     /**
      * Get a plate
      * @param ctx The SecurityContext
@@ -315,6 +416,21 @@ public class LoadFacility extends Facility {
         return queryDb(ctx, GET_PLATES_QUERY, PlateData.class, ids);
     }
 
+    /**
+     * Get plates without blocking: the query is sent asynchronously and the
+     * returned future is completed when the server replied, on the executor
+     * of the gateway (see {@link Gateway#submit(java.util.concurrent.Callable)})
+     * @param ctx The SecurityContext
+     * @param ids The ids of the plates
+     * @return A future completed with the collection of plates (can be empty),
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<PlateData>> getPlatesAsync(SecurityContext ctx, Collection<Long> ids) {
+        return queryDbAsync(ctx, GET_PLATES_QUERY, PlateData.class, ids);
+    }
+
     /**
      * Get plates for a screen
      * @param ctx The SecurityContext
@@ -360,6 +476,21 @@ public class LoadFacility extends Facility {
         return queryDb(ctx, GET_WELLS_QUERY, WellData.class, ids);
     }
 
+    /**
+     * Get wells without blocking: the query is sent asynchronously and the
+     * returned future is completed when the server replied, on the executor
+     * of the gateway (see {@link Gateway#submit(java.util.concurrent.Callable)})
+     * @param ctx The SecurityContext
+     * @param ids The ids of the wells
+     * @return A future completed with the collection of wells (can be empty),
+     *         or with a {@link DSOutOfServiceException} or
+     *         {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Collection<WellData>> getWellsAsync(SecurityContext ctx, Collection<Long> ids) {
+        return queryDbAsync(ctx, GET_WELLS_QUERY, WellData.class, ids);
+    }
+
     /**
      * Get wells of a plate (Note: These are slightly deeper objects,
      * with wellsamples and images loaded)
@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.Arrays;
 
@@ -229,8 +230,82 @@ public class MetadataFacility extends Facility {
         if (CollectionUtils.isEmpty(objects))
             return result;
 
+        String type = getModelType(objects);
+        try {
+            IMetadataPrx proxy = gateway.getMetadataService(ctx);
+            Map<Long, List<IObject>> annos = proxy.loadAnnotations(type,
+                    getIds(objects), getModelTypes(annotationTypes), userIds,
+                    null);
+            result = asAnnotations(objects, annos);
+        } catch (Throwable t) {
+            handleException(this, t, "Cannot get annotations.");
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the annotations for the given {@link DataObject}s without
+     * blocking. The request is sent asynchronously, the returned future is
+     * completed when the server replied, on the executor of the gateway
+     * (see {@link Gateway#submit(java.util.concurrent.Callable)}).
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param objects
+     *            The {@link DataObject}s to load the annotations for (have to
+     *            be all of the same type)
+     * @param annotationTypes
+     *            The type of annotations to load (can be <code>null</code>)
+     * @param userIds
+     *            Only load annotations of certain users (can be
+     *            <code>null</code>, i. e. all users)
+     * @return A future completed with the lists of {@link AnnotationData}
+     *         mapped to the {@link DataObject} they are attached to, or with
+     *         a {@link DSOutOfServiceException} or {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<Map<DataObject, List<AnnotationData>>> getAnnotationsAsync(
+            SecurityContext ctx, final List<? extends DataObject> objects,
+            List<Class<? extends AnnotationData>> annotationTypes,
+            List<Long> userIds) {
+        CompletableFuture<Map<DataObject, List<AnnotationData>>> future =
+                new CompletableFuture<Map<DataObject, List<AnnotationData>>>();
+        if (CollectionUtils.isEmpty(objects)) {
+            future.complete(new HashMap<DataObject, List<AnnotationData>>());
+            return future;
+        }
+
+        String type = getModelType(objects);
+        String msg = "Cannot get annotations.";
+        try {
+            final IMetadataPrx proxy = gateway.getMetadataService(ctx);
+            proxy.begin_loadAnnotations(type, getIds(objects),
+                    getModelTypes(annotationTypes), userIds, null,
+                    new AsyncCallback<Map<DataObject, List<AnnotationData>>>(
+                            future, this, msg) {
+                        @Override
+                        Map<DataObject, List<AnnotationData>> end(
+                                Ice.AsyncResult r) throws Exception {
+                            return asAnnotations(objects,
+                                    proxy.end_loadAnnotations(r));
+                        }
+                    });
+        } catch (Throwable t) {
+            completeExceptionally(future, this, t, msg);
+        }
+        return future;
+    }
+
+    /**
+     * Returns the name of the model type of the specified objects.
+     *
+     * @param objects
+     *            The objects, have to be all of the same type
+     * @return See above.
+     */
+    private static String getModelType(List<? extends DataObject> objects) {
         String type = null;
-        List<Long> ids = new ArrayList<Long>();
         for (DataObject obj : objects) {
             if (type == null)
                 type = PojoMapper.getModelType(obj.getClass()).getName();
@@ -238,38 +313,70 @@ public class MetadataFacility extends Facility {
                     .getName()))
                 throw new IllegalArgumentException(
                         "All objects have to be the same type");
-            ids.add(obj.getId());
         }
+        return type;
+    }
 
-        try {
-            IMetadataPrx proxy = gateway.getMetadataService(ctx);
-            List<String> annoTypes = null;
-            if (annotationTypes != null) {
-                annoTypes = new ArrayList<String>(annotationTypes.size());
-                for (Class c : annotationTypes)
-                    annoTypes.add(PojoMapper.getModelType(c).getName());
-            }
-            Map<Long, List<IObject>> annos = proxy.loadAnnotations(type, ids,
-                    annoTypes, userIds, null);
-            for (Entry<Long, List<IObject>> e : annos.entrySet()) {
-                long id = e.getKey();
-                DataObject dobj = null;
-                for (DataObject o : objects) {
-                    if (o.getId() == id) {
-                        dobj = o;
-                        break;
-                    }
-                }
-                List<AnnotationData> list = new ArrayList<AnnotationData>();
-                for (IObject a : e.getValue()) {
-                    list.add((AnnotationData) PojoMapper.asDataObject(a));
+    /**
+     * Returns the ids of the specified objects.
+     *
+     * @param objects
+     *            The objects
+     * @return See above.
+     */
+    private static List<Long> getIds(List<? extends DataObject> objects) {
+        List<Long> ids = new ArrayList<Long>(objects.size());
+        for (DataObject obj : objects)
+            ids.add(obj.getId());
+        return ids;
+    }
+
+    /**
+     * Returns the names of the model types of the specified annotation
+     * types.
+     *
+     * @param annotationTypes
+     *            The annotation types, can be <code>null</code>
+     * @return See above.
+     */
+    private static List<String> getModelTypes(
+            List<Class<? extends AnnotationData>> annotationTypes) {
+        if (annotationTypes == null)
+            return null;
+        List<String> annoTypes = new ArrayList<String>(annotationTypes.size());
+        for (Class c : annotationTypes)
+            annoTypes.add(PojoMapper.getModelType(c).getName());
+        return annoTypes;
+    }
+
+    /**
+     * Maps the loaded annotations to the objects they are attached to.
+     *
+     * @param objects
+     *            The objects
+     * @param annos
+     *            The annotations by object id
+     * @return See above.
+     */
+    private static Map<DataObject, List<AnnotationData>> asAnnotations(
+            List<? extends DataObject> objects,
+            Map<Long, List<IObject>> annos) {
+        Map<DataObject, List<AnnotationData>> result = new HashMap<DataObject, List<AnnotationData>>();
+        for (Entry<Long, List<IObject>> e : annos.entrySet()) {
+            long id = e.getKey();
+            DataObject dobj = null;
+            for (DataObject o : objects) {
+                if (o.getId() == id) {
+                    dobj = o;
+                    break;
                 }
-                result.put(dobj, list);
             }
-        } catch (Throwable t) {
-            handleException(this, t, "Cannot get annotations.");
+            List<AnnotationData> list = new ArrayList<AnnotationData>();
+            for (IObject a : e.getValue()) {
+                list.add((AnnotationData) PojoMapper.asDataObject(a));
+            }
+            result.put(dobj, list);
         }
-
         return result;
     }
 
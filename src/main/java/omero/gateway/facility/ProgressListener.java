@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.facility;
+
+import java.io.File;
+
+/**
+ * Receives progress notifications for file transfers. Notifications are
+ * sent from the thread performing the transfer.
+ *
+ * @since 5.11.1
+ */
+public interface ProgressListener {
+
+    /**
+     * Invoked when a part of the file has been transferred.
+     *
+     * @param file
+     *            The local file
+     * @param transferred
+     *            The number of bytes transferred so far
+     * @param total
+     *            The size of the file
+     */
+    void progress(File file, long transferred, long total);
+}
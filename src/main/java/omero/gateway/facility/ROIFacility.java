@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.collections.CollectionUtils;
@@ -176,6 +177,46 @@ public class ROIFacility extends Facility {
         return null;
     }
 
+    /**
+     * Loads the ROI without blocking. The request is sent asynchronously,
+     * the returned future is completed when the server replied, on the
+     * executor of the gateway (see
+     * {@link Gateway#submit(java.util.concurrent.Callable)}).
+     *
+     * @param ctx
+     *            The security context.
+     * @param roiId
+     *            The ROI's id.
+     * @return A future completed with the ROI, or with a
+     *         {@link DSOutOfServiceException} or {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<ROIResult> loadROIAsync(SecurityContext ctx,
+            long roiId) {
+        CompletableFuture<ROIResult> future = new CompletableFuture<ROIResult>();
+        if (roiId < 0) {
+            future.complete(null);
+            return future;
+        }
+
+        String msg = "Couldn't get ROI.";
+        try {
+            final IRoiPrx svc = gateway.getROIService(ctx);
+            svc.begin_findByRoi(roiId, new RoiOptions(),
+                    new AsyncCallback<ROIResult>(future, this, msg) {
+                        @Override
+                        ROIResult end(Ice.AsyncResult r) throws Exception {
+                            RoiResult rr = svc.end_findByRoi(r);
+                            return new ROIResult(PojoMapper
+                                    .<ROIData> asCastedDataObjects(rr.rois));
+                        }
+                    });
+        } catch (Throwable t) {
+            completeExceptionally(future, this, t, msg);
+        }
+        return future;
+    }
+
     /**
      * Loads the ROI related to the specified image.
      *
@@ -232,6 +273,57 @@ public class ROIFacility extends Facility {
         return loadROIs(ctx, imageID, null, gateway.getLoggedInUser().getId());
     }
 
+    /**
+     * Loads the ROI related to the specified image without blocking. The
+     * request is sent asynchronously, the returned future is completed when
+     * the server replied, on the executor of the gateway (see
+     * {@link Gateway#submit(java.util.concurrent.Callable)}). The ROI folders
+     * are loaded there too, as {@link #loadROIs(SecurityContext, long)} does.
+     *
+     * @param ctx
+     *            The security context.
+     * @param imageID
+     *            The image's ID.
+     * @return A future completed with the ROIs, or with a
+     *         {@link DSOutOfServiceException} or {@link DSAccessException}
+     * @since 5.11.1
+     */
+    public CompletableFuture<List<ROIResult>> loadROIsAsync(
+            final SecurityContext ctx, long imageID) {
+        CompletableFuture<List<ROIResult>> future = new CompletableFuture<List<ROIResult>>();
+        if (imageID < 0) {
+            future.complete(new ArrayList<ROIResult>());
+            return future;
+        }
+
+        String msg = "Couldn't get ROIs.";
+        try {
+            final IRoiPrx svc = gateway.getROIService(ctx);
+            svc.begin_findByImage(imageID, new RoiOptions(),
+                    new AsyncCallback<List<ROIResult>>(future, this, msg) {
+                        @Override
+                        List<ROIResult> end(Ice.AsyncResult r) throws Exception {
+                            List<ROIResult> results = new ArrayList<ROIResult>();
+                            RoiResult rr = svc.end_findByImage(r);
+                            if (rr == null)
+                                return results;
+                            results.add(new ROIResult(PojoMapper
+                                    .<ROIData> asCastedDataObjects(rr.rois)));
+
+                            // load the ROI folders
+                            Collection<FolderData> folders = browse
+                                    .getFolders(ctx);
+                            for (ROIResult result : results)
+                                result.setFolders(folders);
+                            return results;
+                        }
+                    });
+        } catch (Throwable t) {
+            completeExceptionally(future, this, t, msg);
+        }
+        return future;
+    }
+
     /**
      * Loads the ROI related to the specified image.
      *
@@ -23,6 +23,7 @@ package omero.gateway.facility;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import omero.api.ResolutionDescription;
 import omero.gateway.Gateway;
@@ -32,12 +33,12 @@ import omero.gateway.exception.DSOutOfServiceException;
 import omero.gateway.exception.DataSourceException;
 import omero.gateway.model.PixelsData;
 import omero.gateway.rnd.DataSink;
+import omero.gateway.rnd.DataSinkPool;
 import omero.gateway.rnd.Plane2D;
+import omero.gateway.rnd.PlaneStream;
+import omero.gateway.rnd.TileCache;
 import omero.romio.PlaneDef;
 
-import org.apache.commons.collections.MapIterator;
-import org.apache.commons.collections.map.MultiKeyMap;
-
 /**
  * A {@link Facility} for accessing raw data
  * 
@@ -48,8 +49,11 @@ import org.apache.commons.collections.map.MultiKeyMap;
 
 public class RawDataFacility extends Facility implements AutoCloseable {
 
-    /** Cache the {@link DataSink}s for re-use (keys: ctx.groupid and pixelsId) */
-    private MultiKeyMap cache = new MultiKeyMap();
+    /** Pools the {@link DataSink}s for re-use (keys: ctx.groupid, pixelsId and resolution level) */
+    private final DataSinkPool pool;
+
+    /** The optional cache of tiles */
+    private volatile TileCache tileCache;
 
     /**
      * Creates a new instance
@@ -59,6 +63,54 @@ public class RawDataFacility extends Facility implements AutoCloseable {
      */
     RawDataFacility(Gateway gateway) {
         super(gateway);
+        this.pool = new DataSinkPool(gateway);
+    }
+
+    /**
+     * Sets the maximum number of pixels stores kept open by this facility
+     * (default: {@link DataSinkPool#DEFAULT_MAX_SINKS}). When all of them
+     * are in use, further requests wait until one is released.
+     *
+     * @param max
+     *            The maximum number of pixels stores
+     */
+    public void setMaxPixelsStores(int max) {
+        pool.setMaxSinks(max);
+    }
+
+    /**
+     * Sets the time after which an unused pixels store is closed (default:
+     * {@link DataSinkPool#DEFAULT_IDLE_TIMEOUT} milliseconds).
+     *
+     * @param timeout
+     *            The timeout
+     * @param unit
+     *            The unit of the timeout
+     */
+    public void setIdleTimeout(long timeout, TimeUnit unit) {
+        pool.setIdleTimeout(unit.toMillis(timeout));
+    }
+
+    /**
+     * Sets the cache used by the <code>getTile</code> methods. The same
+     * cache can be shared by the facilities of several gateways connected
+     * to the same server as the same user, see {@link TileCache}; it is not
+     * closed when this facility is closed.
+     *
+     * @param tileCache
+     *            The cache or <code>null</code> to disable caching
+     */
+    public void setTileCache(TileCache tileCache) {
+        this.tileCache = tileCache;
+    }
+
+    /**
+     * Returns the cache used by the <code>getTile</code> methods.
+     *
+     * @return See above, <code>null</code> if tiles are not cached.
+     */
+    public TileCache getTileCache() {
+        return tileCache;
     }
 
     /**
@@ -131,8 +183,12 @@ public class RawDataFacility extends Facility implements AutoCloseable {
             if (plane == null)
                 plane = new PlaneDef(omeis.providers.re.data.PlaneDef.XY, 0, 0,
                         0, 0, null, -1);
-            return getDataSink(ctx, pixels, gateway).getHistogram(channels,
-                    binCount, globalRange, plane);
+            DataSink ds = pool.lease(ctx, pixels);
+            try {
+                return ds.getHistogram(channels, binCount, globalRange, plane);
+            } finally {
+                pool.release(ds);
+            }
         } catch (Exception e) {
             handleException(this, e, "Can't initiate DataSink to get histogram data.");
         }
@@ -167,9 +223,12 @@ public class RawDataFacility extends Facility implements AutoCloseable {
             return null;
 
         try {
-            DataSink ds = getDataSink(ctx, pixels, gateway);
-            Plane2D plane = ds.getPlane(z, t, c);
-            return plane;
+            DataSink ds = pool.lease(ctx, pixels);
+            try {
+                return ds.getPlane(z, t, c);
+            } finally {
+                pool.release(ds);
+            }
         } catch (Exception e) {
             handleException(this, e, "Can't initiate DataSink for plane z=" + z + " t=" + t
                     + " c=" + c);
@@ -245,20 +304,112 @@ public class RawDataFacility extends Facility implements AutoCloseable {
         if (pixels == null)
             return null;
 
+        TileCache cache = tileCache;
+        TileCache.Key key = null;
+        if (cache != null) {
+            key = new TileCache.Key(pixels.getId(), resolutionLevel, z, t, c,
+                    x, y, w, h);
+            Plane2D tile = cache.get(key);
+            if (tile != null)
+                return tile;
+        }
+
         try {
-            DataSink ds = getDataSink(ctx, pixels, gateway);
-            int oldResLevel = -1;
-            if (resolutionLevel >= 0)
-                oldResLevel = ds.setResolutionLevel(resolutionLevel);
-            Plane2D tile = ds.getTile(z, t, c, x, y, w, h);
-            if (resolutionLevel >= 0)
-                ds.setResolutionLevel(oldResLevel);
-            return tile;
+            DataSink ds = pool.lease(ctx, pixels, resolutionLevel);
+            try {
+                Plane2D tile = ds.getTile(z, t, c, x, y, w, h);
+                if (cache != null)
+                    cache.put(key, tile);
+                return tile;
+            } finally {
+                pool.release(ds);
+            }
         } catch (DSOutOfServiceException e) {
             throw new DataSourceException("Can't initiate DataSink", e);
         }
     }
 
+    /**
+     * Streams the specified planes of the pixels set. The planes are fetched
+     * ahead of the caller, using {@link PlaneStream#DEFAULT_PARALLELISM}
+     * requests in flight, and returned with z varying fastest, then c,
+     * then t. The stream has to be closed after use.
+     *
+     * @param ctx
+     *            The security context.
+     * @param pixels
+     *            The {@link PixelsData} object to fetch the data from.
+     * @param z
+     *            The z-sections, <code>null</code> for all.
+     * @param t
+     *            The timepoints, <code>null</code> for all.
+     * @param c
+     *            The channels, <code>null</code> for all.
+     * @return See above.
+     */
+    public PlaneStream streamPlanes(SecurityContext ctx, PixelsData pixels,
+            int[] z, int[] t, int[] c) {
+        return streamPlanes(ctx, pixels, z, t, c,
+                PlaneStream.DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Streams the specified planes of the pixels set. The planes are fetched
+     * ahead of the caller and returned with z varying fastest, then c, then
+     * t. The stream has to be closed after use.
+     *
+     * @param ctx
+     *            The security context.
+     * @param pixels
+     *            The {@link PixelsData} object to fetch the data from.
+     * @param z
+     *            The z-sections, <code>null</code> for all.
+     * @param t
+     *            The timepoints, <code>null</code> for all.
+     * @param c
+     *            The channels, <code>null</code> for all.
+     * @param parallelism
+     *            The maximum number of requests in flight, each using a
+     *            pixels store of this facility.
+     * @return See above.
+     */
+    public PlaneStream streamPlanes(SecurityContext ctx, PixelsData pixels,
+            int[] z, int[] t, int[] c, int parallelism) {
+        return PlaneStream.planes(ctx, pixels, pool, z, t, c, parallelism);
+    }
+
+    /**
+     * Streams the tiles covering the specified planes of the pixels set. The
+     * tiles are fetched ahead of the caller and returned row by row, the
+     * planes being visited with z varying fastest, then c, then t. The
+     * stream has to be closed after use.
+     *
+     * @param ctx
+     *            The security context.
+     * @param pixels
+     *            The {@link PixelsData} object to fetch the data from.
+     * @param z
+     *            The z-sections, <code>null</code> for all.
+     * @param t
+     *            The timepoints, <code>null</code> for all.
+     * @param c
+     *            The channels, <code>null</code> for all.
+     * @param tileWidth
+     *            The width of the tiles
+     * @param tileHeight
+     *            The height of the tiles
+     * @param parallelism
+     *            The maximum number of requests in flight, each using a
+     *            pixels store of this facility.
+     * @return See above.
+     */
+    public PlaneStream streamTiles(SecurityContext ctx, PixelsData pixels,
+            int[] z, int[] t, int[] c, int tileWidth, int tileHeight,
+            int parallelism) {
+        return PlaneStream.tiles(ctx, pixels, pool, z, t, c, tileWidth,
+                tileHeight, parallelism);
+    }
+
     /**
      * Get the available resolution descriptions
      * @param ctx The SecurityContext
@@ -272,43 +423,21 @@ public class RawDataFacility extends Facility implements AutoCloseable {
             return null;
 
         try {
-            return getDataSink(ctx, pixels, gateway).getResolutionDescriptions();
+            DataSink ds = pool.lease(ctx, pixels);
+            try {
+                return ds.getResolutionDescriptions();
+            } finally {
+                pool.release(ds);
+            }
         } catch (DSOutOfServiceException e) {
             throw new DataSourceException("Can't initiate DataSink", e);
         }
 
     }
 
-    /**
-     * Retrieves a data sink corresponding the pixels.
-     *
-     * @param ctx
-     *            The SecurityContext
-     * @param pixels
-     *            The pixels to handle.
-     * @param gateway
-     *            The gateway.
-     * @return See above.
-     * @throws DSOutOfServiceException
-     *             If an error occurs when initializing the RawPixelsStore
-     */
-    private DataSink getDataSink(SecurityContext ctx, PixelsData pixels,
-            Gateway gateway) throws DSOutOfServiceException {
-        DataSink ds = (DataSink) cache.get(ctx.getGroupID(), pixels.getId());
-        if (ds == null) {
-            ds = new DataSink(ctx, pixels, gateway);
-            cache.put(ctx.getGroupID(), pixels.getId(), ds);
-        }
-        return ds;
-    }
-
     @Override
     public void close() {
-        MapIterator it = cache.mapIterator();
-        while (it.hasNext()) {
-            it.next();
-            ((DataSink) it.getValue()).close();
-        }
+        pool.close();
         firePropertyChanged(Gateway.PROP_FACILITY_CLOSED,
                 null, getClass().getName());
         removePropertyChangeListener(null);
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.facility;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import omero.ServerError;
+import omero.gateway.SecurityContext;
+import omero.gateway.exception.DSAccessException;
+import omero.gateway.exception.DSOutOfServiceException;
+import omero.gateway.model.TableData;
+import omero.grid.Column;
+import omero.grid.TablePrx;
+
+/**
+ * Appends rows to an existing OMERO.table. Small chunks of rows are
+ * buffered and sent together; the buffer is flushed when it holds at least
+ * the batch size, when the oldest buffered chunk is older than the maximum
+ * delay, on {@link #flush()} and on {@link #close()}. The age of the
+ * buffer is checked periodically by a task of the gateway, see
+ * {@link omero.gateway.Gateway#scheduleWithFixedDelay}. Batches are sent
+ * asynchronously, so that the next one is converted while the previous one
+ * is transferred. The appender is thread-safe.
+ * <p>
+ * The chunks must have the columns of the table, in the same order. The
+ * size of the string columns is fixed by the table, chunks with longer
+ * strings are rejected.
+ * </p>
+ *
+ * @since 5.11.1
+ */
+public class TableAppender implements AutoCloseable {
+
+    /** The default number of rows per batch */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /** The default maximum time in milliseconds rows are buffered */
+    public static final long DEFAULT_MAX_DELAY = 5000;
+
+    /** Reference to the TablesFacility */
+    private final TablesFacility fac;
+
+    /** The {@link SecurityContext} */
+    private final SecurityContext ctx;
+
+    /** The id of the original file storing the table */
+    private final long fileId;
+
+    /** The table */
+    private final TablePrx table;
+
+    /** The columns of the table */
+    private final Column[] headers;
+
+    /** The number of rows per batch */
+    private final int batchSize;
+
+    /** The maximum time in milliseconds rows are buffered */
+    private final long maxDelay;
+
+    /** The buffered chunks, converted to grid columns */
+    private final List<Column[]> buffer = new ArrayList<Column[]>();
+
+    /** The number of buffered rows */
+    private int bufferedRows;
+
+    /** The time the oldest buffered chunk has been added */
+    private long bufferedSince;
+
+    /** The periodic check of the buffer, <code>null</code> if disabled */
+    private final ScheduledFuture<?> flushTask;
+
+    /** The batch in flight, <code>null</code> if none */
+    private Ice.AsyncResult pending;
+
+    /** The number of rows of the table, including the ones sent */
+    private long numberOfRows;
+
+    /** The error of a time based flush, reported by the next call */
+    private Exception error;
+
+    /** Flag indicating that the appender has been closed */
+    private boolean closed;
+
+    /**
+     * Creates a new instance. The appender takes ownership of the table.
+     *
+     * @param fac
+     *            Reference to the TablesFacility
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the original file storing the table
+     * @param table
+     *            The open table
+     * @param batchSize
+     *            The number of rows per batch
+     * @param maxDelay
+     *            The maximum time in milliseconds rows are buffered,
+     *            <code>0</code> to only flush on size and close
+     * @throws ServerError
+     *             If the table can't be read
+     */
+    TableAppender(TablesFacility fac, SecurityContext ctx, long fileId,
+            TablePrx table, int batchSize, long maxDelay) throws ServerError {
+        this.fac = fac;
+        this.ctx = ctx;
+        this.fileId = fileId;
+        this.table = table;
+        this.headers = table.getHeaders();
+        this.numberOfRows = table.getNumberOfRows();
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        this.maxDelay = maxDelay;
+        if (maxDelay > 0)
+            flushTask = fac.gateway.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flushScheduled();
+                }
+            }, Math.max(1, maxDelay / 2), TimeUnit.MILLISECONDS);
+        else
+            flushTask = null;
+    }
+
+    /**
+     * Returns the id of the original file storing the table.
+     *
+     * @return See above.
+     */
+    public long getOriginalFileId() {
+        return fileId;
+    }
+
+    /**
+     * Returns the number of rows of the table, including the rows sent to
+     * the server so far.
+     *
+     * @return See above.
+     */
+    public synchronized long getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Returns the number of rows buffered and not sent yet.
+     *
+     * @return See above.
+     */
+    public synchronized int getBufferedRows() {
+        return bufferedRows;
+    }
+
+    /**
+     * Checks that the appender can still be used and reports the error of a
+     * previous time based flush.
+     *
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If a previous flush failed
+     */
+    private void check() throws DSOutOfServiceException, DSAccessException {
+        if (closed)
+            throw new IllegalStateException("The appender has been closed");
+        if (error != null) {
+            Exception e = error;
+            error = null;
+            fac.handleException(this, e, "Could not append table data");
+        }
+    }
+
+    /**
+     * Adds a chunk of rows. The rows are sent with the next batch.
+     *
+     * @param data
+     *            The rows to add, with the columns of the table
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    public synchronized void append(TableData data)
+            throws DSOutOfServiceException, DSAccessException {
+        check();
+        if (data.getColumns().length != headers.length)
+            throw new IllegalArgumentException("Expected " + headers.length
+                    + " columns but got " + data.getColumns().length);
+        TablesFacilityHelper helper = new TablesFacilityHelper(fac, ctx);
+        helper.parseTableData(data);
+        Column[] columns = helper.getGridColumns();
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = TablesFacilityHelper.checkColumn(headers[i],
+                    columns[i]);
+        }
+        int n = TablesFacilityHelper.getRowCount(columns[0]);
+        if (n == 0)
+            return;
+        if (buffer.isEmpty())
+            bufferedSince = System.currentTimeMillis();
+        buffer.add(columns);
+        bufferedRows += n;
+        if (bufferedRows >= batchSize)
+            send();
+    }
+
+    /**
+     * Sends the buffered rows if the maximum delay expired.
+     */
+    private synchronized void flushScheduled() {
+        if (closed || buffer.isEmpty()
+                || System.currentTimeMillis() - bufferedSince < maxDelay)
+            return;
+        try {
+            send();
+        } catch (Exception e) {
+            // reported by the next call
+            error = e;
+        }
+    }
+
+    /**
+     * Sends the buffered rows, if any. The last batch may still be in
+     * flight when the method returns.
+     *
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    public synchronized void flush() throws DSOutOfServiceException,
+            DSAccessException {
+        check();
+        send();
+    }
+
+    /**
+     * Sends the buffered rows in batches of at most the batch size.
+     *
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    private void send() throws DSOutOfServiceException, DSAccessException {
+        if (buffer.isEmpty())
+            return;
+        Column[] columns = concat(buffer, bufferedRows);
+        int n = bufferedRows;
+        buffer.clear();
+        bufferedRows = 0;
+        try {
+            for (int from = 0; from < n; from += batchSize) {
+                int to = Math.min(from + batchSize, n);
+                Column[] batch = n <= batchSize ? columns : slice(columns,
+                        from, to);
+                waitForPending();
+                pending = table.begin_addData(batch);
+                numberOfRows += to - from;
+            }
+        } catch (Exception e) {
+            fac.handleException(this, e, "Could not append table data");
+        }
+    }
+
+    /**
+     * Waits until the batch in flight, if any, has been received.
+     *
+     * @throws ServerError
+     *             If the batch couldn't be written
+     */
+    private void waitForPending() throws ServerError {
+        if (pending == null)
+            return;
+        Ice.AsyncResult r = pending;
+        pending = null;
+        table.end_addData(r);
+    }
+
+    /**
+     * Returns the public array fields of a column, holding one element per
+     * row.
+     *
+     * @param column
+     *            The column
+     * @return See above.
+     */
+    private static List<Field> arrayFields(Column column) {
+        List<Field> fields = new ArrayList<Field>();
+        for (Field f : column.getClass().getFields()) {
+            if (f.getType().isArray() && !Modifier.isStatic(f.getModifiers()))
+                fields.add(f);
+        }
+        return fields;
+    }
+
+    /**
+     * Concatenates chunks of columns.
+     *
+     * @param chunks
+     *            The chunks
+     * @param n
+     *            The total number of rows
+     * @return See above.
+     */
+    private static Column[] concat(List<Column[]> chunks, int n) {
+        if (chunks.size() == 1)
+            return chunks.get(0);
+        Column[] first = chunks.get(0);
+        Column[] result = new Column[first.length];
+        try {
+            for (int c = 0; c < first.length; c++) {
+                result[c] = (Column) first[c].clone();
+                for (Field f : arrayFields(first[c])) {
+                    Object dst = Array.newInstance(f.getType()
+                            .getComponentType(), n);
+                    int offset = 0;
+                    for (Column[] chunk : chunks) {
+                        Object src = f.get(chunk[c]);
+                        int length = Array.getLength(src);
+                        System.arraycopy(src, 0, dst, offset, length);
+                        offset += length;
+                    }
+                    f.set(result[c], dst);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Copies a range of rows of columns.
+     *
+     * @param columns
+     *            The columns
+     * @param from
+     *            The first row (inclusive)
+     * @param to
+     *            The last row (exclusive)
+     * @return See above.
+     */
+    private static Column[] slice(Column[] columns, int from, int to) {
+        Column[] result = new Column[columns.length];
+        try {
+            for (int c = 0; c < columns.length; c++) {
+                result[c] = (Column) columns[c].clone();
+                for (Field f : arrayFields(columns[c])) {
+                    Object src = f.get(columns[c]);
+                    Object dst = Array.newInstance(f.getType()
+                            .getComponentType(), to - from);
+                    System.arraycopy(src, from, dst, 0, to - from);
+                    f.set(result[c], dst);
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Sends the buffered rows, waits until they have been received and
+     * closes the table.
+     *
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    @Override
+    public synchronized void close() throws DSOutOfServiceException,
+            DSAccessException {
+        if (closed)
+            return;
+        try {
+            check();
+            send();
+            waitForPending();
+        } catch (ServerError e) {
+            fac.handleException(this, e, "Could not append table data");
+        } finally {
+            closed = true;
+            if (flushTask != null)
+                flushTask.cancel(false);
+            TableCache cache = fac.getTableCache();
+            if (cache != null)
+                cache.invalidate(fileId);
+            try {
+                table.close();
+            } catch (ServerError e) {
+                fac.logError(this, "Could not close table", e);
+            }
+        }
+    }
+}
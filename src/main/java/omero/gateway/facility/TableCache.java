@@ -0,0 +1,1027 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.facility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.collect.MapMaker;
+
+import omero.ServerError;
+import omero.grid.BoolColumn;
+import omero.grid.Column;
+import omero.grid.Data;
+import omero.grid.DatasetColumn;
+import omero.grid.DoubleArrayColumn;
+import omero.grid.DoubleColumn;
+import omero.grid.FileColumn;
+import omero.grid.FloatArrayColumn;
+import omero.grid.ImageColumn;
+import omero.grid.LongArrayColumn;
+import omero.grid.LongColumn;
+import omero.grid.PlateColumn;
+import omero.grid.RoiColumn;
+import omero.grid.StringColumn;
+import omero.grid.TablePrx;
+import omero.grid.WellColumn;
+
+/**
+ * A local, on-disk cache of OMERO.tables. Each table is stored in its own
+ * directory with one file per column holding the values in a fixed-width
+ * binary layout (strings are stored as offsets plus bytes), so that any
+ * range of rows of any column is read back with positional reads. The
+ * cached data is the raw column data as returned by the server; the
+ * referenced objects are resolved when the data is read.
+ * <p>
+ * Tables are only stored on request, see
+ * {@link TablesFacility#cacheTable(omero.gateway.SecurityContext, long)}.
+ * An entry is keyed by the id of the original file and is only used if the
+ * version recorded with it, built from the size, hash and modification time
+ * of the file, is still the current one. Tables with mask columns and tables
+ * larger than the maximum size of the cache are not cached. When the cache
+ * exceeds its maximum size, the least recently used tables are deleted.
+ * </p>
+ *
+ * @since 5.11.1
+ */
+public class TableCache {
+
+    /** The version of the layout of the cache files */
+    private static final int FORMAT = 1;
+
+    /** The name of the file holding the description of a table */
+    private static final String META = "meta";
+
+    /** The number of rows read from the server at once */
+    private static final int BATCH_SIZE = 10000;
+
+    /** The prefix of the directories of the tables being stored */
+    private static final String TMP = ".tmp-";
+
+    /**
+     * The source of the rows of a table to store, see
+     * {@link TableCache#store(long, String, Source)}.
+     */
+    interface Source {
+
+        /**
+         * Returns the columns of the table.
+         *
+         * @return See above.
+         * @throws ServerError
+         *             If the table cannot be read
+         */
+        Column[] getHeaders() throws ServerError;
+
+        /**
+         * Returns the number of rows of the table.
+         *
+         * @return See above.
+         * @throws ServerError
+         *             If the table cannot be read
+         */
+        long getNumberOfRows() throws ServerError;
+
+        /**
+         * Reads a range of rows.
+         *
+         * @param columns
+         *            The indices of the columns to read
+         * @param start
+         *            The first row (inclusive)
+         * @param stop
+         *            The last row (exclusive)
+         * @return See above.
+         * @throws ServerError
+         *             If the table cannot be read
+         */
+        Data read(long[] columns, long start, long stop) throws ServerError;
+    }
+
+    /**
+     * A cached table, as found by
+     * {@link TableCache#lookup(long, String)}. The description is read once
+     * per lookup and passed on to {@link TableCache#read}.
+     */
+    static final class Entry {
+
+        /** The id of the original file */
+        private long fileId;
+
+        /** The directory of the table */
+        private File dir;
+
+        /** The version of the original file */
+        private String version;
+
+        /** The number of rows */
+        private long rows;
+
+        /** The empty columns holding the name, description and size */
+        private Column[] headers;
+
+        /**
+         * Returns the columns of the table, without data.
+         *
+         * @return See above.
+         */
+        Column[] getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Returns the number of rows of the table.
+         *
+         * @return See above.
+         */
+        long getNumberOfRows() {
+            return rows;
+        }
+    }
+
+    /** The directory holding the cached tables */
+    private final File directory;
+
+    /** The maximum number of bytes written to disk */
+    private final long maxBytes;
+
+    /** The number of reads served from the cache */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of lookups which required to fetch the table */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The locks of the tables, the write lock is held while a table is
+     * stored or removed and the read lock while it is read, so that the
+     * other tables stay available
+     */
+    private final ConcurrentMap<Long, ReadWriteLock> locks = new MapMaker()
+            .weakValues().makeMap();
+
+    /** Lock held while the least recently used tables are deleted */
+    private final Object evictLock = new Object();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param directory
+     *            The directory holding the cached tables. The content is
+     *            kept, so that the cache survives restarts.
+     * @param maxBytes
+     *            The maximum number of bytes written to disk.
+     * @throws IOException
+     *             If the directory cannot be created.
+     */
+    public TableCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory.toPath());
+    }
+
+    /**
+     * Returns the version of an original file as recorded by the cache.
+     *
+     * @param size
+     *            The size of the file
+     * @param hash
+     *            The hash of the file (can be <code>null</code>)
+     * @param mtime
+     *            The modification time of the file
+     * @return See above.
+     */
+    static String version(long size, String hash, long mtime) {
+        return size + ":" + hash + ":" + mtime;
+    }
+
+    /**
+     * Returns the directory of the specified table.
+     *
+     * @param fileId
+     *            The id of the original file
+     * @return See above.
+     */
+    private File entry(long fileId) {
+        return new File(directory, String.valueOf(fileId));
+    }
+
+    /**
+     * Returns the lock of the specified table.
+     *
+     * @param fileId
+     *            The id of the original file
+     * @return See above.
+     */
+    private ReadWriteLock lock(long fileId) {
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        ReadWriteLock previous = locks.putIfAbsent(fileId, lock);
+        return previous != null ? previous : lock;
+    }
+
+    /**
+     * Returns the width in bytes of a row of the specified column, or
+     * <code>-1</code> if the column type is not supported.
+     *
+     * @param column
+     *            The column
+     * @return See above.
+     */
+    private static int width(Column column) {
+        if (column instanceof BoolColumn)
+            return 1;
+        if (column instanceof DoubleArrayColumn)
+            return 8 * ((DoubleArrayColumn) column).size;
+        if (column instanceof FloatArrayColumn)
+            return 4 * ((FloatArrayColumn) column).size;
+        if (column instanceof LongArrayColumn)
+            return 8 * ((LongArrayColumn) column).size;
+        if (column instanceof StringColumn)
+            return 8;
+        if (column instanceof DoubleColumn || column instanceof LongColumn
+                || column instanceof ImageColumn || column instanceof RoiColumn
+                || column instanceof WellColumn || column instanceof PlateColumn
+                || column instanceof FileColumn
+                || column instanceof DatasetColumn)
+            return 8;
+        return -1;
+    }
+
+    /**
+     * Returns the values of the columns holding one long per row, or
+     * <code>null</code> for the other columns.
+     *
+     * @param column
+     *            The column
+     * @return See above.
+     */
+    private static long[] longValues(Column column) {
+        if (column instanceof LongColumn)
+            return ((LongColumn) column).values;
+        if (column instanceof ImageColumn)
+            return ((ImageColumn) column).values;
+        if (column instanceof RoiColumn)
+            return ((RoiColumn) column).values;
+        if (column instanceof WellColumn)
+            return ((WellColumn) column).values;
+        if (column instanceof PlateColumn)
+            return ((PlateColumn) column).values;
+        if (column instanceof FileColumn)
+            return ((FileColumn) column).values;
+        if (column instanceof DatasetColumn)
+            return ((DatasetColumn) column).values;
+        return null;
+    }
+
+    /**
+     * Sets the values of the columns holding one long per row.
+     *
+     * @param column
+     *            The column
+     * @param values
+     *            The values
+     */
+    private static void setLongValues(Column column, long[] values) {
+        if (column instanceof LongColumn)
+            ((LongColumn) column).values = values;
+        else if (column instanceof ImageColumn)
+            ((ImageColumn) column).values = values;
+        else if (column instanceof RoiColumn)
+            ((RoiColumn) column).values = values;
+        else if (column instanceof WellColumn)
+            ((WellColumn) column).values = values;
+        else if (column instanceof PlateColumn)
+            ((PlateColumn) column).values = values;
+        else if (column instanceof FileColumn)
+            ((FileColumn) column).values = values;
+        else if (column instanceof DatasetColumn)
+            ((DatasetColumn) column).values = values;
+    }
+
+    /**
+     * Returns the size of the array columns, <code>0</code> for the other
+     * columns.
+     *
+     * @param column
+     *            The column
+     * @return See above.
+     */
+    private static int arraySize(Column column) {
+        if (column instanceof DoubleArrayColumn)
+            return ((DoubleArrayColumn) column).size;
+        if (column instanceof FloatArrayColumn)
+            return ((FloatArrayColumn) column).size;
+        if (column instanceof LongArrayColumn)
+            return ((LongArrayColumn) column).size;
+        return 0;
+    }
+
+    /**
+     * Returns the size of the array and string columns, <code>0</code> for
+     * the other columns.
+     *
+     * @param column
+     *            The column
+     * @return See above.
+     */
+    private static long columnSize(Column column) {
+        if (column instanceof StringColumn)
+            return ((StringColumn) column).size;
+        return arraySize(column);
+    }
+
+    /**
+     * Creates an empty column of the same type as the specified one.
+     *
+     * @param className
+     *            The class of the column
+     * @param name
+     *            The name of the column
+     * @param description
+     *            The description of the column
+     * @param size
+     *            The size of an array or string column
+     * @return See above.
+     * @throws IOException
+     *             If the class is not a supported column type
+     */
+    private static Column createColumn(String className, String name,
+            String description, long size) throws IOException {
+        Column column;
+        try {
+            column = (Column) Class.forName(className).newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Unknown column type " + className, e);
+        }
+        column.name = name;
+        column.description = description;
+        if (column instanceof DoubleArrayColumn)
+            ((DoubleArrayColumn) column).size = (int) size;
+        else if (column instanceof FloatArrayColumn)
+            ((FloatArrayColumn) column).size = (int) size;
+        else if (column instanceof LongArrayColumn)
+            ((LongArrayColumn) column).size = (int) size;
+        else if (column instanceof StringColumn)
+            ((StringColumn) column).size = size;
+        return column;
+    }
+
+    /**
+     * Reads the description of the specified table.
+     *
+     * @param fileId
+     *            The id of the original file
+     * @return See above or <code>null</code> if the table is not cached.
+     */
+    private Entry readMeta(long fileId) {
+        File dir = entry(fileId);
+        File file = new File(dir, META);
+        if (!file.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT)
+                return null;
+            Entry entry = new Entry();
+            entry.fileId = fileId;
+            entry.dir = dir;
+            entry.version = in.readUTF();
+            entry.rows = in.readLong();
+            entry.headers = new Column[in.readInt()];
+            for (int i = 0; i < entry.headers.length; i++)
+                entry.headers[i] = createColumn(in.readUTF(), in.readUTF(),
+                        in.readUTF(), in.readLong());
+            return entry;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the specified version of the table, or <code>null</code> if it
+     * is not cached.
+     *
+     * @param fileId
+     *            The id of the original file
+     * @param version
+     *            The current version of the original file
+     * @return See above.
+     */
+    Entry lookup(long fileId, String version) {
+        Entry entry = readMeta(fileId);
+        if (entry != null && entry.version.equals(version))
+            return entry;
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Reads a range of rows of the specified columns of a cached table, or
+     * returns <code>null</code> if the table has been removed from the cache
+     * or replaced in the meantime. The entry is checked and the rows are read
+     * while holding the read lock of the table.
+     *
+     * @param entry
+     *            The table, see {@link #lookup(long, String)}
+     * @param columns
+     *            The indices of the columns to read
+     * @param start
+     *            The first row (inclusive)
+     * @param stop
+     *            The last row (exclusive)
+     * @return See above.
+     */
+    Data read(Entry entry, long[] columns, long start, long stop) {
+        File dir = entry.dir;
+        stop = Math.min(stop, entry.rows);
+        int n = (int) Math.max(0, stop - start);
+        Data data = new Data();
+        data.rowNumbers = new long[n];
+        for (int i = 0; i < n; i++)
+            data.rowNumbers[i] = start + i;
+        data.columns = new Column[columns.length];
+        ReadWriteLock lock = lock(entry.fileId);
+        lock.readLock().lock();
+        try {
+            Entry current = readMeta(entry.fileId);
+            if (current == null || !current.version.equals(entry.version))
+                return null;
+            for (int i = 0; i < columns.length; i++) {
+                Column h = entry.headers[(int) columns[i]];
+                Column c = createColumn(h.getClass().getName(), h.name,
+                        h.description, columnSize(h));
+                readColumn(new File(dir, "c" + columns[i]), c, start, n);
+                data.columns[i] = c;
+            }
+            dir.setLastModified(System.currentTimeMillis());
+        } catch (IOException e) {
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.incrementAndGet();
+        return data;
+    }
+
+    /**
+     * Reads a region of a file.
+     *
+     * @param file
+     *            The file
+     * @param position
+     *            The position of the region
+     * @param length
+     *            The length of the region
+     * @return See above.
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    private static ByteBuffer read(File file, long position, long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Can't read " + length + " bytes at once");
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        if (length == 0)
+            return buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0)
+                    throw new EOFException(file.getPath());
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads <code>n</code> rows of a column, starting at the row
+     * <code>start</code>, into the values of the specified column.
+     *
+     * @param file
+     *            The column file
+     * @param column
+     *            The column to fill
+     * @param start
+     *            The first row
+     * @param n
+     *            The number of rows
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    private static void readColumn(File file, Column column, long start,
+            int n) throws IOException {
+        if (column instanceof StringColumn) {
+            // the offsets of the strings in the bytes file, n + 1 values
+            long[] offsets = new long[n + 1];
+            read(file, start * 8, (n + 1) * 8L).asLongBuffer().get(offsets);
+            ByteBuffer bytes = read(new File(file.getPath() + ".s"),
+                    offsets[0], offsets[n] - offsets[0]);
+            String[] values = new String[n];
+            for (int i = 0; i < n; i++) {
+                byte[] b = new byte[(int) (offsets[i + 1] - offsets[i])];
+                bytes.get(b);
+                values[i] = new String(b, StandardCharsets.UTF_8);
+            }
+            ((StringColumn) column).values = values;
+            return;
+        }
+        int width = width(column);
+        ByteBuffer buffer = read(file, start * width, (long) n * width);
+        if (column instanceof BoolColumn) {
+            boolean[] values = new boolean[n];
+            for (int i = 0; i < n; i++)
+                values[i] = buffer.get(i) != 0;
+            ((BoolColumn) column).values = values;
+        } else if (column instanceof DoubleColumn) {
+            double[] values = new double[n];
+            buffer.asDoubleBuffer().get(values);
+            ((DoubleColumn) column).values = values;
+        } else if (column instanceof DoubleArrayColumn) {
+            int size = arraySize(column);
+            double[][] values = new double[n][size];
+            DoubleBuffer view = buffer.asDoubleBuffer();
+            for (int i = 0; i < n; i++)
+                view.get(values[i]);
+            ((DoubleArrayColumn) column).values = values;
+        } else if (column instanceof FloatArrayColumn) {
+            int size = arraySize(column);
+            float[][] values = new float[n][size];
+            FloatBuffer view = buffer.asFloatBuffer();
+            for (int i = 0; i < n; i++)
+                view.get(values[i]);
+            ((FloatArrayColumn) column).values = values;
+        } else if (column instanceof LongArrayColumn) {
+            int size = arraySize(column);
+            long[][] values = new long[n][size];
+            LongBuffer view = buffer.asLongBuffer();
+            for (int i = 0; i < n; i++)
+                view.get(values[i]);
+            ((LongArrayColumn) column).values = values;
+        } else {
+            long[] values = new long[n];
+            buffer.asLongBuffer().get(values);
+            setLongValues(column, values);
+        }
+    }
+
+    /**
+     * Appends the values of a column to its file.
+     *
+     * @param channel
+     *            The column file
+     * @param strings
+     *            The strings file (string columns only)
+     * @param column
+     *            The column
+     * @param n
+     *            The number of rows
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    private static void writeColumn(FileChannel channel, FileChannel strings,
+            Column column, int n) throws IOException {
+        ByteBuffer buffer;
+        if (column instanceof StringColumn) {
+            String[] values = ((StringColumn) column).values;
+            buffer = ByteBuffer.allocate(8 * n);
+            long offset = strings.size();
+            for (int i = 0; i < n; i++) {
+                byte[] b = values[i] != null ? values[i]
+                        .getBytes(StandardCharsets.UTF_8) : new byte[0];
+                offset += b.length;
+                // the start offset of the first string is written when the
+                // file is created, the end offsets here
+                buffer.putLong(offset);
+                ByteBuffer s = ByteBuffer.wrap(b);
+                while (s.hasRemaining())
+                    strings.write(s);
+            }
+        } else {
+            buffer = ByteBuffer.allocate(width(column) * n);
+            if (column instanceof BoolColumn) {
+                for (boolean v : ((BoolColumn) column).values)
+                    buffer.put((byte) (v ? 1 : 0));
+            } else if (column instanceof DoubleColumn) {
+                buffer.asDoubleBuffer().put(((DoubleColumn) column).values);
+            } else if (column instanceof DoubleArrayColumn) {
+                int size = arraySize(column);
+                for (double[] v : ((DoubleArrayColumn) column).values)
+                    for (int j = 0; j < size; j++)
+                        buffer.putDouble(j < v.length ? v[j] : 0);
+            } else if (column instanceof FloatArrayColumn) {
+                int size = arraySize(column);
+                for (float[] v : ((FloatArrayColumn) column).values)
+                    for (int j = 0; j < size; j++)
+                        buffer.putFloat(j < v.length ? v[j] : 0);
+            } else if (column instanceof LongArrayColumn) {
+                int size = arraySize(column);
+                for (long[] v : ((LongArrayColumn) column).values)
+                    for (int j = 0; j < size; j++)
+                        buffer.putLong(j < v.length ? v[j] : 0);
+            } else {
+                buffer.asLongBuffer().put(longValues(column));
+            }
+        }
+        buffer.rewind();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Reads the whole table from the server and stores it, see
+     * {@link #store(long, String, Source)}.
+     *
+     * @param fileId
+     *            The id of the original file
+     * @param version
+     *            The current version of the original file
+     * @param table
+     *            The open table
+     * @return The stored table or <code>null</code> if it contains columns
+     *         which can't be cached or is larger than the cache.
+     * @throws IOException
+     *             If the files cannot be written
+     * @throws ServerError
+     *             If the table cannot be read
+     */
+    Entry store(long fileId, String version, final TablePrx table)
+            throws IOException, ServerError {
+        return store(fileId, version, new Source() {
+            @Override
+            public Column[] getHeaders() throws ServerError {
+                return table.getHeaders();
+            }
+
+            @Override
+            public long getNumberOfRows() throws ServerError {
+                return table.getNumberOfRows();
+            }
+
+            @Override
+            public Data read(long[] columns, long start, long stop)
+                    throws ServerError {
+                return table.read(columns, start, stop);
+            }
+        });
+    }
+
+    /**
+     * Reads the whole table and stores it, replacing an older version if
+     * any. The table is written to a temporary directory which is moved into
+     * place once complete; only the write lock of this table is held while it
+     * is moved, and concurrent stores of the same table wait for the first
+     * one. The table is dropped as soon as it exceeds the maximum size of
+     * the cache.
+     *
+     * @param fileId
+     *            The id of the original file
+     * @param version
+     *            The current version of the original file
+     * @param source
+     *            The rows of the table
+     * @return The stored table or <code>null</code> if it contains columns
+     *         which can't be cached or is larger than the cache.
+     * @throws IOException
+     *             If the files cannot be written
+     * @throws ServerError
+     *             If the table cannot be read
+     */
+    Entry store(long fileId, String version, Source source)
+            throws IOException, ServerError {
+        Lock lock = lock(fileId).writeLock();
+        lock.lock();
+        try {
+            Entry entry = readMeta(fileId);
+            if (entry != null && entry.version.equals(version))
+                return entry;
+
+            File tmp = Files.createTempDirectory(directory.toPath(),
+                    TMP + fileId + "-").toFile();
+            try {
+                if (!write(tmp, version, source, maxBytes))
+                    return null;
+                File dir = entry(fileId);
+                delete(dir);
+                Files.move(tmp.toPath(), dir.toPath(),
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                if (tmp.exists())
+                    delete(tmp);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // outside of the lock of the table, evict takes the locks of the
+        // tables it deletes
+        evict(fileId);
+        return readMeta(fileId);
+    }
+
+    /**
+     * Reads the whole table and writes it to the specified directory.
+     *
+     * @param dir
+     *            The directory
+     * @param version
+     *            The current version of the original file
+     * @param source
+     *            The rows of the table
+     * @param maxBytes
+     *            The maximum number of bytes to write
+     * @return <code>true</code> if the table has been written,
+     *         <code>false</code> if it contains columns which can't be
+     *         cached or exceeds the maximum size.
+     * @throws IOException
+     *             If the files cannot be written
+     * @throws ServerError
+     *             If the table cannot be read
+     */
+    private static boolean write(File dir, String version, Source source,
+            long maxBytes) throws IOException, ServerError {
+        Column[] headers = source.getHeaders();
+        long rows = source.getNumberOfRows();
+        long[] columns = new long[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            if (width(headers[i]) < 0)
+                return false;
+            columns[i] = i;
+        }
+
+        FileChannel[] channels = new FileChannel[headers.length];
+        FileChannel[] strings = new FileChannel[headers.length];
+        try {
+            for (int i = 0; i < headers.length; i++) {
+                channels[i] = FileChannel.open(new File(dir, "c" + i)
+                        .toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                if (headers[i] instanceof StringColumn) {
+                    strings[i] = FileChannel.open(new File(dir, "c" + i
+                            + ".s").toPath(), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING);
+                    ByteBuffer start = ByteBuffer.allocate(8);
+                    while (start.hasRemaining())
+                        channels[i].write(start);
+                }
+            }
+            for (long start = 0; start < rows; start += BATCH_SIZE) {
+                long stop = Math.min(start + BATCH_SIZE, rows);
+                Data data = source.read(columns, start, stop);
+                for (int i = 0; i < headers.length; i++) {
+                    Column c = data.columns[i];
+                    if (c instanceof DoubleArrayColumn
+                            || c instanceof FloatArrayColumn
+                            || c instanceof LongArrayColumn) {
+                        // the size is only known once data has been read
+                        if (arraySize(headers[i]) < arraySize(c))
+                            copySize(c, headers[i]);
+                        copySize(headers[i], c);
+                    }
+                    writeColumn(channels[i], strings[i], c,
+                            (int) (stop - start));
+                }
+                if (size(dir) > maxBytes)
+                    return false;
+            }
+            writeMeta(dir, version, rows, headers);
+        } finally {
+            for (int i = 0; i < headers.length; i++) {
+                if (channels[i] != null)
+                    channels[i].close();
+                if (strings[i] != null)
+                    strings[i].close();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies the size of an array column.
+     *
+     * @param src
+     *            The source column
+     * @param dst
+     *            The destination column
+     */
+    private static void copySize(Column src, Column dst) {
+        int size = arraySize(src);
+        if (dst instanceof DoubleArrayColumn)
+            ((DoubleArrayColumn) dst).size = size;
+        else if (dst instanceof FloatArrayColumn)
+            ((FloatArrayColumn) dst).size = size;
+        else if (dst instanceof LongArrayColumn)
+            ((LongArrayColumn) dst).size = size;
+    }
+
+    /**
+     * Writes the description of a table. The file is written last and
+     * atomically, so that an interrupted store leaves no valid entry.
+     *
+     * @param dir
+     *            The directory of the table
+     * @param version
+     *            The version of the original file
+     * @param rows
+     *            The number of rows
+     * @param headers
+     *            The columns
+     * @throws IOException
+     *             If the file cannot be written
+     */
+    private static void writeMeta(File dir, String version, long rows,
+            Column[] headers) throws IOException {
+        File tmp = new File(dir, META + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT);
+            out.writeUTF(version);
+            out.writeLong(rows);
+            out.writeInt(headers.length);
+            for (Column c : headers) {
+                out.writeUTF(c.getClass().getName());
+                out.writeUTF(c.name != null ? c.name : "");
+                out.writeUTF(c.description != null ? c.description : "");
+                out.writeLong(columnSize(c));
+            }
+        }
+        Files.move(tmp.toPath(), new File(dir, META).toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the number of bytes used by the files of the directory.
+     *
+     * @param dir
+     *            The directory
+     * @return See above.
+     */
+    private static long size(File dir) {
+        long size = 0;
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File f : files)
+                size += f.length();
+        return size;
+    }
+
+    /**
+     * Deletes the least recently used tables until the cache fits into its
+     * maximum size. The specified table is kept.
+     *
+     * @param keep
+     *            The id of the table to keep
+     */
+    private void evict(long keep) {
+        synchronized (evictLock) {
+            File[] entries = directory.listFiles();
+            if (entries == null)
+                return;
+            long total = 0;
+            for (File e : entries)
+                total += size(e);
+            Arrays.sort(entries, new Comparator<File>() {
+                @Override
+                public int compare(File o1, File o2) {
+                    return Long.compare(o1.lastModified(), o2.lastModified());
+                }
+            });
+            for (File e : entries) {
+                if (total <= maxBytes)
+                    break;
+                // tables being stored and the table to keep
+                if (e.getName().startsWith(TMP)
+                        || e.getName().equals(String.valueOf(keep)))
+                    continue;
+                total -= size(e);
+                try {
+                    invalidate(Long.parseLong(e.getName()));
+                } catch (NumberFormatException ex) {
+                    delete(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes a cached table.
+     *
+     * @param dir
+     *            The directory of the table
+     */
+    private static void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File f : files)
+                f.delete();
+        dir.delete();
+    }
+
+    /**
+     * Removes the specified table from the cache.
+     *
+     * @param fileId
+     *            The id of the original file
+     */
+    public void invalidate(long fileId) {
+        Lock lock = lock(fileId).writeLock();
+        lock.lock();
+        try {
+            delete(entry(fileId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all the tables from the cache.
+     */
+    public void clear() {
+        File[] entries = directory.listFiles();
+        if (entries == null)
+            return;
+        for (File e : entries) {
+            // tables being stored are moved into place when complete
+            if (e.getName().startsWith(TMP))
+                continue;
+            try {
+                invalidate(Long.parseLong(e.getName()));
+            } catch (NumberFormatException ex) {
+                delete(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of reads served from the cache.
+     *
+     * @return See above.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups for which the table was not cached or
+     * outdated.
+     *
+     * @return See above.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of bytes used on disk.
+     *
+     * @return See above.
+     */
+    public long getSize() {
+        long total = 0;
+        File[] entries = directory.listFiles();
+        if (entries != null)
+            for (File e : entries)
+                total += size(e);
+        return total;
+    }
+}
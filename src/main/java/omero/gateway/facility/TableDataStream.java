@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.facility;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import omero.ServerError;
+import omero.gateway.SecurityContext;
+import omero.gateway.exception.DSAccessException;
+import omero.gateway.exception.DSOutOfServiceException;
+import omero.gateway.facility.TablesFacility.ReferenceMode;
+import omero.gateway.model.TableData;
+import omero.gateway.model.TableDataColumn;
+import omero.grid.Column;
+import omero.grid.Data;
+import omero.grid.TablePrx;
+
+/**
+ * Reads a range of rows, or a list of rows, of an OMERO.table in batches.
+ * The table is kept open until the stream is closed, and the next batch is
+ * requested from the server while the caller processes the current one, so
+ * that at most two batches are held in memory.
+ *
+ * @since 5.11.1
+ */
+public class TableDataStream implements AutoCloseable {
+
+    /** The default number of rows per batch */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /** Reference to the TablesFacility */
+    private final TablesFacility fac;
+
+    /** The {@link SecurityContext} */
+    private final SecurityContext ctx;
+
+    /** How the referenced objects are returned */
+    private final ReferenceMode mode;
+
+    /** The open table */
+    private final TablePrx table;
+
+    /** The id of the original file */
+    private final long fileId;
+
+    /** The table headers */
+    private final Column[] headers;
+
+    /** The indices of the columns to read */
+    private final long[] columns;
+
+    /** The total number of rows of the table */
+    private final long numberOfRows;
+
+    /** The rows to read, <code>null</code> to read a range */
+    private final long[] rows;
+
+    /** The end of the range (exclusive), or the number of rows to read */
+    private final long end;
+
+    /** The number of rows per batch */
+    private final int batchSize;
+
+    /** The first row (or index in {@link #rows}) of the next batch */
+    private long next;
+
+    /** The request for the next batch, <code>null</code> if none */
+    private Ice.AsyncResult pending;
+
+    /** The first row (or index in {@link #rows}) of the pending batch */
+    private long pendingOffset;
+
+    /** Flag indicating that the stream has been closed */
+    private boolean closed;
+
+    /**
+     * Creates a new instance and requests the first batch. The stream takes
+     * ownership of the table.
+     *
+     * @param fac
+     *            Reference to the TablesFacility
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param mode
+     *            How the referenced objects are returned
+     * @param table
+     *            The open table
+     * @param fileId
+     *            The id of the original file
+     * @param columns
+     *            The indices of the columns to read
+     * @param rowFrom
+     *            The start row (inclusive)
+     * @param rowTo
+     *            The end row (exclusive)
+     * @param batchSize
+     *            The number of rows per batch
+     * @throws ServerError
+     *             If the table cannot be read
+     */
+    TableDataStream(TablesFacility fac, SecurityContext ctx,
+            ReferenceMode mode, TablePrx table, long fileId, long[] columns,
+            long rowFrom, long rowTo, int batchSize) throws ServerError {
+        this(fac, ctx, mode, table, fileId, columns, null, rowFrom, rowTo,
+                batchSize);
+    }
+
+    /**
+     * Creates a new instance reading the given rows and requests the first
+     * batch. The stream takes ownership of the table.
+     *
+     * @param fac
+     *            Reference to the TablesFacility
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param mode
+     *            How the referenced objects are returned
+     * @param table
+     *            The open table
+     * @param fileId
+     *            The id of the original file
+     * @param columns
+     *            The indices of the columns to read
+     * @param rows
+     *            The rows to read
+     * @param batchSize
+     *            The number of rows per batch
+     * @throws ServerError
+     *             If the table cannot be read
+     */
+    TableDataStream(TablesFacility fac, SecurityContext ctx,
+            ReferenceMode mode, TablePrx table, long fileId, long[] columns,
+            long[] rows, int batchSize) throws ServerError {
+        this(fac, ctx, mode, table, fileId, columns, rows, 0, rows.length,
+                batchSize);
+    }
+
+    /**
+     * Creates a new instance and requests the first batch.
+     *
+     * @param fac
+     *            Reference to the TablesFacility
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param mode
+     *            How the referenced objects are returned
+     * @param table
+     *            The open table
+     * @param fileId
+     *            The id of the original file
+     * @param columns
+     *            The indices of the columns to read
+     * @param rows
+     *            The rows to read, <code>null</code> to read a range
+     * @param from
+     *            The start row, or index in <code>rows</code> (inclusive)
+     * @param to
+     *            The end row, or index in <code>rows</code> (exclusive)
+     * @param batchSize
+     *            The number of rows per batch
+     * @throws ServerError
+     *             If the table cannot be read
+     */
+    private TableDataStream(TablesFacility fac, SecurityContext ctx,
+            ReferenceMode mode, TablePrx table, long fileId, long[] columns,
+            long[] rows, long from, long to, int batchSize)
+            throws ServerError {
+        this.fac = fac;
+        this.ctx = ctx;
+        this.mode = mode;
+        this.table = table;
+        this.fileId = fileId;
+        this.headers = table.getHeaders();
+        this.numberOfRows = table.getNumberOfRows();
+        if (columns == null || columns.length == 0) {
+            columns = new long[headers.length];
+            for (int i = 0; i < headers.length; i++)
+                columns[i] = i;
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.next = Math.max(0, from);
+        if (rows != null)
+            this.end = to;
+        else
+            this.end = to < 0 ? numberOfRows : Math.min(to, numberOfRows);
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+        request();
+    }
+
+    /**
+     * Requests the next batch, if any.
+     */
+    private void request() {
+        pending = null;
+        if (next >= end)
+            return;
+        long stop = Math.min(next + batchSize, end);
+        pendingOffset = next;
+        if (rows != null)
+            pending = table.begin_slice(columns,
+                    Arrays.copyOfRange(rows, (int) next, (int) stop));
+        else
+            pending = table.begin_read(columns, next, stop);
+        next = stop;
+    }
+
+    /**
+     * Returns the total number of rows of the table.
+     *
+     * @return See above.
+     */
+    public long getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Returns <code>true</code> if there are more rows to read,
+     * <code>false</code> otherwise.
+     *
+     * @return See above.
+     */
+    public boolean hasNext() {
+        return !closed && pending != null;
+    }
+
+    /**
+     * Returns the next batch of rows, waiting for it if it has not been
+     * received yet, and requests the following one.
+     *
+     * @return See above.
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from
+     *             OMERO service.
+     * @throws NoSuchElementException
+     *             If there are no more rows.
+     */
+    public TableData next() throws DSOutOfServiceException, DSAccessException {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        long offset = pendingOffset;
+        Data data = null;
+        try {
+            data = rows != null ? table.end_slice(pending) : table
+                    .end_read(pending);
+        } catch (Exception e) {
+            pending = null;
+            fac.handleException(this, e, "Could not load table data");
+        }
+        request();
+
+        TableDataColumn[] header = new TableDataColumn[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            int columnIndex = (int) columns[i];
+            header[i] = new TableDataColumn(headers[columnIndex].name,
+                    headers[columnIndex].description, columnIndex,
+                    Object.class);
+        }
+        TablesFacilityHelper helper = new TablesFacilityHelper(fac, ctx,
+                mode);
+        helper.parseData(data, header);
+
+        // for a list of rows the offset and number of rows refer to the list,
+        // the rows of the table are given by the row numbers
+        TableData result = TableData.fromColumns(header,
+                helper.getDataArray());
+        result.setOffset(offset);
+        if (rows != null)
+            result.setRowNumbers(Arrays.copyOfRange(rows, (int) offset,
+                    (int) offset + helper.getNRows()));
+        result.setOriginalFileId(fileId);
+        result.setNumberOfRows(rows != null ? rows.length : numberOfRows);
+        return result;
+    }
+
+    /**
+     * Closes the table. A batch still in flight is discarded.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        pending = null;
+        try {
+            table.close();
+        } catch (ServerError e) {
+            fac.logError(this, "Could not close table", e);
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.facility;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import omero.ServerError;
+import omero.gateway.SecurityContext;
+import omero.gateway.exception.DSAccessException;
+import omero.gateway.exception.DSOutOfServiceException;
+import omero.gateway.model.DataObject;
+import omero.gateway.model.TableData;
+import omero.gateway.model.TableDataColumn;
+import omero.grid.Column;
+import omero.grid.StringColumn;
+import omero.grid.TablePrx;
+
+/**
+ * Writes a new OMERO.table incrementally. Rows and column chunks are
+ * buffered and sent to the server in batches; a batch is sent
+ * asynchronously, so that the next one is converted while the previous one
+ * is transferred. The table is attached to its target when the writer is
+ * finished.
+ * <p>
+ * The size of the string columns is defined when the first batch is sent,
+ * from the longest string of that batch, unless it has been set with
+ * {@link #setStringSize(int, int)}. Longer strings, including the ones of
+ * the first batch if the size has been set, are truncated by the server and
+ * a warning is logged.
+ * </p>
+ *
+ * @since 5.11.1
+ */
+public class TableDataWriter implements AutoCloseable {
+
+    /** The default number of rows per batch */
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    /** Reference to the TablesFacility */
+    private final TablesFacility fac;
+
+    /** The {@link SecurityContext} */
+    private final SecurityContext ctx;
+
+    /** The new table */
+    private final TablePrx table;
+
+    /** The object to attach the table to */
+    private final DataObject target;
+
+    /** The name of the table */
+    private final String name;
+
+    /** The namespace of the file annotation, may be <code>null</code> */
+    private final String ns;
+
+    /** The column definitions */
+    private final TableDataColumn[] columns;
+
+    /** The number of rows per batch */
+    private final int batchSize;
+
+    /** The rows added with {@link #addRow(Object...)} and not sent yet */
+    private final List<Object[]> rows = new ArrayList<Object[]>();
+
+    /** The sizes of the string columns by column index */
+    private final Map<Integer, Integer> stringSizes = new HashMap<Integer, Integer>();
+
+    /** Flag indicating that the table has been initialized */
+    private boolean initialized;
+
+    /** The batch in flight, <code>null</code> if none */
+    private Ice.AsyncResult pending;
+
+    /** The number of rows sent */
+    private long numberOfRows;
+
+    /** The table written, once finished */
+    private TableData result;
+
+    /** Flag indicating that the writer has been closed */
+    private boolean closed;
+
+    /** Flag indicating that writing data failed */
+    private boolean failed;
+
+    /**
+     * Creates a new instance. The writer takes ownership of the table.
+     *
+     * @param fac
+     *            Reference to the TablesFacility
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param table
+     *            The new table
+     * @param target
+     *            The object to attach the table to
+     * @param name
+     *            The name of the table
+     * @param ns
+     *            The namespace of the file annotation (can be
+     *            <code>null</code>)
+     * @param columns
+     *            The column definitions
+     * @param batchSize
+     *            The number of rows per batch
+     */
+    TableDataWriter(TablesFacility fac, SecurityContext ctx, TablePrx table,
+            DataObject target, String name, String ns,
+            TableDataColumn[] columns, int batchSize) {
+        this.fac = fac;
+        this.ctx = ctx;
+        this.table = table;
+        this.target = target;
+        this.name = name;
+        this.ns = ns;
+        this.columns = columns;
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    /**
+     * Sets the maximum size in bytes of the strings of a string column. Has
+     * to be called before the first batch is sent. Longer strings are
+     * truncated.
+     *
+     * @param column
+     *            The column index
+     * @param size
+     *            The size in bytes
+     */
+    public void setStringSize(int column, int size) {
+        if (initialized)
+            throw new IllegalStateException("The table is already initialized");
+        stringSizes.put(column, size);
+    }
+
+    /**
+     * Returns the number of rows sent to the server so far.
+     *
+     * @return See above.
+     */
+    public long getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    /**
+     * Checks that the writer can still be used.
+     */
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("The writer has been closed");
+    }
+
+    /**
+     * Adds a row. The row is sent with the next batch.
+     *
+     * @param values
+     *            The values, one per column
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    public void addRow(Object... values) throws DSOutOfServiceException,
+            DSAccessException {
+        checkOpen();
+        if (values.length != columns.length)
+            throw new IllegalArgumentException("Expected " + columns.length
+                    + " values but got " + values.length);
+        rows.add(values);
+        if (rows.size() >= batchSize)
+            flushRows();
+    }
+
+    /**
+     * Adds a chunk of rows. The chunk must have the same columns as the
+     * table; it is split into batches if it is larger than the batch size.
+     *
+     * @param data
+     *            The rows to add
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    public void add(TableData data) throws DSOutOfServiceException,
+            DSAccessException {
+        checkOpen();
+        flushRows();
+        int n = data.isEmpty() ? 0 : Array.getLength(data.getColumn(0));
+        if (n <= batchSize) {
+            if (n > 0)
+                send(data, n);
+            return;
+        }
+        for (int from = 0; from < n; from += batchSize) {
+            int to = Math.min(from + batchSize, n);
+            send(slice(data, from, to), to - from);
+        }
+    }
+
+    /**
+     * Sends the buffered rows, if any.
+     *
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    private void flushRows() throws DSOutOfServiceException,
+            DSAccessException {
+        if (rows.isEmpty())
+            return;
+        int n = rows.size();
+        Object[][] data = new Object[columns.length][n];
+        for (int r = 0; r < n; r++) {
+            Object[] row = rows.get(r);
+            for (int c = 0; c < columns.length; c++)
+                data[c][r] = row[c];
+        }
+        rows.clear();
+        send(new TableData(columns, data), n);
+    }
+
+    /**
+     * Copies a range of rows of a {@link TableData}.
+     *
+     * @param data
+     *            The data
+     * @param from
+     *            The first row (inclusive)
+     * @param to
+     *            The last row (exclusive)
+     * @return See above.
+     */
+    private TableData slice(TableData data, int from, int to) {
+        Object[] slice = new Object[data.getColumns().length];
+        for (int c = 0; c < slice.length; c++) {
+            Object column = data.getColumn(c);
+            slice[c] = Array.newInstance(column.getClass().getComponentType(),
+                    to - from);
+            System.arraycopy(column, from, slice[c], 0, to - from);
+        }
+        return TableData.fromColumns(data.getColumns(), slice);
+    }
+
+    /**
+     * Converts a batch and sends it once the previous one has been
+     * received by the server. The table is initialized with the first batch.
+     *
+     * @param data
+     *            The batch
+     * @param n
+     *            The number of rows of the batch
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    private void send(TableData data, int n) throws DSOutOfServiceException,
+            DSAccessException {
+        TablesFacilityHelper helper = new TablesFacilityHelper(fac, ctx);
+        helper.parseTableData(data);
+        Column[] gridColumns = helper.getGridColumns();
+        try {
+            for (int c = 0; c < gridColumns.length; c++) {
+                if (!(gridColumns[c] instanceof StringColumn))
+                    continue;
+                StringColumn col = (StringColumn) gridColumns[c];
+                Integer size = stringSizes.get(c);
+                if (size == null)
+                    stringSizes.put(c, col.size);
+                else if (col.size > size)
+                    fac.logWarn(this, "Strings of column '" + col.name
+                            + "' longer than " + size
+                            + " bytes will be truncated", null);
+                col.size = stringSizes.get(c);
+            }
+            if (!initialized) {
+                table.initialize(gridColumns);
+                initialized = true;
+            }
+            waitForPending();
+            pending = table.begin_addData(gridColumns);
+            numberOfRows += n;
+        } catch (Exception e) {
+            failed = true;
+            fac.handleException(this, e, "Could not write table data");
+        }
+    }
+
+    /**
+     * Waits until the batch in flight, if any, has been received.
+     *
+     * @throws ServerError
+     *             If the batch couldn't be written
+     */
+    private void waitForPending() throws ServerError {
+        if (pending == null)
+            return;
+        Ice.AsyncResult r = pending;
+        pending = null;
+        table.end_addData(r);
+    }
+
+    /**
+     * Sends the remaining rows, closes the table and attaches it to the
+     * target.
+     *
+     * @return The {@link TableData} holding the id of the original file and
+     *         the number of rows, without data
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    public TableData finish() throws DSOutOfServiceException,
+            DSAccessException {
+        if (result != null)
+            return result;
+        checkOpen();
+        try {
+            flushRows();
+            if (!initialized)
+                send(new TableData(columns, new Object[columns.length][0]), 0);
+            waitForPending();
+            TableData info = new TableData(columns, null);
+            info.setOriginalFileId(fac.attachTable(ctx, table, target, name,
+                    ns));
+            info.setNumberOfRows(table.getNumberOfRows());
+            result = info;
+        } catch (Exception e) {
+            fac.handleException(this, e, "Could not add table");
+        } finally {
+            closeTable();
+        }
+        return result;
+    }
+
+    /**
+     * Closes the table without attaching it. The rows sent so far are kept
+     * in the file on the server.
+     */
+    public void abort() {
+        failed = true;
+        closeTable();
+    }
+
+    /**
+     * Closes the table.
+     */
+    private void closeTable() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            table.close();
+        } catch (ServerError e) {
+            fac.logError(this, "Could not close table", e);
+        }
+    }
+
+    /**
+     * Finishes the table if {@link #finish()} has not been called yet, then
+     * closes it. If writing data failed, the table is closed without being
+     * attached.
+     *
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     */
+    @Override
+    public void close() throws DSOutOfServiceException, DSAccessException {
+        if (failed)
+            closeTable();
+        else if (!closed)
+            finish();
+    }
+}
@@ -18,6 +18,7 @@
  */
 package omero.gateway.facility;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -59,6 +60,28 @@ public class TablesFacility extends Facility {
     /** Maximum number of rows to fetch if not specified otherwise */
     public static final int DEFAULT_MAX_ROWS_TO_FETCH = 1000;
 
+    /**
+     * Defines how the objects referenced by image, file, ROI, plate and well
+     * columns are returned when reading a table.
+     *
+     * @since 5.11.1
+     */
+    public enum ReferenceMode {
+        /** The objects are loaded, with one query per column and batch of ids */
+        LOADED,
+        /** Unloaded objects only holding the id are returned */
+        UNLOADED,
+        /**
+         * The ids are returned as {@link Long}s, the columns can still be
+         * written back with
+         * {@link TablesFacility#updateTable(SecurityContext, TableData, boolean)}
+         */
+        ID
+    }
+
+    /** The local cache of tables, <code>null</code> if disabled */
+    private volatile TableCache tableCache;
+
     /**
      * Creates a new instance
      *
@@ -69,6 +92,98 @@ public class TablesFacility extends Facility {
         super(gateway);
     }
 
+    /**
+     * Sets the local cache used when reading ranges of rows of a table. The
+     * tables fetched with {@link #cacheTable(SecurityContext, long)} are
+     * then read from disk as long as the original file has not been
+     * modified, the other tables are read from the server.
+     *
+     * @param tableCache
+     *            The cache, pass <code>null</code> to disable caching (default)
+     * @since 5.11.1
+     */
+    public void setTableCache(TableCache tableCache) {
+        this.tableCache = tableCache;
+    }
+
+    /**
+     * Returns the local cache used when reading ranges of rows of a table.
+     *
+     * @return See above, <code>null</code> if caching is disabled.
+     * @since 5.11.1
+     */
+    public TableCache getTableCache() {
+        return tableCache;
+    }
+
+    /**
+     * Fetches a whole table into the {@link TableCache}, so that the
+     * following reads of ranges of rows of the table are served from disk.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @return <code>true</code> if the table is cached, <code>false</code>
+     *         if no cache is set, or if the table contains mask columns or
+     *         is larger than the cache.
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public boolean cacheTable(SecurityContext ctx, long fileId)
+            throws DSOutOfServiceException, DSAccessException {
+        TableCache cache = tableCache;
+        if (cache == null || fileId < 0)
+            return false;
+
+        TablePrx table = null;
+        try {
+            String version = getVersion(ctx, fileId);
+            if (cache.lookup(fileId, version) != null)
+                return true;
+            table = openTable(ctx, fileId);
+            return cache.store(fileId, version, table) != null;
+        } catch (Exception e) {
+            handleException(this, e, "Could not cache table " + fileId);
+        } finally {
+            if (table != null)
+                try {
+                    table.close();
+                } catch (ServerError e) {
+                    logError(this, "Could not close table", e);
+                }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the version of the original file storing a table, as used to
+     * validate the entries of the {@link TableCache}
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @return See above.
+     * @throws ServerError
+     *             If the file cannot be loaded
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     */
+    private String getVersion(SecurityContext ctx, long fileId)
+            throws ServerError, DSOutOfServiceException {
+        OriginalFile f = (OriginalFile) gateway.getQueryService(ctx).get(
+                OriginalFile.class.getSimpleName(), fileId);
+        return TableCache.version(
+                f.getSize() != null ? f.getSize().getValue() : -1,
+                f.getHash() != null ? f.getHash().getValue() : null,
+                f.getMtime() != null ? f.getMtime().getValue() : -1);
+    }
+
     /**
      * Adds a new table with the provided data
      *
@@ -119,56 +234,195 @@ public class TablesFacility extends Facility {
         if (!Pojos.hasID(target))
             return null;
 
-        TablePrx table = null;
+        TableDataColumn[] columns = data.getColumns();
+        TableDataWriter writer = createTable(ctx, target, name, ns, columns,
+                TableDataWriter.DEFAULT_BATCH_SIZE);
+        try {
+            // the strings of all the batches have to fit into the columns
+            // defined by the first one
+            for (int i = 0; i < columns.length; i++) {
+                Object column = data.getColumn(i);
+                if (!String.class.equals(columns[i].getType())
+                        || !(column instanceof Object[]))
+                    continue;
+                int size = 0;
+                for (Object value : (Object[]) column) {
+                    if (value != null)
+                        size = Math.max(size, ((String) value)
+                                .getBytes(StandardCharsets.UTF_8).length);
+                }
+                writer.setStringSize(i, size);
+            }
+            writer.add(data);
+            TableData info = writer.finish();
+            data.setOriginalFileId(info.getOriginalFileId());
+            data.setNumberOfRows(info.getNumberOfRows());
+        } finally {
+            writer.abort();
+        }
+        return data;
+    }
+
+    /**
+     * Creates a new table and returns a {@link TableDataWriter} to add the
+     * data incrementally. The rows are sent in batches of
+     * <code>batchSize</code> rows; the table is attached to the target when
+     * the writer is finished or closed.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param target
+     *            The object to attach the table to
+     * @param name
+     *            A name for the table (can be <code>null</code>)
+     * @param ns
+     *            An optional namespace for the file annotation
+     * @param columns
+     *            The column definitions
+     * @param batchSize
+     *            The number of rows per batch
+     * @return The {@link TableDataWriter}
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableDataWriter createTable(SecurityContext ctx, DataObject target,
+            String name, String ns, TableDataColumn[] columns, int batchSize)
+            throws DSOutOfServiceException, DSAccessException {
+        if (!Pojos.hasID(target))
+            return null;
+
         try {
             if (name == null)
                 name = UUID.randomUUID().toString();
 
-            TablesFacilityHelper helper = new TablesFacilityHelper(this, ctx);
-            helper.parseTableData(data);
-
-            SharedResourcesPrx sr = gateway.getSharedResources(ctx);
-            if (!sr.areTablesEnabled()) {
-                throw new DSAccessException(
-                        "Tables feature is not enabled on this server!");
-            }
+            SharedResourcesPrx sr = getSharedResources(ctx);
             long repId = sr.repositories().descriptions.get(0).getId()
                     .getValue();
-            table = sr.newTable(repId, name);
-            table.initialize(helper.getGridColumns());
-            table.addData(helper.getGridColumns());
-
-            DataManagerFacility dm = gateway
-                    .getFacility(DataManagerFacility.class);
-            BrowseFacility browse = gateway.getFacility(BrowseFacility.class);
-
-            OriginalFile file = table.getOriginalFile();
-            file = (OriginalFile) browse.findIObject(ctx, file);
-
-            FileAnnotation anno = new FileAnnotationI();
-            anno.setFile(file);
-            FileAnnotationData annotation = new FileAnnotationData(anno);
-            annotation.setDescription(name);
-            if (ns != null && ns.trim().length() > 0)
-                annotation.setNameSpace(ns);
-
-            annotation = (FileAnnotationData) dm.saveAndReturnObject(ctx,
-                    annotation);
-            dm.attachAnnotation(ctx, annotation, target);
-
-            data.setOriginalFileId(file.getId().getValue());
-            data.setNumberOfRows(table.getNumberOfRows());
+            TablePrx table = sr.newTable(repId, name);
+            return new TableDataWriter(this, ctx, table, target, name, ns,
+                    columns, batchSize);
         } catch (Exception e) {
             handleException(this, e, "Could not add table");
+        }
+        return null;
+    }
+
+    /**
+     * Appends rows to an existing table. The data must have the columns of
+     * the table, in the same order; it is sent in batches of
+     * {@link TableAppender#DEFAULT_BATCH_SIZE} rows.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @param data
+     *            The rows to append
+     * @return The number of rows of the table after the append
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to write the data
+     * @since 5.11.1
+     */
+    public long appendRows(SecurityContext ctx, long fileId, TableData data)
+            throws DSOutOfServiceException, DSAccessException {
+        TableAppender appender = openAppender(ctx, fileId,
+                TableAppender.DEFAULT_BATCH_SIZE, 0);
+        try {
+            appender.append(data);
         } finally {
+            appender.close();
+        }
+        return appender.getNumberOfRows();
+    }
+
+    /**
+     * Opens an existing table and returns a {@link TableAppender} buffering
+     * the rows to append. The buffered rows are sent when there are at
+     * least <code>batchSize</code> of them, when they have been buffered
+     * for <code>maxDelay</code> milliseconds, or when the appender is
+     * flushed or closed. The appender has to be closed.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @param batchSize
+     *            The number of rows per batch
+     * @param maxDelay
+     *            The maximum time in milliseconds rows are buffered,
+     *            <code>0</code> to only flush on size and close
+     * @return The {@link TableAppender}
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableAppender openAppender(SecurityContext ctx, long fileId,
+            int batchSize, long maxDelay) throws DSOutOfServiceException,
+            DSAccessException {
+        TablePrx table = null;
+        try {
+            table = openTable(ctx, fileId);
+            return new TableAppender(this, ctx, fileId, table, batchSize,
+                    maxDelay);
+        } catch (Exception e) {
             if (table != null)
                 try {
                     table.close();
-                } catch (ServerError e) {
-                    logError(this, "Could not close table", e);
+                } catch (ServerError e2) {
+                    logError(this, "Could not close table", e2);
                 }
+            handleException(this, e, "Could not open table");
         }
-        return data;
+        return null;
+    }
+
+    /**
+     * Creates the file annotation for a new table and attaches it to the
+     * target
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param table
+     *            The table
+     * @param target
+     *            The object to attach the table to
+     * @param name
+     *            The name of the table
+     * @param ns
+     *            An optional namespace for the file annotation
+     * @return The id of the {@link OriginalFile} which stores the table
+     * @throws Exception
+     *             If the annotation can't be created
+     */
+    long attachTable(SecurityContext ctx, TablePrx table, DataObject target,
+            String name, String ns) throws Exception {
+        DataManagerFacility dm = gateway
+                .getFacility(DataManagerFacility.class);
+        BrowseFacility browse = gateway.getFacility(BrowseFacility.class);
+
+        OriginalFile file = table.getOriginalFile();
+        file = (OriginalFile) browse.findIObject(ctx, file);
+
+        FileAnnotation anno = new FileAnnotationI();
+        anno.setFile(file);
+        FileAnnotationData annotation = new FileAnnotationData(anno);
+        annotation.setDescription(name);
+        if (ns != null && ns.trim().length() > 0)
+            annotation.setNameSpace(ns);
+
+        annotation = (FileAnnotationData) dm.saveAndReturnObject(ctx,
+                annotation);
+        dm.attachAnnotation(ctx, annotation, target);
+        return file.getId().getValue();
     }
 
     /**
@@ -212,6 +466,161 @@ public class TablesFacility extends Facility {
         return getTable(ctx, fileId, 0, DEFAULT_MAX_ROWS_TO_FETCH - 1);
     }
 
+    /**
+     * Opens a table
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @return The open table, which has to be closed by the caller
+     * @throws DSAccessException
+     *             If the tables feature is not enabled on the server
+     * @throws ServerError
+     *             If the table cannot be opened
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     */
+    private TablePrx openTable(SecurityContext ctx, long fileId)
+            throws DSAccessException, ServerError, DSOutOfServiceException {
+        return getSharedResources(ctx).openTable(
+                new OriginalFileI(fileId, false));
+    }
+
+    /**
+     * Get the {@link SharedResourcesPrx}, checking that tables are enabled
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @return See above
+     * @throws DSAccessException
+     *             If the tables feature is not enabled on the server
+     * @throws ServerError
+     *             If the server can't be reached
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     */
+    private SharedResourcesPrx getSharedResources(SecurityContext ctx)
+            throws DSAccessException, ServerError, DSOutOfServiceException {
+        SharedResourcesPrx sr = gateway.getSharedResources(ctx);
+        if (!sr.areTablesEnabled()) {
+            throw new DSAccessException(
+                    "Tables feature is not enabled on this server!");
+        }
+        return sr;
+    }
+
+    /**
+     * Reads a range of rows of a table in batches of
+     * {@link TableDataStream#DEFAULT_BATCH_SIZE} rows, see
+     * {@link #streamTable(SecurityContext, long, long, long, int, long...)}
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @return The {@link TableDataStream}, which has to be closed
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableDataStream streamTable(SecurityContext ctx, long fileId)
+            throws DSOutOfServiceException, DSAccessException {
+        return streamTable(ctx, fileId, 0, -1,
+                TableDataStream.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Reads a range of rows of a table in batches. The table is kept open
+     * until the returned stream is closed and the next batch is fetched while
+     * the current one is processed, so that arbitrarily large tables can be
+     * scanned in constant memory.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @param rowFrom
+     *            The start row (inclusive)
+     * @param rowTo
+     *            The end row (inclusive) (can be <code>-1</code> to read up
+     *            to the last row)
+     * @param batchSize
+     *            The number of rows per batch
+     * @param columns
+     *            The columns to take into account (can be left unspecified, in
+     *            which case all columns will used)
+     * @return The {@link TableDataStream}, which has to be closed
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableDataStream streamTable(SecurityContext ctx, long fileId,
+            long rowFrom, long rowTo, int batchSize, long... columns)
+            throws DSOutOfServiceException, DSAccessException {
+        return streamTable(ctx, fileId, ReferenceMode.LOADED, rowFrom, rowTo,
+                batchSize, columns);
+    }
+
+    /**
+     * Reads a range of rows of a table in batches, see
+     * {@link #streamTable(SecurityContext, long, long, long, int, long...)}
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @param mode
+     *            How the objects referenced by image, file, ROI, plate and
+     *            well columns are returned
+     * @param rowFrom
+     *            The start row (inclusive)
+     * @param rowTo
+     *            The end row (inclusive) (can be <code>-1</code> to read up
+     *            to the last row)
+     * @param batchSize
+     *            The number of rows per batch
+     * @param columns
+     *            The columns to take into account (can be left unspecified, in
+     *            which case all columns will used)
+     * @return The {@link TableDataStream}, which has to be closed
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableDataStream streamTable(SecurityContext ctx, long fileId,
+            ReferenceMode mode, long rowFrom, long rowTo, int batchSize,
+            long... columns) throws DSOutOfServiceException,
+            DSAccessException {
+        if (fileId < 0)
+            return null;
+
+        TablePrx table = null;
+        try {
+            table = openTable(ctx, fileId);
+            return new TableDataStream(this, ctx, mode, table, fileId,
+                    columns, rowFrom, rowTo < 0 ? -1 : rowTo + 1, batchSize);
+        } catch (Exception e) {
+            if (table != null)
+                try {
+                    table.close();
+                } catch (ServerError e2) {
+                    logError(this, "Could not close table", e2);
+                }
+            handleException(this, e, "Could not load table data");
+        }
+        return null;
+    }
+
     /**
      * Load data from a table
      *
@@ -338,6 +747,58 @@ public class TablesFacility extends Facility {
         return new long[0];
     }
 
+    /**
+     * Queries a table and reads the matching rows in batches, keeping the
+     * table open in between. Only the requested columns are transferred; the
+     * next batch is fetched while the current one is processed.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @param condition
+     *            The query string
+     * @param columns
+     *            The columns to take into account (can be <code>null</code>,
+     *            in which case all columns will used)
+     * @param batchSize
+     *            The number of rows per batch
+     * @return The {@link TableDataStream}, which has to be closed; the offset
+     *         and the number of rows of the batches refer to the list of
+     *         matching rows, the matching rows of the table are given by
+     *         {@link TableData#getRowNumbers()}
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableDataStream queryAndRead(SecurityContext ctx, long fileId,
+            String condition, long[] columns, int batchSize)
+            throws DSOutOfServiceException, DSAccessException {
+        if (fileId < 0)
+            return null;
+
+        TablePrx table = null;
+        try {
+            table = openTable(ctx, fileId);
+            long[] rows = table.getWhereList(condition, null, 0,
+                    table.getNumberOfRows(), 0);
+            return new TableDataStream(this, ctx, ReferenceMode.LOADED,
+                    table, fileId, columns, rows, batchSize);
+        } catch (Exception e) {
+            if (table != null)
+                try {
+                    table.close();
+                } catch (ServerError e2) {
+                    logError(this, "Could not close table", e2);
+                }
+            handleException(this, e, "Could not load table data");
+        }
+        return null;
+    }
+
     /**
      * Load data from a table
      *
@@ -407,8 +868,9 @@ public class TablesFacility extends Facility {
             TablesFacilityHelper helper = new TablesFacilityHelper(this, ctx);
             helper.parseData(data, header);
 
-            TableData result = new TableData(header, helper.getDataArray());
+            TableData result = TableData.fromColumns(header, helper.getDataArray());
             result.setOriginalFileId(fileId);
+            result.setRowNumbers(rows.clone());
             result.setNumberOfRows(helper.getNRows());
             return result;
 
@@ -451,21 +913,60 @@ public class TablesFacility extends Facility {
     public TableData getTable(SecurityContext ctx, long fileId, long rowFrom,
             long rowTo, long... columns) throws DSOutOfServiceException,
             DSAccessException {
+        return getTable(ctx, fileId, ReferenceMode.LOADED, rowFrom, rowTo,
+                columns);
+    }
+
+    /**
+     * Load data from a table
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param fileId
+     *            The id of the {@link OriginalFile} which stores the table
+     * @param mode
+     *            How the objects referenced by image, file, ROI, plate and
+     *            well columns are returned
+     * @param rowFrom
+     *            The start row (inclusive)
+     * @param rowTo
+     *            The end row (inclusive) (can be <code>-1</code> in which case
+     *            {@link TablesFacility#DEFAULT_MAX_ROWS_TO_FETCH} rows will be
+     *            fetched)
+     * @param columns
+     *            The columns to take into account (can be left unspecified, in
+     *            which case all columns will used)
+     * @return The specified data
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public TableData getTable(SecurityContext ctx, long fileId,
+            ReferenceMode mode, long rowFrom, long rowTo, long... columns)
+            throws DSOutOfServiceException, DSAccessException {
         if (fileId < 0)
             return null;
 
         TablePrx table = null;
         try {
-            OriginalFile file = new OriginalFileI(fileId, false);
-            SharedResourcesPrx sr = gateway.getSharedResources(ctx);
-            if (!sr.areTablesEnabled()) {
-                throw new DSAccessException(
-                        "Tables feature is not enabled on this server!");
-            }
-
-            table = sr.openTable(file);
+            TableCache cache = tableCache;
+            TableCache.Entry entry = cache != null ? cache.lookup(fileId,
+                    getVersion(ctx, fileId)) : null;
 
-            Column[] cols = table.getHeaders();
+            Column[] cols = null;
+            long nRows = 0;
+            if (entry != null) {
+                cols = entry.getHeaders();
+                nRows = entry.getNumberOfRows();
+            } else {
+                if (table == null)
+                    table = openTable(ctx, fileId);
+                cols = table.getHeaders();
+                nRows = table.getNumberOfRows();
+            }
 
             if (columns == null || columns.length == 0) {
                 columns = new long[cols.length];
@@ -482,13 +983,13 @@ public class TablesFacility extends Facility {
                         Object.class);
             }
 
-            if (table.getNumberOfRows() == 0)
+            if (nRows == 0)
                 return new TableData(header, new Object[columns.length][0]);
 
             if (rowFrom < 0)
                 rowFrom = 0;
 
-            long maxRow = table.getNumberOfRows() - 1;
+            long maxRow = nRows - 1;
 
             if (rowTo < 0)
                 rowTo = rowFrom + DEFAULT_MAX_ROWS_TO_FETCH;
@@ -501,12 +1002,20 @@ public class TablesFacility extends Facility {
 
             TableData result = null;
 
-            Data data = table.read(columns, rowFrom, rowTo + 1);
+            Data data = entry != null ? cache.read(entry, columns, rowFrom,
+                    rowTo + 1) : null;
+            if (data == null) {
+                // not cached or evicted in the meantime
+                if (table == null)
+                    table = openTable(ctx, fileId);
+                data = table.read(columns, rowFrom, rowTo + 1);
+            }
 
-            TablesFacilityHelper helper = new TablesFacilityHelper(this, ctx);
+            TablesFacilityHelper helper = new TablesFacilityHelper(this, ctx,
+                    mode);
             helper.parseData(data, header);
 
-            result = new TableData(header, helper.getDataArray());
+            result = TableData.fromColumns(header, helper.getDataArray());
             result.setOffset(rowFrom);
             result.setOriginalFileId(fileId);
             result.setNumberOfRows(maxRow + 1);
@@ -584,37 +1093,112 @@ public class TablesFacility extends Facility {
      *             If an error occurred while trying to retrieve data from OMERO
      *             service.
      *
-     * @deprecated This method is not reliable and might be removed/replaced in future.
+     * @deprecated Use {@link #updateTable(SecurityContext, TableData, boolean)}
      */
     @Deprecated
     public void updateTable(SecurityContext ctx, TableData data)
             throws DSOutOfServiceException, DSAccessException {
+        updateTable(ctx, data, true);
+    }
+
+    /**
+     * Saves the (modified) {@link TableData} back to the server. Only the
+     * columns of the {@link TableData} are written, to its
+     * {@link TableData#getRowNumbers() rows} if set, starting at its offset
+     * otherwise; the other columns of the table are left untouched.
+     * Note:
+     * - Addition/Removal of columns/rows is not supported, only modification of
+     *   the values.
+     * - The size of Double/Float/Long arrays can't be changed!
+     * - The {@link Long} columns of a table read with {@link ReferenceMode#ID}
+     *   are written as ids to the image, file, ROI, plate and well columns.
+     * - The strings can't be longer than the size of the string columns.
+     *
+     * @param ctx
+     *            The {@link SecurityContext}
+     * @param data
+     *            The {@link TableData} to save
+     * @param onlyChanged
+     *            Pass <code>true</code> to read the current values back, one
+     *            column at a time, and only write the rows which have been
+     *            modified; <code>false</code> to write the complete column
+     *            chunks without reading the table.
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public void updateTable(SecurityContext ctx, TableData data,
+            boolean onlyChanged) throws DSOutOfServiceException,
+            DSAccessException {
         TablePrx table = null;
         try {
             if (data.getOriginalFileId() < 0)
                 throw new IllegalArgumentException(
                         "This TableData object is not associated with a table yet, use addTable method instead.");
 
-            OriginalFile file = new OriginalFileI(data.getOriginalFileId(),
-                    false);
-            SharedResourcesPrx sr = gateway.getSharedResources(ctx);
-            if (!sr.areTablesEnabled()) {
-                throw new DSAccessException(
-                        "Tables feature is not enabled on this server!");
-            }
+            table = openTable(ctx, data.getOriginalFileId());
+            Column[] headers = table.getHeaders();
 
-            table = sr.openTable(file);
+            TablesFacilityHelper helper = new TablesFacilityHelper(this, ctx);
+            helper.parseTableData(data);
+            Column[] columns = helper.getGridColumns();
+            if (columns.length == 0)
+                return;
 
-            long[] colIndex = new long[data.getColumns().length];
-            for (int i = 0; i < data.getColumns().length; i++)
+            long[] colIndex = new long[columns.length];
+            for (int i = 0; i < columns.length; i++) {
                 colIndex[i] = data.getColumns()[i].getIndex();
+                columns[i] = TablesFacilityHelper.checkColumn(
+                        headers[(int) colIndex[i]], columns[i]);
+            }
+
+            int nRows = TablesFacilityHelper.getRowCount(columns[0]);
+            long[] rowNumbers = data.getRowNumbers();
+            if (rowNumbers == null) {
+                rowNumbers = new long[nRows];
+                for (int i = 0; i < nRows; i++)
+                    rowNumbers[i] = data.getOffset() + i;
+            } else if (rowNumbers.length != nRows)
+                throw new IllegalArgumentException("Expected "
+                        + rowNumbers.length + " rows but got " + nRows);
 
-            Data toUpdate = table.read(colIndex, data.getOffset(),
-                    data.getOffset() + data.getData()[0].length);
+            if (!onlyChanged) {
+                Data toUpdate = new Data();
+                toUpdate.rowNumbers = rowNumbers;
+                toUpdate.columns = columns;
+                table.update(toUpdate);
+            } else {
+                for (int i = 0; i < columns.length; i++) {
+                    long[] col = new long[] { colIndex[i] };
+                    Data current = data.getRowNumbers() != null ? table
+                            .slice(col, rowNumbers) : table.read(col,
+                            data.getOffset(), data.getOffset() + nRows);
+                    int[] changed = TablesFacilityHelper.changedRows(
+                            current.columns[0], columns[i]);
+                    if (changed.length == 0)
+                        continue;
 
-            TablesFacilityHelper.updateData(toUpdate, data);
+                    Data toUpdate = new Data();
+                    if (changed.length == nRows) {
+                        toUpdate.rowNumbers = rowNumbers;
+                        toUpdate.columns = new Column[] { columns[i] };
+                    } else {
+                        toUpdate.rowNumbers = new long[changed.length];
+                        for (int j = 0; j < changed.length; j++)
+                            toUpdate.rowNumbers[j] = rowNumbers[changed[j]];
+                        toUpdate.columns = new Column[] { TablesFacilityHelper
+                                .subset(columns[i], changed) };
+                    }
+                    table.update(toUpdate);
+                }
+            }
 
-            table.update(toUpdate);
+            TableCache cache = tableCache;
+            if (cache != null)
+                cache.invalidate(data.getOriginalFileId());
         } catch (Exception e) {
             handleException(this, e, "Could not udpate table");
         } finally {
@@ -19,6 +19,8 @@
 package omero.gateway.facility;
 
 import omero.IllegalArgumentException;
+import omero.api.IQueryPrx;
+import omero.gateway.facility.TablesFacility.ReferenceMode;
 import omero.gateway.SecurityContext;
 import omero.gateway.model.DatasetData;
 import omero.gateway.model.FileAnnotationData;
@@ -47,6 +49,7 @@ import omero.grid.StringColumn;
 import omero.grid.WellColumn;
 import omero.model.FileAnnotation;
 import omero.model.FileAnnotationI;
+import omero.model.IObject;
 import omero.model.Image;
 import omero.model.ImageI;
 import omero.model.OriginalFile;
@@ -55,10 +58,20 @@ import omero.model.Plate;
 import omero.model.PlateI;
 import omero.model.Roi;
 import omero.model.RoiI;
+import omero.model.Well;
 import omero.model.WellI;
+import omero.sys.ParametersI;
 
+import java.lang.reflect.Array;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutionException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * Helper class which deals with the various conversions from omero.grid objects
@@ -69,8 +82,14 @@ import java.util.concurrent.ExecutionException;
  */
 public class TablesFacilityHelper {
 
-    /** The data array (after parsing omero.grid.Data) */
-    private Object[][] dataArray;
+    /** The maximum number of ids per query when loading referenced objects */
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    /**
+     * The data array (after parsing omero.grid.Data), one array per column,
+     * primitive for boolean, double, long and numeric array columns
+     */
+    private Object[] dataArray;
 
     /** The number of columns */
     private int nCols;
@@ -87,13 +106,29 @@ public class TablesFacilityHelper {
     /** Reference to the current SecurityContext */
     private SecurityContext ctx;
 
+    /** How the referenced objects are returned by {@link #parseData} */
+    private ReferenceMode mode;
+
     /**
      * Create a new instance
      * @param fac Reference to the TablesFacility
      */
     TablesFacilityHelper(TablesFacility fac, SecurityContext ctx) {
+        this(fac, ctx, ReferenceMode.LOADED);
+    }
+
+    /**
+     * Create a new instance
+     * @param fac Reference to the TablesFacility
+     * @param ctx The SecurityContext
+     * @param mode How the referenced objects are returned by
+     *             {@link #parseData}
+     */
+    TablesFacilityHelper(TablesFacility fac, SecurityContext ctx,
+            ReferenceMode mode) {
         this.fac = fac;
         this.ctx = ctx;
+        this.mode = mode != null ? mode : ReferenceMode.LOADED;
     }
 
     /**
@@ -114,10 +149,15 @@ public class TablesFacilityHelper {
         for (int i = 0; i < data.getColumns().length; i++) {
             String cname = columns.length > i ? columns[i].getName() : "";
             String desc = columns.length > i ? columns[i].getDescription() : "";
-            Object[] d = data.getData().length > i ? data.getData()[i]
-                    : new Object[0];
-            gridColumns[i] = createColumn(cname, desc,
-                    data.getColumns()[i].getType(), d);
+            Object column = data.getColumn(i);
+            Column c = createColumn(cname, desc, column);
+            if (c == null) {
+                // only the columns not backed by primitive arrays are boxed
+                Object[] d = column instanceof Object[] ? (Object[]) column
+                        : new Object[0];
+                c = createColumn(cname, desc, data.getColumns()[i].getType(), d);
+            }
+            gridColumns[i] = c;
         }
     }
 
@@ -143,102 +183,61 @@ public class TablesFacilityHelper {
         nCols = data.columns.length;
         nRows = data.rowNumbers.length;
 
-        dataArray = new Object[nCols][nRows];
-
-        BrowseFacility b = null;
-        ROIFacility r = null;
-        try {
-            b = fac.gateway.getFacility(BrowseFacility.class);
-            r = fac.gateway.getFacility(ROIFacility.class);
-        } catch (ExecutionException e) {
-            fac.logWarn(this,
-                    "Can't get references to Facilities. Objects might be unloaded.", e);
-        }
+        dataArray = new Object[nCols];
 
         for (int i = 0; i < data.columns.length; i++) {
             Column col = data.columns[i];
             if (col instanceof BoolColumn) {
-                Boolean[] rowData = new Boolean[nRows];
-                boolean tableData[] = ((BoolColumn) col).values;
-                for (int j = 0; j < nRows; j++)
-                    rowData[j] = tableData[j];
-                dataArray[i] = rowData;
+                dataArray[i] = ((BoolColumn) col).values;
                 header[i].setType(Boolean.class);
             }
             if (col instanceof DoubleArrayColumn) {
-                Double[][] rowData = new Double[nRows][];
-                double tableData[][] = ((DoubleArrayColumn) col).values;
-                for (int j = 0; j < nRows; j++) {
-                    Double[] tmp = new Double[tableData[j].length];
-                    for (int k = 0; k < tableData[j].length; k++) {
-                        tmp[k] = tableData[j][k];
-                    }
-                    rowData[j] = tmp;
-                }
-                dataArray[i] = rowData;
+                dataArray[i] = ((DoubleArrayColumn) col).values;
                 header[i].setType(Double[].class);
             }
             if (col instanceof DoubleColumn) {
-                Double[] rowData = new Double[nRows];
-                double tableData[] = ((DoubleColumn) col).values;
-                for (int j = 0; j < nRows; j++)
-                    rowData[j] = tableData[j];
-                dataArray[i] = rowData;
+                dataArray[i] = ((DoubleColumn) col).values;
                 header[i].setType(Double.class);
             }
             if (col instanceof FileColumn) {
+                long tableData[] = ((FileColumn) col).values;
+                if (mode == ReferenceMode.ID) {
+                    setIds(i, tableData, header);
+                    continue;
+                }
                 FileAnnotationData[] rowData = new FileAnnotationData[nRows];
                 // TODO: FileAnnotationData needs to be replaced with OriginalFile in future!
                 //OriginalFile[] rowData = new OriginalFile[nRows];
-                long tableData[] = ((FileColumn) col).values;
+                Map<Long, IObject> loaded = loadObjects(mode, "OriginalFile",
+                        "", tableData);
                 for (int j = 0; j < nRows; j++) {
                     FileAnnotation fa = new FileAnnotationI();
-                    fa.setFile(new OriginalFileI(tableData[j], false));
+                    OriginalFile tmp = (OriginalFile) loaded.get(tableData[j]);
+                    fa.setFile(tmp != null ? tmp : new OriginalFileI(
+                            tableData[j], false));
                     rowData[j] = new FileAnnotationData(fa);
-                    //rowData[j] = new OriginalFileI(tableData[j], false);
-                    if (b != null) {
-                        try {
-                            fa = new FileAnnotationI();
-                            OriginalFile tmp = new OriginalFileI(tableData[j], false);
-                            tmp = (OriginalFile) b.findIObject(ctx, tmp);
-                            fa.setFile(tmp);
-                            rowData[j] = new FileAnnotationData(fa);
-                            //rowData[j] = (OriginalFile) b.findIObject(ctx, new OriginalFileI(tableData[j], false));
-                        } catch (Exception e) {
-                            fac.logWarn(this,"Can't load object.", e);
-                        }
-                    }
                 }
                 dataArray[i] = rowData;
                 header[i].setType(FileAnnotationData.class);
                 //header[i].setType(OriginalFile.class);
             }
             if (col instanceof FloatArrayColumn) {
-                Float[][] rowData = new Float[nRows][];
-                float tableData[][] = ((FloatArrayColumn) col).values;
-                for (int j = 0; j < nRows; j++) {
-                    Float[] tmp = new Float[tableData[j].length];
-                    for (int k = 0; k < tableData[j].length; k++) {
-                        tmp[k] = tableData[j][k];
-                    }
-                    rowData[j] = tmp;
-                }
-                dataArray[i] = rowData;
+                dataArray[i] = ((FloatArrayColumn) col).values;
                 header[i].setType(Float[].class);
             }
             if (col instanceof ImageColumn) {
-                ImageData[] rowData = new ImageData[nRows];
                 long tableData[] = ((ImageColumn) col).values;
+                if (mode == ReferenceMode.ID) {
+                    setIds(i, tableData, header);
+                    continue;
+                }
+                ImageData[] rowData = new ImageData[nRows];
+                Map<Long, IObject> loaded = loadObjects(mode, "Image", "",
+                        tableData);
                 for (int j = 0; j < nRows; j++) {
-                    Image im = new ImageI(tableData[j], false);
-                    rowData[j] = new ImageData(im);
-                    if (b != null) {
-                        try {
-                            rowData[j] = new ImageData((Image) b.findIObject(ctx, im));
-                        } catch (Exception e) {
-                            fac.logWarn(this,"Can't load object.", e);
-                        }
-                    }
+                    Image im = (Image) loaded.get(tableData[j]);
+                    rowData[j] = new ImageData(im != null ? im : new ImageI(
+                            tableData[j], false));
                 }
                 dataArray[i] = rowData;
                 header[i].setType(ImageData.class);
@@ -263,31 +262,21 @@ public class TablesFacilityHelper {
 //            }
             if (col instanceof DatasetColumn) {
                 fac.logWarn(this,"DatasetColumn not supported yet.", null);
+                dataArray[i] = new Object[nRows];
             }
             if (col instanceof LongArrayColumn) {
-                Long[][] rowData = new Long[nRows][];
-                long tableData[][] = ((LongArrayColumn) col).values;
-                for (int j = 0; j < nRows; j++) {
-                    Long[] tmp = new Long[tableData[j].length];
-                    for (int k = 0; k < tableData[j].length; k++) {
-                        tmp[k] = tableData[j][k];
-                    }
-                    rowData[j] = tmp;
-                }
-                dataArray[i] = rowData;
+                dataArray[i] = ((LongArrayColumn) col).values;
                 header[i].setType(Long[].class);
             }
             if (col instanceof LongColumn) {
-                Long[] rowData = new Long[nRows];
-                long tableData[] = ((LongColumn) col).values;
-                for (int j = 0; j < nRows; j++)
-                    rowData[j] = tableData[j];
-                dataArray[i] = rowData;
+                dataArray[i] = ((LongColumn) col).values;
                 header[i].setType(Long.class);
             }
             if (col instanceof MaskColumn) {
                 MaskColumn mc = ((MaskColumn) col);
                 MaskData[] rowData = new MaskData[nRows];
+                Map<Long, IObject> loaded = loadObjects(mode, "Image", "",
+                        mc.imageId);
                 for (int j = 0; j < nRows; j++) {
                     double x = j < mc.x.length ? mc.x[j] : -1;
                     double y = j < mc.y.length ? mc.y[j] : -1;
@@ -299,13 +288,10 @@ public class TablesFacilityHelper {
                         md.setZ(mc.theZ[j]);
                     if (j < mc.theT.length)
                         md.setT(mc.theT[j]);
-                    if ( b != null && j < mc.imageId.length && mc.imageId[j] >= 0) {
-                        try {
-                            md.setImage(new ImageData((Image) b.findIObject(ctx,
-                                    new ImageI(mc.imageId[j], false))));
-                        } catch (Exception e) {
-                            fac.logWarn(this,"Can't load object.", e);
-                        }
+                    if (j < mc.imageId.length && mc.imageId[j] >= 0) {
+                        Image im = (Image) loaded.get(mc.imageId[j]);
+                        md.setImage(new ImageData(im != null ? im : new ImageI(
+                                mc.imageId[j], false)));
                     }
                     rowData[j] = md;
                 }
@@ -313,35 +299,35 @@ public class TablesFacilityHelper {
                 header[i].setType(MaskData.class);
             }
             if (col instanceof PlateColumn) {
-                PlateData[] rowData = new PlateData[nRows];
                 long tableData[] = ((PlateColumn) col).values;
+                if (mode == ReferenceMode.ID) {
+                    setIds(i, tableData, header);
+                    continue;
+                }
+                PlateData[] rowData = new PlateData[nRows];
+                Map<Long, IObject> loaded = loadObjects(mode, "Plate", "",
+                        tableData);
                 for (int j = 0; j < nRows; j++) {
-                    Plate p = new PlateI(tableData[j], false);
-                    rowData[j] = new PlateData(p);
-                    if (b != null) {
-                        try {
-                            rowData[j] = new PlateData((Plate) b.findIObject(ctx, p));
-                        } catch (Exception e) {
-                            fac.logWarn(this,"Can't load object.", e);
-                        }
-                    }
+                    Plate p = (Plate) loaded.get(tableData[j]);
+                    rowData[j] = new PlateData(p != null ? p : new PlateI(
+                            tableData[j], false));
                 }
                 dataArray[i] = rowData;
                 header[i].setType(PlateData.class);
             }
             if (col instanceof RoiColumn) {
-                ROIData[] rowData = new ROIData[nRows];
                 long tableData[] = ((RoiColumn) col).values;
+                if (mode == ReferenceMode.ID) {
+                    setIds(i, tableData, header);
+                    continue;
+                }
+                ROIData[] rowData = new ROIData[nRows];
+                Map<Long, IObject> loaded = loadObjects(mode, "Roi",
+                        "left outer join fetch x.shapes", tableData);
                 for (int j = 0; j < nRows; j++) {
-                    Roi p = new RoiI(tableData[j], false);
-                    rowData[j] = new ROIData(p);
-                    if (r != null) {
-                        try {
-                            rowData[j] = r.loadROI(ctx, tableData[j]).getROIs().iterator().next();
-                        } catch (Exception e) {
-                            fac.logWarn(this,"Can't load object.", e);
-                        }
-                    }
+                    Roi p = (Roi) loaded.get(tableData[j]);
+                    rowData[j] = new ROIData(p != null ? p : new RoiI(
+                            tableData[j], false));
                 }
                 dataArray[i] = rowData;
                 header[i].setType(ROIData.class);
@@ -351,18 +337,18 @@ public class TablesFacilityHelper {
                 header[i].setType(String.class);
             }
             if (col instanceof WellColumn) {
-                WellData[] rowData = new WellData[nRows];
                 long tableData[] = ((WellColumn) col).values;
+                if (mode == ReferenceMode.ID) {
+                    setIds(i, tableData, header);
+                    continue;
+                }
+                WellData[] rowData = new WellData[nRows];
+                Map<Long, IObject> loaded = loadObjects(mode, "Well", "",
+                        tableData);
                 for (int j = 0; j < nRows; j++) {
-                    WellI p = new WellI(tableData[j], false);
-                    rowData[j] = new WellData(p);
-                    if (b != null) {
-                        try {
-                            rowData[j] = new WellData((WellI) b.findIObject(ctx, p));
-                        } catch (Exception e) {
-                            fac.logWarn(this,"Can't load object.", e);
-                        }
-                    }
+                    Well p = (Well) loaded.get(tableData[j]);
+                    rowData[j] = new WellData(p != null ? p : new WellI(
+                            tableData[j], false));
                 }
                 dataArray[i] = rowData;
                 header[i].setType(WellData.class);
@@ -370,6 +356,109 @@ public class TablesFacilityHelper {
         }
     }
 
+    /**
+     * Stores the ids of a column referencing other objects as {@link Long}s
+     * 
+     * @param index
+     *            The index of the column
+     * @param ids
+     *            The ids
+     * @param header
+     *            The header (which will be updated with the column type)
+     */
+    private void setIds(int index, long[] ids, TableDataColumn[] header) {
+        dataArray[index] = ids;
+        header[index].setType(Long.class);
+    }
+
+    /**
+     * Loads the objects with the given ids, with one query per
+     * {@link #LOAD_BATCH_SIZE} distinct ids. Negative ids are ignored.
+     * Objects which can't be loaded are missing from the returned map, so
+     * that the caller falls back to unloaded objects.
+     * 
+     * @param mode
+     *            Nothing is loaded unless this is {@link ReferenceMode#LOADED}
+     * @param type
+     *            The model type, e.g. <code>Image</code>
+     * @param fetch
+     *            Additional joins (can be empty)
+     * @param ids
+     *            The ids, may contain duplicates
+     * @return The loaded objects by id
+     */
+    private Map<Long, IObject> loadObjects(ReferenceMode mode, String type,
+            String fetch, long[] ids) {
+        Map<Long, IObject> result = new HashMap<Long, IObject>();
+        if (mode != ReferenceMode.LOADED || ids == null)
+            return result;
+
+        Set<Long> distinct = new LinkedHashSet<Long>();
+        for (long id : ids) {
+            if (id >= 0)
+                distinct.add(id);
+        }
+        if (distinct.isEmpty())
+            return result;
+
+        String query = "select distinct x from " + type + " as x " + fetch
+                + " where x.id in (:ids)";
+        try {
+            IQueryPrx qs = fac.gateway.getQueryService(ctx);
+            List<Long> all = new ArrayList<Long>(distinct);
+            for (int k = 0; k < all.size(); k += LOAD_BATCH_SIZE) {
+                ParametersI params = new ParametersI();
+                params.addIds(all.subList(k,
+                        Math.min(k + LOAD_BATCH_SIZE, all.size())));
+                for (IObject o : qs.findAllByQuery(query, params))
+                    result.put(o.getId().getValue(), o);
+            }
+        } catch (Exception e) {
+            fac.logWarn(this, "Can't load objects. Objects might be unloaded.",
+                    e);
+        }
+        return result;
+    }
+
+    /**
+     * Create a {@link Column} directly from a primitive column array of a
+     * columnar {@link TableData}
+     * 
+     * @param header
+     *            The header (column name)
+     * @param description
+     *            Description
+     * @param data
+     *            The column array
+     * @return The {@link Column} or <code>null</code> if the array is not
+     *         primitive
+     */
+    private Column createColumn(String header, String description,
+            Object data) {
+        if (data instanceof boolean[])
+            return new BoolColumn(header, description, (boolean[]) data);
+        if (data instanceof double[])
+            return new DoubleColumn(header, description, (double[]) data);
+        if (data instanceof long[])
+            return new LongColumn(header, description, (long[]) data);
+        if (data instanceof double[][]) {
+            double[][] d = (double[][]) data;
+            int l = d.length > 0 ? d[d.length - 1].length : 0;
+            return new DoubleArrayColumn(header, description, l, d);
+        }
+        if (data instanceof float[][]) {
+            float[][] d = (float[][]) data;
+            int l = d.length > 0 ? d[d.length - 1].length : 0;
+            return new FloatArrayColumn(header, description, l, d);
+        }
+        if (data instanceof long[][]) {
+            long[][] d = (long[][]) data;
+            int l = d.length > 0 ? d[d.length - 1].length : 0;
+            return new LongArrayColumn(header, description, l, d);
+        }
+        return null;
+    }
+
     /**
      * Create a {@link Column} with the specified data
      * 
@@ -584,7 +673,7 @@ public class TablesFacilityHelper {
      * 
      * @return See above
      */
-    Object[][] getDataArray() {
+    Object[] getDataArray() {
         return dataArray;
     }
 
@@ -599,203 +688,202 @@ public class TablesFacilityHelper {
     }
 
     /**
-     * Update omero.grid.Data with the provided {@link TableData} data.
-     * Note:
-     * - Size and data types must match!
-     * - Size of Double/Float/Long arrays can't be changed!
+     * Returns the values of a column, <code>null</code> for the columns
+     * without a single <code>values</code> array (mask columns)
      * 
-     * @param toUpdate
-     *            The omero.grid.Data object to update
-     * @param data
+     * @param col
+     *            The column
+     * @return See above
+     */
+    private static Object values(Column col) {
+        try {
+            return col.getClass().getField("values").get(col);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of rows of a column
+     * 
+     * @param col
+     *            The column
+     * @return See above
+     */
+    static int getRowCount(Column col) {
+        if (col instanceof MaskColumn)
+            return ((MaskColumn) col).imageId.length;
+        Object values = values(col);
+        return values != null ? Array.getLength(values) : 0;
+    }
+
+    /**
+     * Checks that a column created from a {@link TableData} can be used to
+     * update a column of a table, and gives it the name of the table column.
+     * The ids of a {@link Long} column read with {@link ReferenceMode#ID} are
+     * written to the image, file, ROI, plate or well column of the table.
+     * Note: The size of Double/Float/Long arrays can't be changed and the
+     * strings can't be longer than the size of the string column!
+     * 
+     * @param header
+     *            The column of the table
+     * @param update
      *            The new data
+     * @return The column to write
      */
-    static void updateData(Data toUpdate, TableData data) {
-        if (toUpdate.columns.length != data.getData().length)
-            throw new IllegalArgumentException("Column size is different!");
-        if (toUpdate.rowNumbers.length != data.getData()[0].length)
-            throw new IllegalArgumentException("Row size is different!");
-
-        for (int c = 0; c < data.getColumns().length; c++) {
-            Column col = toUpdate.columns[c];
-
-            for (int r = 0; r < data.getData()[0].length; r++) {
-                if (col instanceof BoolColumn) {
-                    if (!data.getColumns()[c].getType().equals(Boolean.class))
-                        throw new IllegalArgumentException(
-                                "Boolean type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((BoolColumn) col).values[r] = (Boolean) data.getData()[c][r];
-                }
-                if (col instanceof DoubleArrayColumn) {
-                    if (!data.getColumns()[c].getType().equals(Double[].class))
-                        throw new IllegalArgumentException(
-                                "Double[] type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    if (((DoubleArrayColumn) col).size != ((Double[]) data
-                            .getData()[c][r]).length)
-                        throw new IllegalArgumentException(
-                                "Can't change the length of the array");
-
-                    Double[] a = (Double[]) data.getData()[c][r];
-                    double[] b = new double[a.length];
-                    for (int i = 0; i < a.length; i++)
-                        b[i] = a[i].doubleValue();
-                    ((DoubleArrayColumn) col).values[r] = b;
-                }
-                if (col instanceof DoubleColumn) {
-                    if (!data.getColumns()[c].getType().equals(Double.class))
-                        throw new IllegalArgumentException(
-                                "Double type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((DoubleColumn) col).values[r] = (Double) data.getData()[c][r];
-                }
-                if (col instanceof FileColumn) {
-                    if (data.getColumns()[c].getType().equals(OriginalFile.class)) {
-                        ((FileColumn) col).values[r] = ((OriginalFile) data
-                                .getData()[c][r]).getId().getValue();
-                    }
-                    else if (data.getColumns()[c].getType().equals(FileAnnotationData.class)) {
-                        ((FileColumn) col).values[r] = ((FileAnnotationData) data
-                                .getData()[c][r]).getFileID();
-                    }
-                    else {
-                        throw new IllegalArgumentException(
-                                "OriginalFile or FileAnnotationData type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                        .getSimpleName() + " !");
-                    }
-                }
-                if (col instanceof FloatArrayColumn) {
-                    if (!data.getColumns()[c].getType().equals(Float[].class))
-                        throw new IllegalArgumentException(
-                                "Float[] type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    if (((FloatArrayColumn) col).size != ((Float[]) data
-                            .getData()[c][r]).length)
-                        throw new IllegalArgumentException(
-                                "Can't change the length of the array");
-
-                    Float[] a = (Float[]) data.getData()[c][r];
-                    float[] b = new float[a.length];
-                    for (int i = 0; i < a.length; i++)
-                        b[i] = a[i].floatValue();
-                    ((FloatArrayColumn) col).values[r] = b;
-                }
-                if (col instanceof ImageColumn) {
-                    if (!data.getColumns()[c].getType().equals(ImageData.class))
-                        throw new IllegalArgumentException(
-                                "ImageData type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((ImageColumn) col).values[r] = ((ImageData) data.getData()[c][r])
-                            .getId();
-                }
-                if (col instanceof LongArrayColumn) {
-                    if (!data.getColumns()[c].getType().equals(Long[].class))
-                        throw new IllegalArgumentException(
-                                "Long[] type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    if (((LongArrayColumn) col).size != ((Long[]) data
-                            .getData()[c][r]).length)
-                        throw new IllegalArgumentException(
-                                "Can't change the length of the array");
-
-                    Long[] a = (Long[]) data.getData()[c][r];
-                    long[] b = new long[a.length];
-                    for (int i = 0; i < a.length; i++)
-                        b[i] = a[i].longValue();
-                    ((LongArrayColumn) col).values[r] = b;
-                }
-                if (col instanceof LongColumn) {
-                    if (!data.getColumns()[c].getType().equals(Long.class))
-                        throw new IllegalArgumentException(
-                                "Long type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((LongColumn) col).values[r] = (Long) data.getData()[c][r];
-                }
-                if (col instanceof MaskColumn) {
-                    if (!data.getColumns()[c].getType().equals(MaskData.class))
-                        throw new IllegalArgumentException(
-                                "MaskData type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    MaskData md = (MaskData) data.getData()[c][r];
-                    ((MaskColumn) col).bytes[r] = md.getMask();
-                    ((MaskColumn) col).x[r] = md.getX();
-                    ((MaskColumn) col).y[r] = md.getY();
-                    ((MaskColumn) col).w[r] = md.getWidth();
-                    ((MaskColumn) col).h[r] = md.getHeight();
-                    ((MaskColumn) col).theZ[r] = md.getZ();
-                    ((MaskColumn) col).theT[r] = md.getT();
-                }
-                if (col instanceof PlateColumn) {
-                    if (!data.getColumns()[c].getType().equals(PlateData.class))
-                        throw new IllegalArgumentException(
-                                "PlateData type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((PlateColumn) col).values[r] = ((PlateData) data.getData()[c][r])
-                            .getId();
-                }
-                if (col instanceof RoiColumn) {
-                    if (!data.getColumns()[c].getType().equals(ROIData.class))
-                        throw new IllegalArgumentException(
-                                "ROIData type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((RoiColumn) col).values[r] = ((ROIData) data.getData()[c][r])
-                            .getId();
-                }
-                if (col instanceof StringColumn) {
-                    if (!data.getColumns()[c].getType().equals(String.class))
-                        throw new IllegalArgumentException(
-                                "String type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((StringColumn) col).values[r] = (String) data.getData()[c][r];
-                }
-                if (col instanceof WellColumn) {
-                    if (!data.getColumns()[c].getType().equals(WellData.class))
-                        throw new IllegalArgumentException(
-                                "WellData type expected for column "
-                                        + c
-                                        + ", but is "
-                                        + data.getColumns()[c].getType()
-                                                .getSimpleName() + " !");
-                    ((WellColumn) col).values[r] = ((WellData) data.getData()[c][r])
-                            .getId();
-                }
+    static Column checkColumn(Column header, Column update) {
+        if (update instanceof LongColumn && isReference(header)) {
+            Column ids = (Column) header.clone();
+            try {
+                ids.getClass().getField("values").set(ids,
+                        ((LongColumn) update).values);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(
+                        "Can't write ids to column " + header.name);
             }
+            return ids;
+        }
+        if (!header.getClass().equals(update.getClass()))
+            throw new IllegalArgumentException(header.getClass()
+                    .getSimpleName() + " expected for column '" + header.name
+                    + "', but is " + update.getClass().getSimpleName() + " !");
+        int size = -1;
+        if (header instanceof DoubleArrayColumn)
+            size = ((DoubleArrayColumn) header).size;
+        else if (header instanceof FloatArrayColumn)
+            size = ((FloatArrayColumn) header).size;
+        else if (header instanceof LongArrayColumn)
+            size = ((LongArrayColumn) header).size;
+        if (size > 0) {
+            for (Object row : (Object[]) values(update))
+                if (Array.getLength(row) != size)
+                    throw new IllegalArgumentException(
+                            "Can't change the length of the array");
+        }
+        long max = header instanceof StringColumn ? ((StringColumn) header).size
+                : -1;
+        if (max > 0) {
+            for (String value : ((StringColumn) update).values)
+                if (value != null && value.getBytes(
+                        StandardCharsets.UTF_8).length > max)
+                    throw new IllegalArgumentException("String '" + value
+                            + "' is longer than " + max
+                            + " bytes, the size of column '" + header.name
+                            + "'");
+            ((StringColumn) update).size = max;
+        }
+        update.name = header.name;
+        return update;
+    }
+
+    /**
+     * Returns <code>true</code> if the column references objects which are
+     * read as ids with {@link ReferenceMode#ID}.
+     * 
+     * @param col
+     *            The column
+     * @return See above
+     */
+    private static boolean isReference(Column col) {
+        return col instanceof FileColumn || col instanceof ImageColumn
+                || col instanceof PlateColumn || col instanceof RoiColumn
+                || col instanceof WellColumn;
+    }
+
+    /**
+     * Returns the indices of the rows of <code>update</code> which differ
+     * from the current values of the table. All the rows are returned if
+     * the columns can't be compared.
+     * 
+     * @param current
+     *            The current values
+     * @param update
+     *            The new values
+     * @return See above
+     */
+    static int[] changedRows(Column current, Column update) {
+        Object a = values(current);
+        Object b = values(update);
+        int n = getRowCount(update);
+        int[] changed = new int[n];
+        int count = 0;
+        boolean comparable = a != null && b != null
+                && a.getClass().equals(b.getClass())
+                && Array.getLength(a) == n;
+        for (int i = 0; i < n; i++) {
+            if (!comparable || !sameValue(a, b, i))
+                changed[count++] = i;
+        }
+        return count == n ? changed : Arrays.copyOf(changed, count);
+    }
+
+    /**
+     * Compares a row of two column arrays of the same type
+     * 
+     * @param a
+     *            The first array
+     * @param b
+     *            The second array
+     * @param i
+     *            The row
+     * @return <code>true</code> if the values are equal
+     */
+    private static boolean sameValue(Object a, Object b, int i) {
+        if (a instanceof long[])
+            return ((long[]) a)[i] == ((long[]) b)[i];
+        if (a instanceof double[])
+            return Double.doubleToLongBits(((double[]) a)[i]) == Double
+                    .doubleToLongBits(((double[]) b)[i]);
+        if (a instanceof boolean[])
+            return ((boolean[]) a)[i] == ((boolean[]) b)[i];
+        return Objects.deepEquals(((Object[]) a)[i], ((Object[]) b)[i]);
+    }
+
+    /**
+     * Creates a copy of a column only holding the specified rows
+     * 
+     * @param col
+     *            The column (not a mask column)
+     * @param rows
+     *            The indices of the rows
+     * @return See above
+     */
+    static Column subset(Column col, int[] rows) {
+        Object values = values(col);
+        Object result;
+        if (values instanceof long[]) {
+            long[] src = (long[]) values;
+            long[] dst = new long[rows.length];
+            for (int i = 0; i < rows.length; i++)
+                dst[i] = src[rows[i]];
+            result = dst;
+        } else if (values instanceof double[]) {
+            double[] src = (double[]) values;
+            double[] dst = new double[rows.length];
+            for (int i = 0; i < rows.length; i++)
+                dst[i] = src[rows[i]];
+            result = dst;
+        } else if (values instanceof boolean[]) {
+            boolean[] src = (boolean[]) values;
+            boolean[] dst = new boolean[rows.length];
+            for (int i = 0; i < rows.length; i++)
+                dst[i] = src[rows[i]];
+            result = dst;
+        } else {
+            Object[] src = (Object[]) values;
+            Object[] dst = (Object[]) Array.newInstance(src.getClass()
+                    .getComponentType(), rows.length);
+            for (int i = 0; i < rows.length; i++)
+                dst[i] = src[rows[i]];
+            result = dst;
+        }
+        Column copy = (Column) col.clone();
+        try {
+            copy.getClass().getField("values").set(copy, result);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException(
+                    "Can't select rows of column " + col.name);
         }
+        return copy;
     }
 }
@@ -28,6 +28,7 @@ import omero.gateway.Gateway;
 import omero.gateway.SecurityContext;
 import omero.gateway.exception.DSAccessException;
 import omero.gateway.exception.DSOutOfServiceException;
+import omero.gateway.model.FileDownloadResult;
 
 /**
  * {@link Facility} which provides data transfer functionality, i.e. download
@@ -70,4 +71,69 @@ public class TransferFacility extends Facility {
         return helper.downloadImage(context, targetPath, imageId);
     }
 
+    /**
+     * Downloads the original files of an image from the server and reports
+     * the outcome for each file. The files are written to <code>.part</code>
+     * files, which are renamed once complete and verified; a download
+     * interrupted earlier is resumed from the length of its
+     * <code>.part</code> file. The checksum of each file is verified against
+     * the one stored on the server while it is written; partial files with
+     * a wrong checksum are deleted. Files already present in the target
+     * directory are never modified, only checked. Files which couldn't be
+     * verified as the server holds no checksum for them are reported as
+     * {@link FileDownloadResult.Status#UNVERIFIED}.
+     *
+     * @param context The security context.
+     * @param targetPath Path to the file.
+     * @param imageId The identifier of the image.
+     * @return See above
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     */
+    public List<FileDownloadResult> downloadImageFiles(SecurityContext context,
+            String targetPath, long imageId) throws DSAccessException,
+            DSOutOfServiceException {
+        return downloadImageFiles(context, targetPath, imageId,
+                TransferFacilityHelper.INC, TransferFacilityHelper.MAX_FILES,
+                TransferFacilityHelper.MAX_READS);
+    }
+
+    /**
+     * Downloads the original files of an image from the server and reports
+     * the outcome for each file, like
+     * {@link #downloadImageFiles(SecurityContext, String, long)}, with the
+     * given transfer settings. The settings only apply to this call.
+     *
+     * @param context The security context.
+     * @param targetPath Path to the file.
+     * @param imageId The identifier of the image.
+     * @param chunkSize The maximum number of bytes requested from the
+     *                  server in a single read (default: 262144).
+     * @param maxFiles The number of files of a fileset downloaded
+     *                 concurrently (default: 4).
+     * @param maxReads The number of outstanding reads per file (default:
+     *                 4).
+     * @return See above
+     * @throws DSOutOfServiceException
+     *             If the connection is broken, or not logged in
+     * @throws DSAccessException
+     *             If an error occurred while trying to retrieve data from OMERO
+     *             service.
+     * @since 5.11.1
+     */
+    public List<FileDownloadResult> downloadImageFiles(SecurityContext context,
+            String targetPath, long imageId, int chunkSize, int maxFiles,
+            int maxReads) throws DSAccessException, DSOutOfServiceException {
+        if (imageId < 0)
+            return Collections.emptyList();
+        List<FileDownloadResult> results = helper.downloadFiles(context,
+                targetPath, imageId, chunkSize, maxFiles, maxReads);
+        if (results == null)
+            return Collections.emptyList();
+        return results;
+    }
+
 }
@@ -20,12 +20,19 @@
 package omero.gateway.facility;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import omero.RType;
 import omero.api.IQueryPrx;
@@ -34,14 +41,25 @@ import omero.gateway.Gateway;
 import omero.gateway.SecurityContext;
 import omero.gateway.exception.DSAccessException;
 import omero.gateway.exception.DSOutOfServiceException;
+import omero.gateway.model.FileDownloadResult;
+import omero.gateway.model.FileDownloadResult.Status;
 import omero.gateway.model.ImageData;
 import omero.model.Fileset;
 import omero.model.FilesetEntry;
 import omero.model.OriginalFile;
+import omero.model.enums.ChecksumAlgorithmAdler32;
+import omero.model.enums.ChecksumAlgorithmCRC32;
+import omero.model.enums.ChecksumAlgorithmMD5128;
+import omero.model.enums.ChecksumAlgorithmMurmur3128;
+import omero.model.enums.ChecksumAlgorithmMurmur332;
+import omero.model.enums.ChecksumAlgorithmSHA1160;
 import omero.sys.ParametersI;
 
 import org.apache.commons.collections.CollectionUtils;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
 /**
  * Encapsulates some functionality needed by the {@link TransferFacility}
  * 
@@ -50,8 +68,17 @@ import org.apache.commons.collections.CollectionUtils;
  */
 public class TransferFacilityHelper {
 
-    /** Maximum size of bytes read at once. */
-    private static final int INC = 262144;//
+    /** Default maximum size of bytes read at once. */
+    static final int INC = 262144;//
+
+    /** Default number of files downloaded concurrently. */
+    static final int MAX_FILES = 4;
+
+    /** Default number of outstanding reads per file. */
+    static final int MAX_READS = 4;
+
+    /** The suffix of the files being downloaded. */
+    private static final String PART_SUFFIX = ".part";
 
     private BrowseFacility browse;
 
@@ -84,7 +111,49 @@ public class TransferFacilityHelper {
      */
     List<File> downloadImage(SecurityContext context, String targetPath,
             long imageId) throws DSAccessException, DSOutOfServiceException {
-        List<File> files = new ArrayList<File>();
+        List<FileDownloadResult> results = downloadFiles(context, targetPath,
+                imageId, INC, MAX_FILES, MAX_READS);
+        if (results == null)
+            return null;
+        List<File> downloaded = new ArrayList<File>();
+        for (FileDownloadResult r : results) {
+            if (r.isComplete())
+                downloaded.add(r.getFile());
+        }
+        return downloaded;
+    }
+
+    /**
+     * Downloads the original files of an image from the server, resuming
+     * partial files and verifying the checksums.
+     *
+     * @param context
+     *            The security context.
+     * @param targetPath
+     *            Path to the file.
+     * @param imageId
+     *            The identifier of the image.
+     * @param chunkSize
+     *            The maximum size of bytes read at once.
+     * @param maxFiles
+     *            The number of files downloaded concurrently.
+     * @param maxReads
+     *            The number of outstanding reads per file.
+     * @return The outcome for each file, <code>null</code> if the image has
+     *         no original file.
+     * @throws DSOutOfServiceException
+     * @throws DSAccessException
+     */
+    List<FileDownloadResult> downloadFiles(SecurityContext context,
+            String targetPath, long imageId, int chunkSize, int maxFiles,
+            int maxReads) throws DSAccessException,
+            DSOutOfServiceException {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Invalid chunk size "
+                    + chunkSize);
+        if (maxFiles <= 0 || maxReads <= 0)
+            throw new IllegalArgumentException("Invalid parallelism "
+                    + maxFiles + "/" + maxReads);
         ImageData image = browse.findObject(context, ImageData.class, imageId,
                 true);
 
@@ -119,14 +188,11 @@ public class TransferFacilityHelper {
             throw new DSAccessException("Cannot retrieve original file", e);
         }
 
-        Map<Boolean, Object> result = new HashMap<Boolean, Object>();
         if (CollectionUtils.isEmpty(filesets))
-            return files;
-        List<File> downloaded = new ArrayList<File>();
-        List<String> notDownloaded = new ArrayList<String>();
-        result.put(Boolean.valueOf(true), downloaded);
-        result.put(Boolean.valueOf(false), notDownloaded);
+            return new ArrayList<FileDownloadResult>();
 
+        List<OriginalFile> toDownload = new ArrayList<OriginalFile>();
+        List<File> outDirs = new ArrayList<File>();
         if (image.isFSImage()) {
             for (Object tmp : filesets) {
                 Fileset fs = (Fileset) tmp;
@@ -137,61 +203,266 @@ public class TransferFacilityHelper {
                     String ofDir = of.getPath().getValue().replace(repoPath, "");
                     File outDir = new File(targetPath+File.separator+fs_dir+File.separator+ofDir);
                     outDir.mkdirs();
-                    File saved = saveOriginalFile(context, of, outDir);
-                    if (saved != null)
-                        downloaded.add(saved);
-                    else
-                        notDownloaded.add(of.getName().getValue());
+                    toDownload.add(of);
+                    outDirs.add(outDir);
                 }
             }
         }
         else { //Prior to FS
             for (Object tmp : filesets) {
-                OriginalFile of = (OriginalFile) tmp;
-                File outDir = new File(targetPath);
-                File saved = saveOriginalFile(context, of, outDir);
-                if (saved != null)
-                    downloaded.add(saved);
-                else
-                    notDownloaded.add(of.getName().getValue());
+                toDownload.add((OriginalFile) tmp);
+                outDirs.add(new File(targetPath));
             }
         }
 
-        return downloaded;
+        return Arrays.asList(saveOriginalFiles(context, toDownload, outDirs,
+                chunkSize, maxFiles, maxReads));
+    }
+
+    /**
+     * Saves the OriginalFiles into their respective directories, with at most
+     * <code>maxFiles</code> files downloaded concurrently. The calling thread
+     * downloads files too, see {@link Facility#runWorkers(Callable, int)}.
+     *
+     * @param ctx
+     *            The SecurityContext
+     * @param ofs
+     *            The OriginalFiles
+     * @param dirs
+     *            The output directories
+     * @param chunkSize
+     *            The maximum size of bytes read at once.
+     * @param maxFiles
+     *            The number of files downloaded concurrently.
+     * @param maxReads
+     *            The number of outstanding reads per file.
+     * @return The outcome for each file.
+     */
+    private FileDownloadResult[] saveOriginalFiles(final SecurityContext ctx,
+            final List<OriginalFile> ofs, final List<File> dirs,
+            final int chunkSize, int maxFiles, final int maxReads) {
+        final FileDownloadResult[] saved = new FileDownloadResult[ofs.size()];
+        final AtomicInteger next = new AtomicInteger();
+        try {
+            Facility.runWorkers(new Callable<Void>() {
+
+                @Override
+                public Void call() {
+                    int i;
+                    while ((i = next.getAndIncrement()) < saved.length)
+                        saved[i] = saveOriginalFile(ctx, ofs.get(i),
+                                dirs.get(i), chunkSize, maxReads);
+                    return null;
+                }
+            }, Math.min(maxFiles, ofs.size()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            gateway.getLogger().warn(this,
+                    "Failed to download files: " + e);
+        }
+        for (int i = 0; i < saved.length; i++) {
+            if (saved[i] == null)
+                saved[i] = new FileDownloadResult(ofs.get(i).getId()
+                        .getValue(), new File(dirs.get(i), ofs.get(i)
+                        .getName().getValue()), Status.FAILED, 0, null);
+        }
+        return saved;
+    }
+
+    /**
+     * Creates a hasher for the checksum algorithm of the original file.
+     *
+     * @param of
+     *            The OriginalFile
+     * @return See above, <code>null</code> if the file has no hash or the
+     *         algorithm is not supported.
+     */
+    private static Hasher createHasher(OriginalFile of) {
+        if (of.getHash() == null || of.getHasher() == null
+                || of.getHasher().getValue() == null)
+            return null;
+        String algorithm = of.getHasher().getValue().getValue();
+        if (ChecksumAlgorithmSHA1160.value.equals(algorithm))
+            return Hashing.sha1().newHasher();
+        if (ChecksumAlgorithmMD5128.value.equals(algorithm))
+            return Hashing.md5().newHasher();
+        if (ChecksumAlgorithmCRC32.value.equals(algorithm))
+            return Hashing.crc32().newHasher();
+        if (ChecksumAlgorithmAdler32.value.equals(algorithm))
+            return Hashing.adler32().newHasher();
+        if (ChecksumAlgorithmMurmur332.value.equals(algorithm))
+            return Hashing.murmur3_32().newHasher();
+        if (ChecksumAlgorithmMurmur3128.value.equals(algorithm))
+            return Hashing.murmur3_128().newHasher();
+        return null;
+    }
+
+    /**
+     * Hashes the first bytes of a local file.
+     *
+     * @param channel
+     *            The channel to read
+     * @param length
+     *            The number of bytes to hash
+     * @param hasher
+     *            The hasher
+     * @param chunk
+     *            The size of the chunks read at once
+     * @throws IOException
+     *             If the file cannot be read
+     */
+    private static void hash(FileChannel channel, long length, Hasher hasher,
+            int chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(chunk);
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(chunk, length - position));
+            int n = channel.read(buffer, position);
+            if (n < 0)
+                break;
+            hasher.putBytes(buffer.array(), 0, n);
+            position += n;
+        }
     }
 
     /**
-     * Save an OriginalFile of into directory dir
+     * Checks a local file which already has the name of the OriginalFile.
+     * The file is never modified: it is reported as present if its checksum
+     * (or, without checksum on the server, its size) matches, as a conflict
+     * otherwise.
+     *
+     * @param of
+     *            The OriginalFile
+     * @param out
+     *            The existing local file
+     * @param chunkSize
+     *            The size of the chunks read at once
+     * @return The outcome of the operation.
+     */
+    private FileDownloadResult checkExistingFile(OriginalFile of, File out,
+            int chunkSize) {
+        long fileId = of.getId().getValue();
+        long size = of.getSize().getValue();
+        Hasher hasher = createHasher(of);
+        if (out.length() != size)
+            return new FileDownloadResult(fileId, out, Status.CONFLICT, 0,
+                    null);
+        if (hasher == null)
+            return new FileDownloadResult(fileId, out, Status.UNVERIFIED, 0,
+                    null);
+        try (FileChannel channel = FileChannel.open(out.toPath(),
+                StandardOpenOption.READ)) {
+            hash(channel, size, hasher, chunkSize);
+        } catch (IOException e) {
+            return new FileDownloadResult(fileId, out, Status.FAILED, 0, e);
+        }
+        Status status = hasher.hash().toString().equalsIgnoreCase(
+                of.getHash().getValue()) ? Status.ALREADY_PRESENT
+                : Status.CONFLICT;
+        return new FileDownloadResult(fileId, out, status, 0, null);
+    }
+
+    /**
+     * Save an OriginalFile of into directory dir. A local file which
+     * already has the name of the OriginalFile is only checked, never
+     * modified, see {@link #checkExistingFile(OriginalFile, File, int)}.
+     * Otherwise the file is downloaded into a <code>.part</code> file next to
+     * it, which is renamed once complete and verified; if a
+     * <code>.part</code> file is present, the download continues from its
+     * current length. The checksum of the file is computed while it is
+     * written and compared to the one stored on the server.
      * @param ctx The SecurityContext
      * @param of The OriginalFile
      * @param dir The output directory
-     * @return The File if the operation was successfull, null if it wasn't.
+     * @param chunkSize The maximum size of bytes read at once
+     * @param maxReads The number of outstanding reads
+     * @return The outcome of the operation.
      */
-    private File saveOriginalFile(SecurityContext ctx, OriginalFile of, File dir) {
+    private FileDownloadResult saveOriginalFile(SecurityContext ctx,
+            OriginalFile of, File dir, int chunkSize, int maxReads) {
+        long fileId = of.getId().getValue();
         File out = new File(dir, of.getName().getValue());
-        if (out.exists()) {
-            return null;
-        }
+        if (out.exists())
+            return checkExistingFile(of, out, chunkSize);
+        File part = new File(dir, out.getName() + PART_SUFFIX);
+        long size = of.getSize().getValue();
+        long existing = part.exists() ? part.length() : 0;
+        long transferred = 0;
+        Hasher hasher = createHasher(of);
 
-        try {
-            RawFileStorePrx store = gateway.getRawFileService(ctx);
-            store.setFileId(of.getId().getValue());
-
-            long size = of.getSize().getValue();
-            long offset = 0;
-            try (FileOutputStream stream = new FileOutputStream(out))
-            {
-                for (offset = 0; (offset+INC) < size;) {
-                    stream.write(store.read(offset, INC));
-                    offset += INC;
+        RawFileStorePrx store = null;
+        try (FileChannel channel = FileChannel.open(part.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (existing > size) {
+                channel.truncate(0);
+                existing = 0;
+            }
+            int chunk = chunkSize;
+            int reads = maxReads;
+            if (hasher != null && existing > 0) {
+                // hash the partial file which is already present
+                hash(channel, existing, hasher, chunk);
+            }
+            if (existing < size) {
+                store = gateway.getRawFileService(ctx);
+                store.setFileId(fileId);
+                // keep up to maxReads chunks in flight, write them in order
+                Deque<Ice.AsyncResult> pending = new ArrayDeque<Ice.AsyncResult>();
+                Deque<Long> positions = new ArrayDeque<Long>();
+                long offset = existing;
+                while (offset < size || !pending.isEmpty()) {
+                    while (offset < size && pending.size() < reads) {
+                        int length = (int) Math.min(chunk, size - offset);
+                        pending.add(store.begin_read(offset, length));
+                        positions.add(offset);
+                        offset += length;
+                    }
+                    byte[] data = store.end_read(pending.poll());
+                    if (hasher != null)
+                        hasher.putBytes(data);
+                    ByteBuffer buffer = ByteBuffer.wrap(data);
+                    long position = positions.poll();
+                    while (buffer.hasRemaining())
+                        position += channel.write(buffer, position);
+                    transferred += data.length;
                 }
-                stream.write(store.read(offset, (int) (size-offset)));
             }
         } catch (Exception e) {
+            gateway.getLogger().warn(this,
+                    "Failed to download " + out + ": " + e);
+            return new FileDownloadResult(fileId, out, Status.FAILED,
+                    transferred, e);
+        } finally {
+            if (store != null)
+                gateway.closeService(ctx, store);
+        }
 
-            return null;
+        if (hasher != null && !hasher.hash().toString().equalsIgnoreCase(
+                of.getHash().getValue())) {
+            part.delete();
+            return new FileDownloadResult(fileId, out,
+                    Status.CHECKSUM_MISMATCH, transferred, null);
+        }
+        try {
+            Files.move(part.toPath(), out.toPath());
+        } catch (IOException e) {
+            // e.g. a file of that name has been created in the meantime
+            gateway.getLogger().warn(this,
+                    "Failed to rename " + part + ": " + e);
+            return new FileDownloadResult(fileId, out, Status.FAILED,
+                    transferred, e);
         }
-        return out;
+        Status status;
+        if (hasher == null)
+            status = Status.UNVERIFIED;
+        else if (existing > 0)
+            status = Status.RESUMED;
+        else
+            status = Status.DOWNLOADED;
+        return new FileDownloadResult(fileId, out, status, transferred, null);
     }
 
     /**
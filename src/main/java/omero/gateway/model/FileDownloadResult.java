@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.model;
+
+import java.io.File;
+
+/**
+ * Holds the outcome of the download of a single original file.
+ *
+ * @since 5.11.1
+ */
+public class FileDownloadResult {
+
+    /** The possible outcomes of a download. */
+    public enum Status {
+        /** The file has been downloaded and verified. */
+        DOWNLOADED,
+        /** A partial file has been completed and verified. */
+        RESUMED,
+        /** The file was already present and has been verified. */
+        ALREADY_PRESENT,
+        /**
+         * The file is complete, downloaded, resumed or already present with
+         * the expected size, but couldn't be verified as the server holds no
+         * supported checksum for it.
+         */
+        UNVERIFIED,
+        /**
+         * A different local file of that name was already present. It has
+         * been left untouched and nothing has been downloaded.
+         */
+        CONFLICT,
+        /**
+         * The checksum of the downloaded data didn't match, the partial file
+         * was deleted.
+         */
+        CHECKSUM_MISMATCH,
+        /**
+         * The download failed, a <code>.part</code> file may be left for
+         * resuming.
+         */
+        FAILED
+    }
+
+    /** The id of the original file */
+    private final long fileId;
+
+    /** The local file */
+    private final File file;
+
+    /** The outcome */
+    private final Status status;
+
+    /** The number of bytes transferred from the server */
+    private final long bytesTransferred;
+
+    /** The cause of the failure, if any */
+    private final Throwable error;
+
+    /**
+     * Creates a new instance
+     *
+     * @param fileId
+     *            The id of the original file
+     * @param file
+     *            The local file
+     * @param status
+     *            The outcome
+     * @param bytesTransferred
+     *            The number of bytes transferred from the server
+     * @param error
+     *            The cause of the failure, can be <code>null</code>
+     */
+    public FileDownloadResult(long fileId, File file, Status status,
+            long bytesTransferred, Throwable error) {
+        this.fileId = fileId;
+        this.file = file;
+        this.status = status;
+        this.bytesTransferred = bytesTransferred;
+        this.error = error;
+    }
+
+    /**
+     * Returns the id of the original file
+     *
+     * @return See above.
+     */
+    public long getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Returns the local file
+     *
+     * @return See above.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the outcome of the download
+     *
+     * @return See above.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns <code>true</code> if the local file is complete and verified,
+     * <code>false</code> otherwise, in particular for an
+     * {@link Status#UNVERIFIED} file.
+     *
+     * @return See above.
+     */
+    public boolean isSuccess() {
+        return status == Status.DOWNLOADED || status == Status.RESUMED
+                || status == Status.ALREADY_PRESENT;
+    }
+
+    /**
+     * Returns <code>true</code> if the local file is complete, verified or
+     * {@link Status#UNVERIFIED}, <code>false</code> otherwise.
+     *
+     * @return See above.
+     */
+    public boolean isComplete() {
+        return isSuccess() || status == Status.UNVERIFIED;
+    }
+
+    /**
+     * Returns the number of bytes transferred from the server
+     *
+     * @return See above.
+     */
+    public long getBytesTransferred() {
+        return bytesTransferred;
+    }
+
+    /**
+     * Returns the cause of the failure
+     *
+     * @return See above, <code>null</code> if there was no error.
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "FileDownloadResult [fileId=" + fileId + ", file=" + file
+                + ", status=" + status + ", bytesTransferred="
+                + bytesTransferred + "]";
+    }
+}
@@ -18,6 +18,7 @@
  */
 package omero.gateway.model;
 
+import java.lang.reflect.Array;
 import java.util.Arrays;
 import java.util.List;
 
@@ -34,9 +35,19 @@ public class TableData {
     /** The column definitions */
     private TableDataColumn columns[];
 
-    /** The data in form data['column index']['row data'] */
+    /**
+     * The data in form data['column index']['row data'] (created on demand
+     * for columnar tables)
+     */
     private Object[][] data;
 
+    /**
+     * The data in form of one array per column, primitive for boolean,
+     * double, long and numeric array columns (<code>null</code> if this is
+     * not a columnar table)
+     */
+    private Object[] columnData;
+
     /**
      * The offset, if this TableData represents only a subset of the original
      * table
@@ -46,6 +57,12 @@ public class TableData {
     /** The Id of the original file */
     private long originalFileId = -1;
 
+    /**
+     * The rows of the original table held by this instance,
+     * <code>null</code> if they are the range starting at the offset
+     */
+    private long[] rowNumbers;
+
     /**
      * Number of rows in the original table (this doesn't have to match
      * data[x].length, depending on how many rows are loaded)
@@ -94,6 +111,281 @@ public class TableData {
         this.data = data != null ? data : new Object[0][0];
     }
 
+    /**
+     * Creates a columnar table. Boolean, double and long columns are backed by
+     * <code>boolean[]</code>, <code>double[]</code> and <code>long[]</code>
+     * arrays, double, float and long array columns by <code>double[][]</code>,
+     * <code>float[][]</code> and <code>long[][]</code> arrays; the other
+     * columns by arrays of objects. The arrays are not copied. The boxed view
+     * returned by {@link #getData()} is only created when requested; from
+     * then on it backs the table instead of the arrays, see
+     * {@link #getData()}.
+     * 
+     * @param columns
+     *            The column definitions
+     * @param columnData
+     *            The data in form of one array per column
+     * @return See above
+     * @since 5.11.1
+     */
+    public static TableData fromColumns(TableDataColumn[] columns,
+            Object[] columnData) {
+        TableData result = new TableData(columns, null);
+        result.data = null;
+        result.columnData = columnData != null ? columnData : new Object[0];
+        for (int i = 0; i < result.columnData.length; i++) {
+            Object column = result.columnData[i];
+            if (column == null || !column.getClass().isArray())
+                throw new IllegalArgumentException("Column " + i
+                        + " is not an array");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the primitive component type used by columnar tables for the
+     * given column type, <code>null</code> if the column is stored as an
+     * array of objects
+     * 
+     * @param type
+     *            The column type
+     * @return See above
+     */
+    private static Class<?> primitiveType(Class<?> type) {
+        if (Boolean.class.equals(type))
+            return boolean.class;
+        if (Double.class.equals(type))
+            return double.class;
+        if (Long.class.equals(type))
+            return long.class;
+        if (Double[].class.equals(type))
+            return double[].class;
+        if (Float[].class.equals(type))
+            return float[].class;
+        if (Long[].class.equals(type))
+            return long[].class;
+        return null;
+    }
+
+    /**
+     * Converts a primitive column array into an array of objects
+     * 
+     * @param column
+     *            The column array
+     * @return See above
+     */
+    private static Object[] box(Object column) {
+        if (column instanceof boolean[]) {
+            boolean[] src = (boolean[]) column;
+            Boolean[] dst = new Boolean[src.length];
+            for (int i = 0; i < src.length; i++)
+                dst[i] = src[i];
+            return dst;
+        }
+        if (column instanceof double[]) {
+            double[] src = (double[]) column;
+            Double[] dst = new Double[src.length];
+            for (int i = 0; i < src.length; i++)
+                dst[i] = src[i];
+            return dst;
+        }
+        if (column instanceof long[]) {
+            long[] src = (long[]) column;
+            Long[] dst = new Long[src.length];
+            for (int i = 0; i < src.length; i++)
+                dst[i] = src[i];
+            return dst;
+        }
+        if (column instanceof double[][] || column instanceof float[][]
+                || column instanceof long[][]) {
+            Object[] src = (Object[]) column;
+            Object[][] dst = column instanceof double[][] ? new Double[src.length][]
+                    : column instanceof float[][] ? new Float[src.length][]
+                            : new Long[src.length][];
+            for (int i = 0; i < src.length; i++) {
+                if (src[i] instanceof float[]) {
+                    float[] f = (float[]) src[i];
+                    Float[] b = new Float[f.length];
+                    for (int j = 0; j < f.length; j++)
+                        b[j] = f[j];
+                    dst[i] = b;
+                } else
+                    dst[i] = box(src[i]);
+            }
+            return dst;
+        }
+        return (Object[]) column;
+    }
+
+    /**
+     * Converts an array of boxed values into a primitive column array
+     * 
+     * @param column
+     *            The boxed values
+     * @param primitive
+     *            The component type of the primitive array
+     * @return See above
+     */
+    private static Object unbox(Object[] column, Class<?> primitive) {
+        Object dst = Array.newInstance(primitive, column.length);
+        for (int i = 0; i < column.length; i++) {
+            if (primitive.isArray()) {
+                Object[] src = (Object[]) column[i];
+                Object row = Array.newInstance(primitive.getComponentType(),
+                        src.length);
+                for (int j = 0; j < src.length; j++)
+                    Array.set(row, j, src[j]);
+                Array.set(dst, i, row);
+            } else
+                Array.set(dst, i, column[i]);
+        }
+        return dst;
+    }
+
+    /**
+     * Returns <code>true</code> if this table is backed by one array per
+     * column, see {@link #fromColumns(TableDataColumn[], Object[])}, and
+     * {@link #getData()} hasn't been called
+     * 
+     * @return See above
+     * @since 5.11.1
+     */
+    public boolean isColumnar() {
+        return columnData != null;
+    }
+
+    /**
+     * Get the data of a column. For columnar tables this is the backing
+     * array, primitive for boolean, double, long and numeric array columns;
+     * otherwise the array of objects.
+     * 
+     * @param index
+     *            The column index
+     * @return See above, <code>null</code> if there is no data for this
+     *         column
+     * @since 5.11.1
+     */
+    public Object getColumn(int index) {
+        Object[] columns = columnData != null ? columnData : data;
+        return index < columns.length ? columns[index] : null;
+    }
+
+    /**
+     * Get the data of a column as primitive array, converting it if the
+     * column is not backed by such an array
+     * 
+     * @param index
+     *            The column index
+     * @param primitive
+     *            The expected component type
+     * @return See above
+     */
+    private Object getPrimitiveColumn(int index, Class<?> primitive) {
+        Object column = getColumn(index);
+        if (column == null)
+            throw new IllegalArgumentException("No data for column " + index);
+        if (column.getClass().getComponentType().equals(primitive))
+            return column;
+        Class<?> type = index < columns.length ? columns[index].getType()
+                : null;
+        if (column instanceof Object[] && primitive.equals(primitiveType(type)))
+            return unbox((Object[]) column, primitive);
+        throw new IllegalArgumentException("Column " + index + " of type "
+                + type + " can't be read as " + primitive.getSimpleName()
+                + "[]");
+    }
+
+    /**
+     * Get the values of a boolean column (the backing array for columnar
+     * tables)
+     * 
+     * @param index
+     *            The column index
+     * @return See above
+     * @since 5.11.1
+     */
+    public boolean[] getBooleanColumn(int index) {
+        return (boolean[]) getPrimitiveColumn(index, boolean.class);
+    }
+
+    /**
+     * Get the values of a double column (the backing array for columnar
+     * tables)
+     * 
+     * @param index
+     *            The column index
+     * @return See above
+     * @since 5.11.1
+     */
+    public double[] getDoubleColumn(int index) {
+        return (double[]) getPrimitiveColumn(index, double.class);
+    }
+
+    /**
+     * Get the values of a long column (the backing array for columnar
+     * tables)
+     * 
+     * @param index
+     *            The column index
+     * @return See above
+     * @since 5.11.1
+     */
+    public long[] getLongColumn(int index) {
+        return (long[]) getPrimitiveColumn(index, long.class);
+    }
+
+    /**
+     * Get the values of a double array column (the backing array for
+     * columnar tables)
+     * 
+     * @param index
+     *            The column index
+     * @return See above
+     * @since 5.11.1
+     */
+    public double[][] getDoubleArrayColumn(int index) {
+        return (double[][]) getPrimitiveColumn(index, double[].class);
+    }
+
+    /**
+     * Get the values of a float array column (the backing array for
+     * columnar tables)
+     * 
+     * @param index
+     *            The column index
+     * @return See above
+     * @since 5.11.1
+     */
+    public float[][] getFloatArrayColumn(int index) {
+        return (float[][]) getPrimitiveColumn(index, float[].class);
+    }
+
+    /**
+     * Get the values of a long array column (the backing array for columnar
+     * tables)
+     * 
+     * @param index
+     *            The column index
+     * @return See above
+     * @since 5.11.1
+     */
+    public long[][] getLongArrayColumn(int index) {
+        return (long[][]) getPrimitiveColumn(index, long[].class);
+    }
+
+    /**
+     * Get the number of rows held by this instance
+     * 
+     * @return See above
+     */
+    private int getRowCount() {
+        if (columnData != null)
+            return columnData.length == 0 ? 0 : Array
+                    .getLength(columnData[0]);
+        return data == null || data.length == 0 || data[0] == null ? 0
+                : data[0].length;
+    }
+
     /**
      * Get the headers
      * 
@@ -104,14 +396,42 @@ public class TableData {
     }
 
     /**
-     * Get the data in form Object['column index']['row data']
+     * Get the data in form Object['column index']['row data']. For columnar
+     * tables the values are boxed on the first call and the boxed arrays
+     * replace the primitive ones: modifications of the returned arrays are
+     * seen by {@link #getColumn(int)}, the typed accessors and when the
+     * table is saved, whereas the primitive arrays obtained before are not
+     * part of the table anymore.
      * 
      * @return See above
      */
     public Object[][] getData() {
+        if (data == null && columnData != null) {
+            Object[][] boxed = new Object[columnData.length][];
+            for (int i = 0; i < columnData.length; i++)
+                boxed[i] = box(columnData[i]);
+            data = boxed;
+            columnData = null;
+        }
         return data;
     }
 
+    /**
+     * Returns the values in form Object['column index']['row data'] without
+     * modifying the table: the values of a columnar table are boxed into
+     * new arrays.
+     * 
+     * @return See above
+     */
+    private Object[][] boxedData() {
+        if (data != null || columnData == null)
+            return data;
+        Object[][] boxed = new Object[columnData.length][];
+        for (int i = 0; i < columnData.length; i++)
+            boxed[i] = box(columnData[i]);
+        return boxed;
+    }
+
     /**
      * Get the row offset (if this {@link TableData} represents only a subset of
      * the original table)
@@ -152,12 +472,37 @@ public class TableData {
         this.offset = offset;
     }
 
+    /**
+     * Get the rows of the original table held by this instance, e.g. the
+     * rows matching a query
+     * 
+     * @return See above, <code>null</code> if the rows are the range
+     *         starting at the offset
+     * @since 5.11.1
+     */
+    public long[] getRowNumbers() {
+        return rowNumbers;
+    }
+
+    /**
+     * Set the rows of the original table held by this instance, if they are
+     * not the range starting at the offset. The updates of the table are
+     * written to these rows.
+     * 
+     * @param rowNumbers
+     *            The row numbers, one per row of data, or <code>null</code>
+     * @since 5.11.1
+     */
+    public void setRowNumbers(long[] rowNumbers) {
+        this.rowNumbers = rowNumbers;
+    }
+
     /**
      * @return <code>true</code> if this TableData object doesn't contain any
      *         data, <code>false</code> if it does contain data.
      */
     public boolean isEmpty() {
-        return data == null || data.length == 0 || data[0].length == 0;
+        return getRowCount() == 0;
     }
 
     /**
@@ -169,7 +514,7 @@ public class TableData {
         if (isEmpty())
             return true;
 
-        return (offset + data[0].length) == numberOfRows;
+        return (offset + getRowCount()) == numberOfRows;
     }
 
     /**
@@ -178,7 +523,7 @@ public class TableData {
      */
     public void setCompleted() {
         this.numberOfRows = isEmpty() ? 0 : offset
-                + data[0].length;
+                + getRowCount();
     }
 
     /**
@@ -227,8 +572,8 @@ public class TableData {
             return false;
         if (Arrays.hashCode(columns) != Arrays.hashCode(other.columns))
             return false;
-        if (objectArrayHashCode(data, columns) != objectArrayHashCode(
-                other.data, other.columns))
+        if (objectArrayHashCode(boxedData(), columns) != objectArrayHashCode(
+                other.boxedData(), other.columns))
             return false;
         return true;
     }
@@ -295,9 +640,8 @@ public class TableData {
         if (isEmpty())
             return sb.toString();
 
-        int nRows = 0;
-        if (data[0] != null)
-            nRows = data[0].length;
+        Object[][] data = boxedData();
+        int nRows = getRowCount();
         for (int r = 0; r < nRows; r++) {
             for (int c = 0; c < data.length; c++) {
                 sb.append(data[c][r]);
@@ -20,6 +20,9 @@
  */
 package omero.gateway.rnd;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import omero.util.ReadOnlyByteArray;
 
 /** 
@@ -71,4 +74,157 @@ abstract class BytesConverter
      */
     public abstract double pack(ReadOnlyByteArray data, int offset, int length);
 
+    /**
+     * Converts a sequence of pixel values into <code>short</code> values.
+     * Only integer values of <code>1</code> or <code>2</code> bytes can be
+     * converted, unsigned 16-bit values are returned as their raw bits.
+     *
+     * @param data The byte array containing the bytes to convert.
+     * @param offset The position of the first byte making up the first
+     *               pixel value.
+     * @param count The number of pixel values to convert.
+     * @param length The number of bytes that make up a pixel value.
+     * @param dest The array to fill, may be <code>null</code> or too small
+     *             in which case a new array is created.
+     * @return The array holding the converted values.
+     * @throws UnsupportedOperationException If the values are not integers
+     *         of at most <code>2</code> bytes.
+     */
+    public abstract short[] unpackShort(byte[] data, int offset, int count,
+            int length, short[] dest);
+
+    /**
+     * Converts a sequence of pixel values into <code>int</code> values.
+     * Only integer values can be converted, unsigned 32-bit values are
+     * returned as their raw bits.
+     *
+     * @param data The byte array containing the bytes to convert.
+     * @param offset The position of the first byte making up the first
+     *               pixel value.
+     * @param count The number of pixel values to convert.
+     * @param length The number of bytes that make up a pixel value.
+     * @param dest The array to fill, may be <code>null</code> or too small
+     *             in which case a new array is created.
+     * @return The array holding the converted values.
+     * @throws UnsupportedOperationException If the values are not integers.
+     */
+    public abstract int[] unpackInt(byte[] data, int offset, int count,
+            int length, int[] dest);
+
+    /**
+     * Converts a sequence of pixel values into <code>float</code> values.
+     *
+     * @param data The byte array containing the bytes to convert.
+     * @param offset The position of the first byte making up the first
+     *               pixel value.
+     * @param count The number of pixel values to convert.
+     * @param length The number of bytes that make up a pixel value.
+     * @param dest The array to fill, may be <code>null</code> or too small
+     *             in which case a new array is created.
+     * @return The array holding the converted values.
+     */
+    public abstract float[] unpackFloat(byte[] data, int offset, int count,
+            int length, float[] dest);
+
+    /**
+     * Converts a sequence of pixel values into <code>double</code> values.
+     *
+     * @param data The byte array containing the bytes to convert.
+     * @param offset The position of the first byte making up the first
+     *               pixel value.
+     * @param count The number of pixel values to convert.
+     * @param length The number of bytes that make up a pixel value.
+     * @param dest The array to fill, may be <code>null</code> or too small
+     *             in which case a new array is created.
+     * @return The array holding the converted values.
+     */
+    public abstract double[] unpackDouble(byte[] data, int offset, int count,
+            int length, double[] dest);
+
+    /**
+     * Wraps the bytes of the specified pixel values into a big-endian
+     * buffer whose position <code>0</code> is the first byte of the first
+     * pixel value.
+     *
+     * @param data The byte array containing the bytes to convert.
+     * @param offset The position of the first byte making up the first
+     *               pixel value.
+     * @param count The number of pixel values.
+     * @param length The number of bytes that make up a pixel value.
+     * @return See above.
+     */
+    static ByteBuffer wrap(byte[] data, int offset, int count, int length)
+    {
+        return ByteBuffer.wrap(data, offset, count*length).slice()
+                .order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Checks that values of the specified length can be converted into
+     * a primitive type of the specified size.
+     *
+     * @param length The number of bytes that make up a pixel value.
+     * @param maxLength The size of the primitive type in bytes.
+     * @param type The name of the primitive type, for error reporting.
+     * @throws UnsupportedOperationException If the values do not fit.
+     */
+    static void checkLength(int length, int maxLength, String type)
+    {
+        if (length > maxLength)
+            throw new UnsupportedOperationException("Values of "+length+
+                    " bytes cannot be converted into "+type);
+    }
+
+    /**
+     * Returns the specified array if it can hold <code>count</code> values,
+     * a new array otherwise.
+     *
+     * @param dest The array to reuse, may be <code>null</code>.
+     * @param count The number of values.
+     * @return See above.
+     */
+    static short[] allocate(short[] dest, int count)
+    {
+        return dest != null && dest.length >= count ? dest : new short[count];
+    }
+
+    /**
+     * Returns the specified array if it can hold <code>count</code> values,
+     * a new array otherwise.
+     *
+     * @param dest The array to reuse, may be <code>null</code>.
+     * @param count The number of values.
+     * @return See above.
+     */
+    static int[] allocate(int[] dest, int count)
+    {
+        return dest != null && dest.length >= count ? dest : new int[count];
+    }
+
+    /**
+     * Returns the specified array if it can hold <code>count</code> values,
+     * a new array otherwise.
+     *
+     * @param dest The array to reuse, may be <code>null</code>.
+     * @param count The number of values.
+     * @return See above.
+     */
+    static float[] allocate(float[] dest, int count)
+    {
+        return dest != null && dest.length >= count ? dest : new float[count];
+    }
+
+    /**
+     * Returns the specified array if it can hold <code>count</code> values,
+     * a new array otherwise.
+     *
+     * @param dest The array to reuse, may be <code>null</code>.
+     * @param count The number of values.
+     * @return See above.
+     */
+    static double[] allocate(double[] dest, int count)
+    {
+        return dest != null && dest.length >= count ? dest : new double[count];
+    }
+
 }
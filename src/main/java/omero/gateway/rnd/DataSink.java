@@ -32,7 +32,6 @@ import omero.gateway.SecurityContext;
 import omero.gateway.exception.DSOutOfServiceException;
 import omero.gateway.exception.DataSourceException;
 import omero.romio.PlaneDef;
-import omero.util.ReadOnlyByteArray;
 import omero.gateway.model.PixelsData;
 
 /** 
@@ -92,7 +91,10 @@ public class DataSink implements AutoCloseable
 
     /**Reference to the SecurityContext.*/
     private SecurityContext ctx;
-    
+
+    /** The resolution level set when creating the sink, <code>-1</code> if none. */
+    private int resolutionLevel = -1;
+
     /**
      * Creates a new instance.
      *
@@ -107,6 +109,25 @@ public class DataSink implements AutoCloseable
      */
     public DataSink(SecurityContext ctx, PixelsData source, Gateway gw)
             throws DSOutOfServiceException {
+        this(ctx, source, gw, -1);
+    }
+
+    /**
+     * Creates a new instance reading the specified resolution level.
+     *
+     * @param ctx
+     *            The SecurityContext
+     * @param source
+     *            The pixels set.
+     * @param gw
+     *            Reference to the gateway.
+     * @param resolutionLevel
+     *            The resolution level, <code>-1</code> for the default one.
+     * @throws DSOutOfServiceException
+     *             If the PixelsStore can't be accessed
+     */
+    public DataSink(SecurityContext ctx, PixelsData source, Gateway gw,
+            int resolutionLevel) throws DSOutOfServiceException {
         this.ctx = ctx;
         this.gw = gw;
         this.source = source;
@@ -116,6 +137,16 @@ public class DataSink implements AutoCloseable
         } catch (ServerError e) {
             throw new DSOutOfServiceException("Can't set pixels id", e);
         }
+        if (resolutionLevel >= 0) {
+            try {
+                store.setResolutionLevel(resolutionLevel);
+            } catch (ServerError e) {
+                close();
+                throw new DSOutOfServiceException(
+                        "Can't set resolution level", e);
+            }
+            this.resolutionLevel = resolutionLevel;
+        }
         String type = source.getPixelType();
         bytesPerPixels = getBytesPerPixels(type);
         strategy = BytesConverter.getConverter(type);
@@ -160,8 +191,7 @@ public class DataSink implements AutoCloseable
             String p = "("+z+", "+c+", "+t+")";
             throw new DataSourceException("Cannot retrieve the plane "+p, e);
         }
-        ReadOnlyByteArray array = new ReadOnlyByteArray(data, 0, data.length);
-        plane = new Plane2D(array, source.getSizeX(), source.getSizeY(), 
+        plane = new Plane2D(data, source.getSizeX(), source.getSizeY(),
                 bytesPerPixels, strategy);
         return plane;
     }
@@ -198,8 +228,7 @@ public class DataSink implements AutoCloseable
                     + ", " + w + ", " + h + ")";
             throw new DataSourceException("Cannot retrieve the plane " + p, e);
         }
-        ReadOnlyByteArray array = new ReadOnlyByteArray(data, 0, data.length);
-        return new Plane2D(array, w, h, bytesPerPixels, strategy);
+        return new Plane2D(data, w, h, bytesPerPixels, strategy);
     }
 
     /**
@@ -262,8 +291,19 @@ public class DataSink implements AutoCloseable
         }
     }
 
+    /**
+     * Returns the resolution level set when creating the sink.
+     *
+     * @return See above, <code>-1</code> for the default level.
+     */
+    public int getResolutionLevel() {
+        return resolutionLevel;
+    }
+
     /**
      * Set the resolution level and returns the previous one.
+     * Sinks which are shared, e.g. leased from a {@link DataSinkPool},
+     * must be created for a given resolution level instead.
      * @param level The SecurityContext
      * @return See above
      * @throws DataSourceException If an error occurs while retrieving the data
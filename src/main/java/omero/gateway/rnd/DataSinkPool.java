@@ -0,0 +1,435 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+package omero.gateway.rnd;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import omero.gateway.Gateway;
+import omero.gateway.SecurityContext;
+import omero.gateway.exception.DSOutOfServiceException;
+import omero.gateway.model.PixelsData;
+
+/**
+ * A bounded pool of {@link DataSink}s, keyed by group, pixels set and
+ * resolution level. As the resolution level is fixed when a sink is
+ * created, readers of different levels use different pixels stores.
+ * A leased sink is used by one thread only until it is released, so
+ * callers never share the state of a pixels store. Idle sinks are closed
+ * when they have not been used for longer than the idle timeout, or in
+ * least recently used order when a new sink is needed and the pool is full.
+ * While the gateway is connected, the idle sinks are checked periodically,
+ * see {@link Gateway#scheduleWithFixedDelay(Runnable, long, TimeUnit)};
+ * otherwise they are only closed when the pool is used or when
+ * {@link #evictIdle()} is called.
+ * If all the sinks are leased, {@link #lease(SecurityContext, PixelsData)}
+ * waits until one is released.
+ *
+ * @since 5.11.1
+ */
+public class DataSinkPool implements AutoCloseable
+{
+
+    /** The default maximum number of open pixels stores. */
+    public static final int DEFAULT_MAX_SINKS = 16;
+
+    /** The default idle timeout in milliseconds. */
+    public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES
+            .toMillis(5);
+
+    /** Identifies the sinks which can be used for a request. */
+    private static final class Key
+    {
+
+        /** The id of the group. */
+        private final long groupId;
+
+        /** The id of the pixels set. */
+        private final long pixelsId;
+
+        /** The resolution level. */
+        private final int resolutionLevel;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param groupId The id of the group.
+         * @param pixelsId The id of the pixels set.
+         * @param resolutionLevel The resolution level.
+         */
+        Key(long groupId, long pixelsId, int resolutionLevel)
+        {
+            this.groupId = groupId;
+            this.pixelsId = pixelsId;
+            this.resolutionLevel = resolutionLevel;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return groupId == other.groupId && pixelsId == other.pixelsId
+                    && resolutionLevel == other.resolutionLevel;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31*(31*Long.hashCode(groupId)+Long.hashCode(pixelsId))
+                    +resolutionLevel;
+        }
+    }
+
+    /** An idle sink. */
+    private static final class IdleSink
+    {
+
+        /** The key of the sink. */
+        private final Key key;
+
+        /** The sink. */
+        private final DataSink sink;
+
+        /** The time the sink was released. */
+        private final long releaseTime;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param key The key of the sink.
+         * @param sink The sink.
+         * @param releaseTime The time the sink was released.
+         */
+        IdleSink(Key key, DataSink sink, long releaseTime)
+        {
+            this.key = key;
+            this.sink = sink;
+            this.releaseTime = releaseTime;
+        }
+    }
+
+    /** Reference to the gateway. */
+    private final Gateway gw;
+
+    /** The idle sinks, least recently released first. */
+    private final LinkedList<IdleSink> idle = new LinkedList<IdleSink>();
+
+    /** The leased sinks. */
+    private final Map<DataSink, Key> leased = new IdentityHashMap<DataSink, Key>();
+
+    /** The number of open sinks, including the ones being created. */
+    private int open;
+
+    /** The maximum number of open sinks. */
+    private int maxSinks;
+
+    /** The idle timeout in milliseconds. */
+    private long idleTimeout;
+
+    /** Flag indicating that the pool has been closed. */
+    private boolean closed;
+
+    /** The periodic eviction of the idle sinks, <code>null</code> if none. */
+    private ScheduledFuture<?> eviction;
+
+    /**
+     * Creates a new instance using the default limits.
+     *
+     * @param gw Reference to the gateway.
+     */
+    public DataSinkPool(Gateway gw)
+    {
+        this(gw, DEFAULT_MAX_SINKS, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param gw Reference to the gateway.
+     * @param maxSinks The maximum number of open pixels stores.
+     * @param idleTimeout The time in milliseconds after which an idle
+     *                    pixels store is closed.
+     */
+    public DataSinkPool(Gateway gw, int maxSinks, long idleTimeout)
+    {
+        this.gw = gw;
+        setMaxSinks(maxSinks);
+        setIdleTimeout(idleTimeout);
+    }
+
+    /**
+     * Returns the gateway used to create the sinks.
+     *
+     * @return See above.
+     */
+    Gateway getGateway()
+    {
+        return gw;
+    }
+
+    /**
+     * Sets the maximum number of open pixels stores.
+     *
+     * @param maxSinks The value to set.
+     */
+    public synchronized void setMaxSinks(int maxSinks)
+    {
+        if (maxSinks <= 0)
+            throw new IllegalArgumentException("Invalid pool size "+maxSinks);
+        this.maxSinks = maxSinks;
+        notifyAll();
+    }
+
+    /**
+     * Sets the time in milliseconds after which an idle pixels store is
+     * closed.
+     *
+     * @param idleTimeout The value to set.
+     */
+    public synchronized void setIdleTimeout(long idleTimeout)
+    {
+        this.idleTimeout = idleTimeout;
+        if (eviction != null) {
+            eviction.cancel(false);
+            eviction = null;
+            if (!idle.isEmpty())
+                scheduleEviction();
+        }
+    }
+
+    /**
+     * Schedules the periodic eviction of the idle sinks, if not done yet.
+     * Must be called while holding the lock.
+     */
+    private void scheduleEviction()
+    {
+        if (closed || gw == null
+                || (eviction != null && !eviction.isDone()))
+            return;
+        long delay = Math.max(1000, idleTimeout/2);
+        eviction = gw.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the number of open pixels stores.
+     *
+     * @return See above.
+     */
+    public synchronized int getOpenCount()
+    {
+        return open;
+    }
+
+    /**
+     * Removes the idle sinks which exceeded the idle timeout and, if
+     * <code>all</code> is <code>true</code>, the remaining idle sinks too.
+     * Must be called while holding the lock.
+     *
+     * @param all Pass <code>true</code> to remove all the idle sinks.
+     * @return The sinks to close.
+     */
+    private List<DataSink> removeIdle(boolean all)
+    {
+        List<DataSink> evicted = new ArrayList<DataSink>();
+        long limit = System.currentTimeMillis()-idleTimeout;
+        Iterator<IdleSink> i = idle.iterator();
+        while (i.hasNext()) {
+            IdleSink s = i.next();
+            if (!all && s.releaseTime > limit) break;
+            i.remove();
+            evicted.add(s.sink);
+            open--;
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes the specified sinks.
+     *
+     * @param sinks The sinks to close.
+     */
+    private void close(List<DataSink> sinks)
+    {
+        for (DataSink sink : sinks)
+            sink.close();
+    }
+
+    /**
+     * Leases a sink for the specified pixels set, reusing an idle one if
+     * possible. The sink has to be passed to {@link #release(DataSink)}
+     * after use and must not be used by another thread in the meantime.
+     *
+     * @param ctx The SecurityContext.
+     * @param pixels The pixels set.
+     * @return See above.
+     * @throws DSOutOfServiceException If the PixelsStore can't be accessed
+     *                                 or the pool has been closed.
+     */
+    public DataSink lease(SecurityContext ctx, PixelsData pixels)
+            throws DSOutOfServiceException
+    {
+        return lease(ctx, pixels, -1);
+    }
+
+    /**
+     * Leases a sink reading the specified resolution level of the pixels
+     * set, reusing an idle one if possible. The sink has to be passed to
+     * {@link #release(DataSink)} after use and must not be used by another
+     * thread in the meantime.
+     *
+     * @param ctx The SecurityContext.
+     * @param pixels The pixels set.
+     * @param resolutionLevel The resolution level, <code>-1</code> for the
+     *                        default one.
+     * @return See above.
+     * @throws DSOutOfServiceException If the PixelsStore can't be accessed
+     *                                 or the pool has been closed.
+     */
+    public DataSink lease(SecurityContext ctx, PixelsData pixels,
+            int resolutionLevel) throws DSOutOfServiceException
+    {
+        if (resolutionLevel < 0) resolutionLevel = -1;
+        Key key = new Key(ctx.getGroupID(), pixels.getId(), resolutionLevel);
+        List<DataSink> evicted;
+        DataSink sink = null;
+        String error = null;
+        InterruptedException interrupted = null;
+        synchronized (this) {
+            evicted = removeIdle(false);
+            Iterator<IdleSink> i = idle.descendingIterator();
+            while (i.hasNext()) {
+                IdleSink s = i.next();
+                if (s.key.equals(key)) {
+                    i.remove();
+                    leased.put(s.sink, key);
+                    sink = s.sink;
+                    break;
+                }
+            }
+            while (sink == null && !closed && open >= maxSinks) {
+                if (!idle.isEmpty()) {
+                    evicted.add(idle.removeFirst().sink);
+                    open--;
+                    continue;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = e;
+                    break;
+                }
+            }
+            if (sink == null) {
+                if (closed) error = "The pool has been closed";
+                else if (interrupted != null)
+                    error = "Interrupted while waiting for a pixels store";
+                else open++;
+            }
+        }
+        close(evicted);
+        if (interrupted != null) Thread.currentThread().interrupt();
+        if (error != null) throw new DSOutOfServiceException(error, interrupted);
+        if (sink != null) return sink;
+        try {
+            sink = new DataSink(ctx, pixels, gw, resolutionLevel);
+        } finally {
+            synchronized (this) {
+                if (sink == null) {
+                    open--;
+                    notifyAll();
+                } else leased.put(sink, key);
+            }
+        }
+        return sink;
+    }
+
+    /**
+     * Returns a leased sink to the pool.
+     *
+     * @param sink The sink to release.
+     */
+    public void release(DataSink sink)
+    {
+        if (sink == null) return;
+        List<DataSink> evicted;
+        synchronized (this) {
+            Key key = leased.remove(sink);
+            if (key == null) return;
+            if (closed || open > maxSinks) {
+                open--;
+                evicted = new ArrayList<DataSink>();
+                evicted.add(sink);
+            } else {
+                idle.addLast(new IdleSink(key, sink,
+                        System.currentTimeMillis()));
+                evicted = removeIdle(false);
+                scheduleEviction();
+            }
+            notifyAll();
+        }
+        close(evicted);
+    }
+
+    /**
+     * Closes the idle sinks which exceeded the idle timeout.
+     */
+    public void evictIdle()
+    {
+        List<DataSink> evicted;
+        synchronized (this) {
+            evicted = removeIdle(false);
+            notifyAll();
+        }
+        close(evicted);
+    }
+
+    /**
+     * Closes the idle sinks. The leased sinks are closed when they are
+     * released.
+     */
+    @Override
+    public void close()
+    {
+        List<DataSink> evicted;
+        synchronized (this) {
+            closed = true;
+            evicted = removeIdle(true);
+            if (eviction != null) {
+                eviction.cancel(false);
+                eviction = null;
+            }
+            notifyAll();
+        }
+        close(evicted);
+    }
+}
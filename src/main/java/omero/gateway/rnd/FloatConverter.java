@@ -20,6 +20,8 @@
  */
 package omero.gateway.rnd;
 
+import java.nio.ByteBuffer;
+
 import omero.util.ReadOnlyByteArray;
 
 /** 
@@ -74,4 +76,56 @@ public class FloatConverter
         return Float.intBitsToFloat(r);
     }
 
+    /**
+     * Not supported, <code>float</code> values cannot be converted into
+     * <code>short</code> values without loss.
+     * @throws UnsupportedOperationException Always.
+     * @see BytesConverter#unpackShort(byte[], int, int, int, short[])
+     */
+    public short[] unpackShort(byte[] data, int offset, int count,
+            int length, short[] dest)
+    {
+        throw new UnsupportedOperationException(
+                "Float values cannot be converted into short");
+    }
+
+    /**
+     * Not supported, <code>float</code> values cannot be converted into
+     * <code>int</code> values without loss.
+     * @throws UnsupportedOperationException Always.
+     * @see BytesConverter#unpackInt(byte[], int, int, int, int[])
+     */
+    public int[] unpackInt(byte[] data, int offset, int count,
+            int length, int[] dest)
+    {
+        throw new UnsupportedOperationException(
+                "Float values cannot be converted into int");
+    }
+
+    /**
+     * Implemented as specified by {@link BytesConverter}
+     * @see BytesConverter#unpackFloat(byte[], int, int, int, float[])
+     */
+    public float[] unpackFloat(byte[] data, int offset, int count,
+            int length, float[] dest)
+    {
+        float[] values = allocate(dest, count);
+        wrap(data, offset, count, length).asFloatBuffer().get(values, 0, count);
+        return values;
+    }
+
+    /**
+     * Implemented as specified by {@link BytesConverter}
+     * @see BytesConverter#unpackDouble(byte[], int, int, int, double[])
+     */
+    public double[] unpackDouble(byte[] data, int offset, int count,
+            int length, double[] dest)
+    {
+        double[] values = allocate(dest, count);
+        ByteBuffer buffer = wrap(data, offset, count, length);
+        for (int i = 0; i < count; i++)
+            values[i] = buffer.getFloat(i*4);
+        return values;
+    }
+
 }
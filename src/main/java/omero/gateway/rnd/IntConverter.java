@@ -20,6 +20,8 @@
  */
 package omero.gateway.rnd;
 
+import java.nio.ByteBuffer;
+
 import omero.util.ReadOnlyByteArray;
 
 /** 
@@ -74,4 +76,88 @@ public class IntConverter
         return r;
     }
 
+    /**
+     * Reads the signed value of the pixel at the specified index.
+     *
+     * @param buffer The buffer holding the pixel values.
+     * @param index The index of the pixel.
+     * @param length The number of bytes that make up a pixel value.
+     * @return See above.
+     */
+    private static int get(ByteBuffer buffer, int index, int length)
+    {
+        switch (length) {
+            case 1:
+                return buffer.get(index);
+            case 2:
+                return buffer.getShort(index*2);
+            default:
+                return buffer.getInt(index*4);
+        }
+    }
+
+    /**
+     * Implemented as specified by {@link BytesConverter}
+     * @see BytesConverter#unpackShort(byte[], int, int, int, short[])
+     */
+    public short[] unpackShort(byte[] data, int offset, int count,
+            int length, short[] dest)
+    {
+        checkLength(length, 2, "short");
+        short[] values = allocate(dest, count);
+        ByteBuffer buffer = wrap(data, offset, count, length);
+        if (length == 2) buffer.asShortBuffer().get(values, 0, count);
+        else {
+            for (int i = 0; i < count; i++)
+                values[i] = buffer.get(i);
+        }
+        return values;
+    }
+
+    /**
+     * Implemented as specified by {@link BytesConverter}
+     * @see BytesConverter#unpackInt(byte[], int, int, int, int[])
+     */
+    public int[] unpackInt(byte[] data, int offset, int count,
+            int length, int[] dest)
+    {
+        checkLength(length, 4, "int");
+        int[] values = allocate(dest, count);
+        ByteBuffer buffer = wrap(data, offset, count, length);
+        if (length == 4) buffer.asIntBuffer().get(values, 0, count);
+        else {
+            for (int i = 0; i < count; i++)
+                values[i] = get(buffer, i, length);
+        }
+        return values;
+    }
+
+    /**
+     * Implemented as specified by {@link BytesConverter}
+     * @see BytesConverter#unpackFloat(byte[], int, int, int, float[])
+     */
+    public float[] unpackFloat(byte[] data, int offset, int count,
+            int length, float[] dest)
+    {
+        float[] values = allocate(dest, count);
+        ByteBuffer buffer = wrap(data, offset, count, length);
+        for (int i = 0; i < count; i++)
+            values[i] = get(buffer, i, length);
+        return values;
+    }
+
+    /**
+     * Implemented as specified by {@link BytesConverter}
+     * @see BytesConverter#unpackDouble(byte[], int, int, int, double[])
+     */
+    public double[] unpackDouble(byte[] data, int offset, int count,
+            int length, double[] dest)
+    {
+        double[] values = allocate(dest, count);
+        ByteBuffer buffer = wrap(data, offset, count, length);
+        for (int i = 0; i < count; i++)
+            values[i] = get(buffer, i, length);
+        return values;
+    }
+
 }
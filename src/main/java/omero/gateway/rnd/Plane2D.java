@@ -41,15 +41,21 @@ public class Plane2D
     /** The number of elements along the x-axis. */
     private int sizeX;
 
+    /** The number of elements along the y-axis. */
+    private int sizeY;
+
     /** The original array. */
     private ReadOnlyByteArray data;
 
+    /** 
+     * The bytes wrapped by {@link #data}, <code>null</code> if the plane
+     * was created from a {@link ReadOnlyByteArray}.
+     */
+    private byte[] rawData;
+
     /** Strategy used to transform original data. */
     private BytesConverter strategy;
 
-    /** The converted raw data. */
-    private double[][] mappedData;
-
     /** 
      * Determines the offset value.
      *
@@ -63,20 +69,34 @@ public class Plane2D
     }
 
     /**
-     * Converts the raw data.
+     * Returns the raw bytes of the plane, copying them out of the
+     * {@link ReadOnlyByteArray} only if the plane was not created from
+     * a byte array.
      *
-     * @param sizeY The number of pixels along the y-axis.
+     * @return See above.
      */
-    private void mappedData(int sizeY)
+    byte[] getBytes()
     {
-        mappedData = new double[sizeX][sizeY];
-        int offset;
-        for (int x = 0; x < sizeX; x++) {
-            for (int y = 0; y < sizeY; y++) {
-                offset = calculateOffset(x, y);
-                mappedData[x][y] = strategy.pack(data, offset, bytesPerPixel);
-            }
-        }
+        if (rawData != null) return rawData;
+        byte[] bytes = new byte[sizeX*sizeY*bytesPerPixel];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = data.get(i);
+        return bytes;
+    }
+
+    /**
+     * Checks that the pixels of this plane can be stored in a primitive
+     * type of the specified size.
+     *
+     * @param maxBytes The size of the primitive type in bytes.
+     * @param type The name of the primitive type, for error reporting.
+     */
+    private void checkIntegerType(int maxBytes, String type)
+    {
+        if (bytesPerPixel > maxBytes || strategy instanceof FloatConverter
+                || strategy instanceof DoubleConverter)
+            throw new UnsupportedOperationException("Pixels of "+bytesPerPixel+
+                    " byte(s) cannot be represented as "+type);
     }
 
     /**
@@ -95,7 +115,65 @@ public class Plane2D
         this.data = data;
         this.strategy = strategy;
         this.sizeX = sizeX;
-        mappedData(sizeY);
+        this.sizeY = sizeY;
+    }
+
+    /**
+     * Creates a new instance keeping a reference to the specified bytes.
+     * The pixel values are only decoded when requested.
+     *
+     * @param data The array of byte.
+     * @param sizeX The number of pixels along the x-axis.
+     * @param sizeY The number of pixels along the y-axis.
+     * @param bytesPerPixel The number of bytes per pixel.
+     * @param strategy Strategy to transform pixel.
+     */
+    public Plane2D(byte[] data, int sizeX, int sizeY,
+            int bytesPerPixel, BytesConverter strategy)
+    {
+        this(new ReadOnlyByteArray(data, 0, data.length), sizeX, sizeY,
+                bytesPerPixel, strategy);
+        this.rawData = data;
+    }
+
+    /**
+     * Returns the number of pixels along the x-axis.
+     *
+     * @return See above.
+     */
+    public int getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * Returns the number of pixels along the y-axis.
+     *
+     * @return See above.
+     */
+    public int getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * Returns the number of bytes per pixel.
+     *
+     * @return See above.
+     */
+    public int getBytesPerPixel()
+    {
+        return bytesPerPixel;
+    }
+
+    /**
+     * Returns the strategy used to transform the raw data.
+     *
+     * @return See above.
+     */
+    BytesConverter getStrategy()
+    {
+        return strategy;
     }
 
     /**
@@ -108,7 +186,7 @@ public class Plane2D
      */
     public double getPixelValue(int x, int y)
     {
-        return mappedData[x][y];
+        return strategy.pack(data, calculateOffset(x, y), bytesPerPixel);
     }
 
     /**
@@ -117,7 +195,133 @@ public class Plane2D
      * @return See above.
      */
     public double[][] getPixelValues() {
-        return copyArray(mappedData);
+        double[] row = null;
+        double[][] values = new double[sizeX][sizeY];
+        byte[] bytes = getBytes();
+        for (int y = 0; y < sizeY; y++) {
+            row = strategy.unpackDouble(bytes, calculateOffset(0, y), sizeX,
+                    bytesPerPixel, row);
+            for (int x = 0; x < sizeX; x++) {
+                values[x][y] = row[x];
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the pixels values of a plane with <code>1</code> or 
+     * <code>2</code> bytes per pixel, in row-major order i.e. the value at
+     * <code>(x, y)</code> is at index <code>y*sizeX+x</code>.
+     * Signed values are sign-extended, <code>uint8</code> values are
+     * zero-extended and <code>uint16</code> values are returned as their
+     * raw bits (use <code>v &amp; 0xFFFF</code> to read them).
+     *
+     * @return See above.
+     * @throws UnsupportedOperationException If the pixel type does not fit.
+     */
+    public short[] getShortValues()
+    {
+        return getShortValues(null);
+    }
+
+    /**
+     * Same as {@link #getShortValues()} but decodes the values into the
+     * specified array if it is large enough, so that it can be reused
+     * across planes.
+     *
+     * @param dest The array to fill, may be <code>null</code>.
+     * @return The array holding the values.
+     * @throws UnsupportedOperationException If the pixel type does not fit.
+     */
+    public short[] getShortValues(short[] dest)
+    {
+        checkIntegerType(2, "short");
+        return strategy.unpackShort(getBytes(), 0, sizeX*sizeY, bytesPerPixel,
+                dest);
+    }
+
+    /**
+     * Returns the pixels values of a plane of integer type, in row-major 
+     * order i.e. the value at <code>(x, y)</code> is at index
+     * <code>y*sizeX+x</code>. <code>uint32</code> values are returned as
+     * their raw bits (use <code>v &amp; 0xFFFFFFFFL</code> to read them).
+     *
+     * @return See above.
+     * @throws UnsupportedOperationException If the pixel type does not fit.
+     */
+    public int[] getIntValues()
+    {
+        return getIntValues(null);
+    }
+
+    /**
+     * Same as {@link #getIntValues()} but decodes the values into the
+     * specified array if it is large enough, so that it can be reused
+     * across planes.
+     *
+     * @param dest The array to fill, may be <code>null</code>.
+     * @return The array holding the values.
+     * @throws UnsupportedOperationException If the pixel type does not fit.
+     */
+    public int[] getIntValues(int[] dest)
+    {
+        checkIntegerType(4, "int");
+        return strategy.unpackInt(getBytes(), 0, sizeX*sizeY, bytesPerPixel,
+                dest);
+    }
+
+    /**
+     * Returns the pixels values as <code>float</code>, in row-major order
+     * i.e. the value at <code>(x, y)</code> is at index
+     * <code>y*sizeX+x</code>. Values of other types are converted, which
+     * may lose precision for <code>int32</code>, <code>uint32</code> and
+     * <code>double</code> pixels.
+     *
+     * @return See above.
+     */
+    public float[] getFloatValues()
+    {
+        return getFloatValues(null);
+    }
+
+    /**
+     * Same as {@link #getFloatValues()} but decodes the values into the
+     * specified array if it is large enough, so that it can be reused
+     * across planes.
+     *
+     * @param dest The array to fill, may be <code>null</code>.
+     * @return The array holding the values.
+     */
+    public float[] getFloatValues(float[] dest)
+    {
+        return strategy.unpackFloat(getBytes(), 0, sizeX*sizeY, bytesPerPixel,
+                dest);
+    }
+
+    /**
+     * Returns the pixels values as <code>double</code>, in row-major order
+     * i.e. the value at <code>(x, y)</code> is at index
+     * <code>y*sizeX+x</code>.
+     *
+     * @return See above.
+     */
+    public double[] getDoubleValues()
+    {
+        return getDoubleValues(null);
+    }
+
+    /**
+     * Same as {@link #getDoubleValues()} but decodes the values into the
+     * specified array if it is large enough, so that it can be reused
+     * across planes.
+     *
+     * @param dest The array to fill, may be <code>null</code>.
+     * @return The array holding the values.
+     */
+    public double[] getDoubleValues(double[] dest)
+    {
+        return strategy.unpackDouble(getBytes(), 0, sizeX*sizeY,
+                bytesPerPixel, dest);
     }
 
     /**
@@ -130,20 +334,4 @@ public class Plane2D
     {
         return data.get(offset);
     }
-    
-    /**
-     * Simply copies a 2-dimensional double array
-     * 
-     * @param src
-     *            The array to copy
-     * @return A copy of the array
-     */
-    private double[][] copyArray(double[][] src) {
-        int length = src.length;
-        double[][] target = new double[length][src[0].length];
-        for (int i = 0; i < length; i++) {
-            System.arraycopy(src[i], 0, target[i], 0, src[i].length);
-        }
-        return target;
-    }
 }
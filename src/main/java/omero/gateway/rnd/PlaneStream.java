@@ -0,0 +1,343 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+package omero.gateway.rnd;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import omero.gateway.SecurityContext;
+import omero.gateway.exception.DataSourceException;
+import omero.gateway.model.PixelsData;
+
+/**
+ * Iterates over a sequence of planes or tiles of a pixels set, fetching
+ * ahead of the caller.
+ * At most <code>parallelism</code> requests are in flight or waiting to be
+ * consumed at any time, each using a pixels store leased from a
+ * {@link DataSinkPool}, and the planes are returned in the order they were
+ * requested. A new request is only issued when the caller consumes a plane,
+ * so a slow consumer does not cause data to pile up in memory.
+ *
+ * @since 5.11.1
+ */
+public class PlaneStream implements AutoCloseable
+{
+
+    /** The default number of requests in flight. */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /** Identifies a plane or a tile to fetch. */
+    private static class Request
+    {
+
+        /** The z-section. */
+        private final int z;
+
+        /** The timepoint. */
+        private final int t;
+
+        /** The channel. */
+        private final int c;
+
+        /** The region of the tile, <code>null</code> for the whole plane. */
+        private final int[] region;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param z The z-section.
+         * @param t The timepoint.
+         * @param c The channel.
+         * @param region The x, y, width and height of the tile or
+         *               <code>null</code> for the whole plane.
+         */
+        Request(int z, int t, int c, int[] region)
+        {
+            this.z = z;
+            this.t = t;
+            this.c = c;
+            this.region = region;
+        }
+
+        /**
+         * Fetches the plane or tile.
+         *
+         * @param sink The sink to use.
+         * @return See above.
+         * @throws DataSourceException If the data cannot be retrieved.
+         */
+        Plane2D fetch(DataSink sink) throws DataSourceException
+        {
+            if (region == null) return sink.getPlane(z, t, c);
+            return sink.getTile(z, t, c, region[0], region[1], region[2],
+                    region[3]);
+        }
+    }
+
+    /** The requests in the order the planes are returned. */
+    private final List<Request> requests;
+
+    /** The requests submitted but not consumed yet. */
+    private final Deque<Future<Plane2D>> pending = new ArrayDeque<Future<Plane2D>>();
+
+    /** The pool providing the sinks. */
+    private final DataSinkPool pool;
+
+    /** Reference to the SecurityContext. */
+    private final SecurityContext ctx;
+
+    /** The pixels set. */
+    private final PixelsData pixels;
+
+    /** The maximum number of requests in flight. */
+    private final int parallelism;
+
+    /** The index of the next request to submit. */
+    private int next;
+
+    /** Flag indicating that the stream has been closed. */
+    private boolean closed;
+
+    /**
+     * Returns the specified indices or all the indices lower than the
+     * specified size if <code>null</code>.
+     *
+     * @param indices The indices, may be <code>null</code>.
+     * @param size The size of the dimension.
+     * @return See above.
+     */
+    private static int[] indices(int[] indices, int size)
+    {
+        if (indices != null) return indices;
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++)
+            all[i] = i;
+        return all;
+    }
+
+    /**
+     * Creates the requests for the specified planes, ordered with
+     * z varying fastest, then c, then t.
+     *
+     * @param pixels The pixels set.
+     * @param z The z-sections, <code>null</code> for all.
+     * @param t The timepoints, <code>null</code> for all.
+     * @param c The channels, <code>null</code> for all.
+     * @param tileWidth The width of the tiles, <code>-1</code> to fetch
+     *                  whole planes.
+     * @param tileHeight The height of the tiles.
+     * @return See above.
+     */
+    private static List<Request> createRequests(PixelsData pixels, int[] z,
+            int[] t, int[] c, int tileWidth, int tileHeight)
+    {
+        List<Request> requests = new ArrayList<Request>();
+        int sizeX = pixels.getSizeX();
+        int sizeY = pixels.getSizeY();
+        for (int ti : indices(t, pixels.getSizeT())) {
+            for (int ci : indices(c, pixels.getSizeC())) {
+                for (int zi : indices(z, pixels.getSizeZ())) {
+                    if (tileWidth < 0) {
+                        requests.add(new Request(zi, ti, ci, null));
+                        continue;
+                    }
+                    for (int y = 0; y < sizeY; y += tileHeight) {
+                        for (int x = 0; x < sizeX; x += tileWidth) {
+                            int[] region = {x, y,
+                                    Math.min(tileWidth, sizeX-x),
+                                    Math.min(tileHeight, sizeY-y)};
+                            requests.add(new Request(zi, ti, ci, region));
+                        }
+                    }
+                }
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Creates a stream over the specified planes. The planes are returned
+     * with z varying fastest, then c, then t.
+     *
+     * @param ctx The SecurityContext.
+     * @param pixels The pixels set.
+     * @param pool The pool providing the sinks.
+     * @param z The z-sections, <code>null</code> for all.
+     * @param t The timepoints, <code>null</code> for all.
+     * @param c The channels, <code>null</code> for all.
+     * @param parallelism The maximum number of requests in flight.
+     * @return See above.
+     */
+    public static PlaneStream planes(SecurityContext ctx, PixelsData pixels,
+            DataSinkPool pool, int[] z, int[] t, int[] c, int parallelism)
+    {
+        return new PlaneStream(ctx, pixels, pool,
+                createRequests(pixels, z, t, c, -1, -1), parallelism);
+    }
+
+    /**
+     * Creates a stream over the tiles covering the specified planes.
+     * The planes are visited with z varying fastest, then c, then t;
+     * the tiles of a plane are returned row by row. Tiles on the right and
+     * bottom edges may be smaller than the requested size.
+     *
+     * @param ctx The SecurityContext.
+     * @param pixels The pixels set.
+     * @param pool The pool providing the sinks.
+     * @param z The z-sections, <code>null</code> for all.
+     * @param t The timepoints, <code>null</code> for all.
+     * @param c The channels, <code>null</code> for all.
+     * @param tileWidth The width of the tiles.
+     * @param tileHeight The height of the tiles.
+     * @param parallelism The maximum number of requests in flight.
+     * @return See above.
+     */
+    public static PlaneStream tiles(SecurityContext ctx, PixelsData pixels,
+            DataSinkPool pool, int[] z, int[] t, int[] c, int tileWidth,
+            int tileHeight, int parallelism)
+    {
+        if (tileWidth <= 0 || tileHeight <= 0)
+            throw new IllegalArgumentException("Invalid tile size "+
+                    tileWidth+"x"+tileHeight);
+        return new PlaneStream(ctx, pixels, pool, createRequests(pixels, z, t,
+                c, tileWidth, tileHeight), parallelism);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param ctx The SecurityContext.
+     * @param pixels The pixels set.
+     * @param pool The pool providing the sinks.
+     * @param requests The requests.
+     * @param parallelism The maximum number of requests in flight.
+     */
+    private PlaneStream(SecurityContext ctx, PixelsData pixels,
+            DataSinkPool pool, List<Request> requests, int parallelism)
+    {
+        this.ctx = ctx;
+        this.pixels = pixels;
+        this.pool = pool;
+        this.requests = requests;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Submits requests until <code>parallelism</code> requests are pending
+     * or all the requests have been submitted.
+     */
+    private void fill()
+    {
+        while (pending.size() < parallelism && next < requests.size()) {
+            final Request request = requests.get(next++);
+            pending.add(pool.getGateway().submit(new Callable<Plane2D>() {
+
+                @Override
+                public Plane2D call() throws Exception {
+                    DataSink sink = pool.lease(ctx, pixels);
+                    try {
+                        return request.fetch(sink);
+                    } finally {
+                        pool.release(sink);
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Returns the number of planes or tiles in the stream.
+     *
+     * @return See above.
+     */
+    public int size()
+    {
+        return requests.size();
+    }
+
+    /**
+     * Returns <code>true</code> if there are more planes to read,
+     * <code>false</code> otherwise.
+     *
+     * @return See above.
+     */
+    public boolean hasNext()
+    {
+        return !closed && (!pending.isEmpty() || next < requests.size());
+    }
+
+    /**
+     * Returns the next plane or tile, waiting for it if it has not been
+     * fetched yet.
+     *
+     * @return See above.
+     * @throws DataSourceException If an error occurs while retrieving the
+     *                              data from the pixels source.
+     * @throws NoSuchElementException If there are no more planes.
+     */
+    public Plane2D next() throws DataSourceException
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        fill();
+        Future<Plane2D> result = pending.poll();
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataSourceException("Interrupted while fetching data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataSourceException)
+                throw (DataSourceException) e.getCause();
+            throw new DataSourceException("Cannot retrieve data", e.getCause());
+        } finally {
+            // refill once the polled request is done, so that no more than
+            // parallelism requests are ever in flight
+            if (result.isDone())
+                fill();
+        }
+    }
+
+    /**
+     * Waits for the requests in flight, so that their pixels stores are
+     * returned to the pool.
+     */
+    @Override
+    public void close()
+    {
+        if (closed) return;
+        closed = true;
+        for (Future<Plane2D> result : pending) {
+            try {
+                result.get();
+            } catch (Exception e) {
+                // result is discarded anyway
+            }
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+package omero.gateway.rnd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A client-side cache of tiles. Tiles are kept in memory up to a given
+ * number of bytes; the least recently used tiles are then either dropped or,
+ * if a directory is specified, written to disk up to another limit and
+ * read back when requested. The files are read and written without holding
+ * the lock of the cache. The cache is thread-safe. The tiles are identified
+ * by the id of their pixels set only, so a cache can only be shared between
+ * {@link omero.gateway.facility.RawDataFacility} instances connected to the
+ * same server as the same user.
+ *
+ * @since 5.11.1
+ */
+public class TileCache implements AutoCloseable
+{
+
+    /** Identifies a tile. */
+    public static final class Key
+    {
+
+        /** The values identifying the tile. */
+        private final long[] values;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param pixelsId The id of the pixels set.
+         * @param resolutionLevel The resolution level, <code>-1</code> for
+         *                        the default one.
+         * @param z The z-section.
+         * @param t The timepoint.
+         * @param c The channel.
+         * @param x The x coordinate.
+         * @param y The y coordinate.
+         * @param w The width of the tile.
+         * @param h The height of the tile.
+         */
+        public Key(long pixelsId, int resolutionLevel, int z, int t, int c,
+                int x, int y, int w, int h)
+        {
+            values = new long[] {pixelsId, resolutionLevel, z, t, c, x, y, w,
+                    h};
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Key && Arrays.equals(values,
+                    ((Key) obj).values);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString()
+        {
+            return Arrays.toString(values);
+        }
+    }
+
+    /** A tile written to disk. */
+    private static final class DiskTile
+    {
+
+        /** The file holding the bytes of the tile. */
+        private final File file;
+
+        /** The width of the tile. */
+        private final int sizeX;
+
+        /** The height of the tile. */
+        private final int sizeY;
+
+        /** The number of bytes per pixel. */
+        private final int bytesPerPixel;
+
+        /** Strategy used to transform the bytes. */
+        private final BytesConverter strategy;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param file The file holding the bytes of the tile.
+         * @param tile The tile.
+         */
+        DiskTile(File file, Plane2D tile)
+        {
+            this.file = file;
+            this.sizeX = tile.getSizeX();
+            this.sizeY = tile.getSizeY();
+            this.bytesPerPixel = tile.getBytesPerPixel();
+            this.strategy = tile.getStrategy();
+        }
+
+        /**
+         * Returns the number of bytes of the tile.
+         *
+         * @return See above.
+         */
+        long size()
+        {
+            return (long) sizeX*sizeY*bytesPerPixel;
+        }
+    }
+
+    /** The tiles held in memory, least recently used first. */
+    private final LinkedHashMap<Key, Plane2D> memory =
+            new LinkedHashMap<Key, Plane2D>(16, 0.75f, true);
+
+    /** The tiles written to disk, least recently used first. */
+    private final LinkedHashMap<Key, DiskTile> disk =
+            new LinkedHashMap<Key, DiskTile>(16, 0.75f, true);
+
+    /** The maximum number of bytes held in memory. */
+    private final long maxMemoryBytes;
+
+    /** The maximum number of bytes written to disk. */
+    private final long maxDiskBytes;
+
+    /** The directory the tiles are written to, <code>null</code> if none. */
+    private final File directory;
+
+    /** The number of bytes held in memory. */
+    private long memoryBytes;
+
+    /** The number of bytes written to disk. */
+    private long diskBytes;
+
+    /** Counter used to name the files. */
+    private long fileCounter;
+
+    /** Incremented when the cache is cleared. */
+    private long generation;
+
+    /** The number of tiles found in memory. */
+    private long memoryHits;
+
+    /** The number of tiles found on disk. */
+    private long diskHits;
+
+    /** The number of tiles not found. */
+    private long misses;
+
+    /** The number of tiles dropped from the cache. */
+    private long evictions;
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param maxMemoryBytes The maximum number of bytes held in memory.
+     */
+    public TileCache(long maxMemoryBytes)
+    {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = 0;
+        this.directory = null;
+    }
+
+    /**
+     * Creates a cache spilling tiles to disk.
+     *
+     * @param maxMemoryBytes The maximum number of bytes held in memory.
+     * @param directory The directory to write the tiles to. The files
+     *                  are deleted when the cache is closed.
+     * @param maxDiskBytes The maximum number of bytes written to disk.
+     * @throws IOException If the directory cannot be created.
+     */
+    public TileCache(long maxMemoryBytes, File directory, long maxDiskBytes)
+            throws IOException
+    {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.directory = directory;
+        Files.createDirectories(directory.toPath());
+    }
+
+    /**
+     * Returns the number of bytes of the specified tile.
+     *
+     * @param tile The tile.
+     * @return See above.
+     */
+    private static long size(Plane2D tile)
+    {
+        return (long) tile.getSizeX()*tile.getSizeY()*tile.getBytesPerPixel();
+    }
+
+    /**
+     * Writes the specified tiles to disk, evicting the least recently used
+     * tiles on disk if needed. The files are written without holding the
+     * lock of the cache.
+     *
+     * @param tiles The tiles dropped from memory.
+     */
+    private void spill(List<Map.Entry<Key, Plane2D>> tiles)
+    {
+        for (Map.Entry<Key, Plane2D> e : tiles) {
+            Key key = e.getKey();
+            Plane2D tile = e.getValue();
+            long size = size(tile);
+            File file;
+            long gen;
+            synchronized (this) {
+                if (directory == null || size > maxDiskBytes) {
+                    evictions++;
+                    continue;
+                }
+                file = new File(directory, "tile-"+(fileCounter++));
+                gen = generation;
+            }
+            if (!write(file, tile)) {
+                file.delete();
+                synchronized (this) {
+                    evictions++;
+                }
+                continue;
+            }
+            List<File> dropped = new ArrayList<File>();
+            synchronized (this) {
+                if (gen != generation || memory.containsKey(key)
+                        || disk.containsKey(key)) {
+                    // cleared or replaced while the file was written
+                    dropped.add(file);
+                } else {
+                    Iterator<DiskTile> i = disk.values().iterator();
+                    while (diskBytes+size > maxDiskBytes && i.hasNext()) {
+                        DiskTile t = i.next();
+                        i.remove();
+                        diskBytes -= t.size();
+                        dropped.add(t.file);
+                        evictions++;
+                    }
+                    disk.put(key, new DiskTile(file, tile));
+                    diskBytes += size;
+                }
+            }
+            for (File f : dropped)
+                f.delete();
+        }
+    }
+
+    /**
+     * Writes the bytes of the specified tile to a file.
+     *
+     * @param file The file to write.
+     * @param tile The tile.
+     * @return <code>true</code> if the tile has been written,
+     *         <code>false</code> otherwise.
+     */
+    private static boolean write(File file, Plane2D tile)
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(tile.getBytes());
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the specified tile back from disk and deletes the file.
+     * The tiles are small, so they are read with plain reads rather than
+     * mapped.
+     *
+     * @param t The tile on disk.
+     * @return See above or <code>null</code> if the file cannot be read.
+     */
+    private static Plane2D load(DiskTile t)
+    {
+        try {
+            byte[] data = Files.readAllBytes(t.file.toPath());
+            return new Plane2D(data, t.sizeX, t.sizeY, t.bytesPerPixel,
+                    t.strategy);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            t.file.delete();
+        }
+    }
+
+    /**
+     * Adds the tile to memory, dropping the least recently used tiles.
+     * Must be called while holding the lock of the cache.
+     *
+     * @param key The key of the tile.
+     * @param tile The tile.
+     * @return The tiles dropped from memory, to be written to disk.
+     */
+    private List<Map.Entry<Key, Plane2D>> store(Key key, Plane2D tile)
+    {
+        List<Map.Entry<Key, Plane2D>> dropped =
+                new ArrayList<Map.Entry<Key, Plane2D>>();
+        long size = size(tile);
+        if (size > maxMemoryBytes) {
+            Plane2D previous = memory.remove(key);
+            if (previous != null) memoryBytes -= size(previous);
+            dropped.add(new AbstractMap.SimpleImmutableEntry<Key, Plane2D>(
+                    key, tile));
+            return dropped;
+        }
+        Plane2D previous = memory.put(key, tile);
+        if (previous != null) memoryBytes -= size(previous);
+        memoryBytes += size;
+        Iterator<Map.Entry<Key, Plane2D>> i = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && i.hasNext()) {
+            Map.Entry<Key, Plane2D> e = i.next();
+            i.remove();
+            memoryBytes -= size(e.getValue());
+            dropped.add(new AbstractMap.SimpleImmutableEntry<Key, Plane2D>(
+                    e.getKey(), e.getValue()));
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the specified tile or <code>null</code> if it is not cached.
+     * A tile found on disk is read without holding the lock of the cache.
+     *
+     * @param key The key of the tile.
+     * @return See above.
+     */
+    public Plane2D get(Key key)
+    {
+        DiskTile t;
+        synchronized (this) {
+            Plane2D tile = memory.get(key);
+            if (tile != null) {
+                memoryHits++;
+                return tile;
+            }
+            t = disk.remove(key);
+            if (t == null) {
+                misses++;
+                return null;
+            }
+            diskBytes -= t.size();
+        }
+        Plane2D tile = load(t);
+        List<Map.Entry<Key, Plane2D>> dropped;
+        synchronized (this) {
+            if (tile == null) {
+                misses++;
+                return null;
+            }
+            diskHits++;
+            Plane2D current = memory.get(key);
+            if (current != null)
+                return current;
+            dropped = store(key, tile);
+        }
+        spill(dropped);
+        return tile;
+    }
+
+    /**
+     * Adds the specified tile to the cache.
+     *
+     * @param key The key of the tile.
+     * @param tile The tile.
+     */
+    public void put(Key key, Plane2D tile)
+    {
+        DiskTile t;
+        List<Map.Entry<Key, Plane2D>> dropped;
+        synchronized (this) {
+            t = disk.remove(key);
+            if (t != null)
+                diskBytes -= t.size();
+            dropped = store(key, tile);
+        }
+        if (t != null)
+            t.file.delete();
+        spill(dropped);
+    }
+
+    /**
+     * Returns the number of tiles found in memory.
+     *
+     * @return See above.
+     */
+    public synchronized long getMemoryHitCount()
+    {
+        return memoryHits;
+    }
+
+    /**
+     * Returns the number of tiles found on disk.
+     *
+     * @return See above.
+     */
+    public synchronized long getDiskHitCount()
+    {
+        return diskHits;
+    }
+
+    /**
+     * Returns the number of tiles which were not cached.
+     *
+     * @return See above.
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Returns the number of tiles dropped from the cache.
+     *
+     * @return See above.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of bytes held in memory.
+     *
+     * @return See above.
+     */
+    public synchronized long getMemorySize()
+    {
+        return memoryBytes;
+    }
+
+    /**
+     * Returns the number of bytes written to disk.
+     *
+     * @return See above.
+     */
+    public synchronized long getDiskSize()
+    {
+        return diskBytes;
+    }
+
+    /**
+     * Removes all the tiles from the cache.
+     */
+    public void clear()
+    {
+        List<DiskTile> tiles;
+        synchronized (this) {
+            memory.clear();
+            memoryBytes = 0;
+            tiles = new ArrayList<DiskTile>(disk.values());
+            disk.clear();
+            diskBytes = 0;
+            generation++;
+        }
+        for (DiskTile t : tiles)
+            t.file.delete();
+    }
+
+    /**
+     * Removes all the tiles from the cache and deletes the files.
+     */
+    @Override
+    public void close()
+    {
+        clear();
+    }
+}
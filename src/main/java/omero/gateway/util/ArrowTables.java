@@ -0,0 +1,503 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+package omero.gateway.util;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.complex.FixedSizeListVector;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import omero.gateway.model.DataObject;
+import omero.gateway.model.FileAnnotationData;
+import omero.gateway.model.ImageData;
+import omero.gateway.model.PlateData;
+import omero.gateway.model.ROIData;
+import omero.gateway.model.TableData;
+import omero.gateway.model.TableDataColumn;
+import omero.gateway.model.WellData;
+import omero.model.ImageI;
+import omero.model.OriginalFile;
+import omero.model.OriginalFileI;
+import omero.model.PlateI;
+import omero.model.RoiI;
+import omero.model.WellI;
+
+/**
+ * Converts {@link TableData} to and from Apache Arrow
+ * {@link VectorSchemaRoot}s. Boolean, double, long and numeric array
+ * columns are copied straight from (or into) the primitive arrays of
+ * columnar tables, without boxing. Image, ROI, well, plate and file columns
+ * are exported as their ids, the type being recorded in the field metadata
+ * under {@link #TYPE_KEY}, so that they are restored as unloaded objects
+ * when imported. Mask columns are not supported.
+ * <p>
+ * Apache Arrow is an optional dependency: the <code>arrow-vector</code>
+ * library (and an Arrow memory implementation) has to be added to the
+ * classpath to use this class.
+ * </p>
+ *
+ * @since 5.11.1
+ */
+public class ArrowTables {
+
+    /** The field metadata key holding the column description */
+    public static final String DESCRIPTION_KEY = "omero.description";
+
+    /** The field metadata key holding the type of a reference column */
+    public static final String TYPE_KEY = "omero.type";
+
+    /** The name of the child field of the array columns */
+    private static final String ITEM = "item";
+
+    /** The value of {@link #TYPE_KEY} for the file columns */
+    private static final String FILE_TYPE = "OriginalFile";
+
+    private ArrowTables() {
+    }
+
+    /**
+     * Returns the type recorded in the metadata of a reference column, or
+     * <code>null</code> if the column holds plain values.
+     *
+     * @param type
+     *            The type of the column
+     * @return See above.
+     */
+    private static String referenceType(Class<?> type) {
+        if (ImageData.class.equals(type) || ROIData.class.equals(type)
+                || WellData.class.equals(type) || PlateData.class.equals(type))
+            return type.getSimpleName();
+        if (FileAnnotationData.class.equals(type)
+                || OriginalFile.class.equals(type))
+            return FILE_TYPE;
+        return null;
+    }
+
+    /**
+     * Creates the Arrow field for a column.
+     *
+     * @param column
+     *            The column
+     * @param size
+     *            The size of an array column
+     * @return See above.
+     */
+    private static Field createField(TableDataColumn column, int size) {
+        Map<String, String> metadata = new HashMap<String, String>();
+        if (column.getDescription() != null)
+            metadata.put(DESCRIPTION_KEY, column.getDescription());
+        Class<?> type = column.getType();
+        String reference = referenceType(type);
+        ArrowType arrowType;
+        ArrowType itemType = null;
+        if (reference != null) {
+            metadata.put(TYPE_KEY, reference);
+            arrowType = new ArrowType.Int(64, true);
+        } else if (Boolean.class.equals(type))
+            arrowType = ArrowType.Bool.INSTANCE;
+        else if (Double.class.equals(type))
+            arrowType = new ArrowType.FloatingPoint(
+                    FloatingPointPrecision.DOUBLE);
+        else if (Long.class.equals(type))
+            arrowType = new ArrowType.Int(64, true);
+        else if (String.class.equals(type))
+            arrowType = ArrowType.Utf8.INSTANCE;
+        else {
+            arrowType = new ArrowType.FixedSizeList(size);
+            if (Double[].class.equals(type))
+                itemType = new ArrowType.FloatingPoint(
+                        FloatingPointPrecision.DOUBLE);
+            else if (Float[].class.equals(type))
+                itemType = new ArrowType.FloatingPoint(
+                        FloatingPointPrecision.SINGLE);
+            else if (Long[].class.equals(type))
+                itemType = new ArrowType.Int(64, true);
+            else
+                throw new IllegalArgumentException("Column '"
+                        + column.getName() + "' of type " + type
+                        + " can't be converted");
+        }
+        List<Field> children = null;
+        if (itemType != null)
+            children = Collections.singletonList(new Field(ITEM, FieldType
+                    .notNullable(itemType), null));
+        return new Field(column.getName(), new FieldType(false, arrowType,
+                null, metadata), children);
+    }
+
+    /**
+     * Returns the size of the rows of an array column.
+     *
+     * @param values
+     *            The primitive array column
+     * @return See above.
+     */
+    private static int arraySize(Object[] values) {
+        int size = 0;
+        for (Object row : values)
+            size = Math.max(size, Array.getLength(row));
+        return size;
+    }
+
+    /**
+     * Returns the values of a string column.
+     *
+     * @param values
+     *            The values
+     * @return See above.
+     */
+    private static String[] strings(Object[] values) {
+        if (values instanceof String[])
+            return (String[]) values;
+        String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++)
+            result[i] = values[i] != null ? values[i].toString() : null;
+        return result;
+    }
+
+    /**
+     * Returns the ids of a reference column.
+     *
+     * @param column
+     *            The column
+     * @param values
+     *            The objects
+     * @return See above.
+     * @throws IllegalArgumentException
+     *             If an object is <code>null</code>, not saved or not
+     *             supported
+     */
+    private static long[] ids(TableDataColumn column, Object[] values) {
+        long[] ids = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Object v = values[i];
+            long id = -1;
+            if (v instanceof FileAnnotationData)
+                id = ((FileAnnotationData) v).getFileID();
+            else if (v instanceof OriginalFile) {
+                if (((OriginalFile) v).getId() != null)
+                    id = ((OriginalFile) v).getId().getValue();
+            } else if (v instanceof DataObject)
+                id = ((DataObject) v).getId();
+            if (id < 0)
+                throw new IllegalArgumentException("Column '"
+                        + column.getName() + "' holds "
+                        + (v == null ? "a null value" : "the unsaved or "
+                                + "unsupported value " + v)
+                        + " at row " + i);
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Converts a {@link TableData} into a {@link VectorSchemaRoot}. The
+     * caller owns the returned root and has to close it. Null values are
+     * not supported in reference columns, like in {@link #fromArrow}.
+     *
+     * @param data
+     *            The table data
+     * @param allocator
+     *            The allocator of the Arrow buffers
+     * @return See above.
+     * @throws IllegalArgumentException
+     *             If a column can't be converted
+     */
+    public static VectorSchemaRoot toArrow(TableData data,
+            BufferAllocator allocator) {
+        TableDataColumn[] columns = data.getColumns();
+        Object[] values = new Object[columns.length];
+        List<Field> fields = new ArrayList<Field>(columns.length);
+        int rows = 0;
+        for (int i = 0; i < columns.length; i++) {
+            Class<?> type = columns[i].getType();
+            int size = 0;
+            if (referenceType(type) != null)
+                values[i] = ids(columns[i], (Object[]) data.getColumn(i));
+            else if (Boolean.class.equals(type))
+                values[i] = data.getBooleanColumn(i);
+            else if (Double.class.equals(type))
+                values[i] = data.getDoubleColumn(i);
+            else if (Long.class.equals(type))
+                values[i] = data.getLongColumn(i);
+            else if (Double[].class.equals(type))
+                values[i] = data.getDoubleArrayColumn(i);
+            else if (Float[].class.equals(type))
+                values[i] = data.getFloatArrayColumn(i);
+            else if (Long[].class.equals(type))
+                values[i] = data.getLongArrayColumn(i);
+            else if (String.class.equals(type))
+                values[i] = strings((Object[]) data.getColumn(i));
+            if (values[i] instanceof double[][]
+                    || values[i] instanceof float[][]
+                    || values[i] instanceof long[][])
+                size = arraySize((Object[]) values[i]);
+            fields.add(createField(columns[i], size));
+            if (values[i] != null)
+                rows = Array.getLength(values[i]);
+        }
+
+        VectorSchemaRoot root = VectorSchemaRoot.create(new Schema(fields),
+                allocator);
+        try {
+            for (int i = 0; i < columns.length; i++)
+                fill(root.getVector(i), values[i]);
+            root.setRowCount(rows);
+        } catch (RuntimeException e) {
+            root.close();
+            throw e;
+        }
+        return root;
+    }
+
+    /**
+     * Copies the values of a column into a vector.
+     *
+     * @param vector
+     *            The vector
+     * @param values
+     *            The primitive or string array
+     */
+    private static void fill(FieldVector vector, Object values) {
+        if (values instanceof boolean[]) {
+            boolean[] v = (boolean[]) values;
+            BitVector dst = (BitVector) vector;
+            dst.allocateNew(v.length);
+            for (int j = 0; j < v.length; j++)
+                dst.set(j, v[j] ? 1 : 0);
+        } else if (values instanceof double[]) {
+            double[] v = (double[]) values;
+            Float8Vector dst = (Float8Vector) vector;
+            dst.allocateNew(v.length);
+            for (int j = 0; j < v.length; j++)
+                dst.set(j, v[j]);
+        } else if (values instanceof long[]) {
+            long[] v = (long[]) values;
+            BigIntVector dst = (BigIntVector) vector;
+            dst.allocateNew(v.length);
+            for (int j = 0; j < v.length; j++)
+                dst.set(j, v[j]);
+        } else if (values instanceof String[]) {
+            String[] v = (String[]) values;
+            VarCharVector dst = (VarCharVector) vector;
+            dst.allocateNew(v.length);
+            for (int j = 0; j < v.length; j++)
+                dst.setSafe(j, v[j] != null ? v[j]
+                        .getBytes(StandardCharsets.UTF_8) : new byte[0]);
+        } else {
+            FixedSizeListVector dst = (FixedSizeListVector) vector;
+            int size = dst.getListSize();
+            Object[] v = (Object[]) values;
+            dst.allocateNew();
+            FieldVector items = dst.getDataVector();
+            for (int j = 0; j < v.length; j++) {
+                dst.setNotNull(j);
+                int offset = j * size;
+                if (v[j] instanceof double[]) {
+                    double[] row = (double[]) v[j];
+                    for (int k = 0; k < size; k++)
+                        ((Float8Vector) items).setSafe(offset + k,
+                                k < row.length ? row[k] : 0);
+                } else if (v[j] instanceof float[]) {
+                    float[] row = (float[]) v[j];
+                    for (int k = 0; k < size; k++)
+                        ((Float4Vector) items).setSafe(offset + k,
+                                k < row.length ? row[k] : 0);
+                } else {
+                    long[] row = (long[]) v[j];
+                    for (int k = 0; k < size; k++)
+                        ((BigIntVector) items).setSafe(offset + k,
+                                k < row.length ? row[k] : 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a {@link VectorSchemaRoot} into a columnar {@link TableData},
+     * which can be passed to the <code>TablesFacility</code> to create a
+     * table. Supported vectors are 64 and 32 bit integers, double and single
+     * precision floating points, booleans, UTF-8 strings and fixed size
+     * lists of 64 bit integers, doubles and floats. Null values are not
+     * supported.
+     *
+     * @param root
+     *            The Arrow data
+     * @return See above.
+     */
+    public static TableData fromArrow(VectorSchemaRoot root) {
+        List<FieldVector> vectors = root.getFieldVectors();
+        int rows = root.getRowCount();
+        TableDataColumn[] columns = new TableDataColumn[vectors.size()];
+        Object[] values = new Object[vectors.size()];
+        for (int i = 0; i < columns.length; i++) {
+            FieldVector vector = vectors.get(i);
+            Field field = vector.getField();
+            if (vector.getNullCount() > 0)
+                throw new IllegalArgumentException("Column '"
+                        + field.getName() + "' contains null values");
+            Map<String, String> metadata = field.getMetadata();
+            Class<?> type;
+            if (vector instanceof BigIntVector || vector instanceof IntVector) {
+                long[] v = new long[rows];
+                for (int j = 0; j < rows; j++)
+                    v[j] = vector instanceof BigIntVector ? ((BigIntVector) vector)
+                            .get(j) : ((IntVector) vector).get(j);
+                String reference = metadata != null ? metadata.get(TYPE_KEY)
+                        : null;
+                if (reference != null) {
+                    type = referenceClass(reference);
+                    values[i] = references(type, v);
+                } else {
+                    type = Long.class;
+                    values[i] = v;
+                }
+            } else if (vector instanceof Float8Vector
+                    || vector instanceof Float4Vector) {
+                double[] v = new double[rows];
+                for (int j = 0; j < rows; j++)
+                    v[j] = vector instanceof Float8Vector ? ((Float8Vector) vector)
+                            .get(j) : ((Float4Vector) vector).get(j);
+                type = Double.class;
+                values[i] = v;
+            } else if (vector instanceof BitVector) {
+                boolean[] v = new boolean[rows];
+                for (int j = 0; j < rows; j++)
+                    v[j] = ((BitVector) vector).get(j) != 0;
+                type = Boolean.class;
+                values[i] = v;
+            } else if (vector instanceof VarCharVector) {
+                String[] v = new String[rows];
+                for (int j = 0; j < rows; j++)
+                    v[j] = new String(((VarCharVector) vector).get(j),
+                            StandardCharsets.UTF_8);
+                type = String.class;
+                values[i] = v;
+            } else if (vector instanceof FixedSizeListVector) {
+                FixedSizeListVector list = (FixedSizeListVector) vector;
+                FieldVector items = list.getDataVector();
+                int size = list.getListSize();
+                if (items instanceof Float8Vector) {
+                    double[][] v = new double[rows][size];
+                    for (int j = 0; j < rows; j++)
+                        for (int k = 0; k < size; k++)
+                            v[j][k] = ((Float8Vector) items).get(j * size + k);
+                    type = Double[].class;
+                    values[i] = v;
+                } else if (items instanceof Float4Vector) {
+                    float[][] v = new float[rows][size];
+                    for (int j = 0; j < rows; j++)
+                        for (int k = 0; k < size; k++)
+                            v[j][k] = ((Float4Vector) items).get(j * size + k);
+                    type = Float[].class;
+                    values[i] = v;
+                } else if (items instanceof BigIntVector) {
+                    long[][] v = new long[rows][size];
+                    for (int j = 0; j < rows; j++)
+                        for (int k = 0; k < size; k++)
+                            v[j][k] = ((BigIntVector) items).get(j * size + k);
+                    type = Long[].class;
+                    values[i] = v;
+                } else
+                    throw new IllegalArgumentException("Column '"
+                            + field.getName() + "' of type "
+                            + field.getType() + " can't be converted");
+            } else
+                throw new IllegalArgumentException("Column '"
+                        + field.getName() + "' of type " + field.getType()
+                        + " can't be converted");
+            String description = metadata != null ? metadata
+                    .get(DESCRIPTION_KEY) : null;
+            columns[i] = new TableDataColumn(field.getName(), description, i,
+                    type);
+        }
+        TableData data = TableData.fromColumns(columns, values);
+        data.setNumberOfRows(rows);
+        return data;
+    }
+
+    /**
+     * Returns the column type of a reference column.
+     *
+     * @param reference
+     *            The type recorded in the field metadata
+     * @return See above.
+     */
+    private static Class<?> referenceClass(String reference) {
+        if (FILE_TYPE.equals(reference))
+            return OriginalFile.class;
+        if (ImageData.class.getSimpleName().equals(reference))
+            return ImageData.class;
+        if (ROIData.class.getSimpleName().equals(reference))
+            return ROIData.class;
+        if (WellData.class.getSimpleName().equals(reference))
+            return WellData.class;
+        if (PlateData.class.getSimpleName().equals(reference))
+            return PlateData.class;
+        throw new IllegalArgumentException("Unknown reference type "
+                + reference);
+    }
+
+    /**
+     * Creates unloaded objects for the ids of a reference column.
+     *
+     * @param type
+     *            The column type
+     * @param ids
+     *            The ids
+     * @return See above.
+     */
+    private static Object[] references(Class<?> type, long[] ids) {
+        Object[] result = (Object[]) Array.newInstance(
+                type, ids.length);
+        for (int j = 0; j < ids.length; j++) {
+            long id = ids[j];
+            if (OriginalFile.class.equals(type))
+                result[j] = new OriginalFileI(id, false);
+            else if (ImageData.class.equals(type))
+                result[j] = new ImageData(new ImageI(id, false));
+            else if (ROIData.class.equals(type))
+                result[j] = new ROIData(new RoiI(id, false));
+            else if (WellData.class.equals(type))
+                result[j] = new WellData(new WellI(id, false));
+            else
+                result[j] = new PlateData(new PlateI(id, false));
+        }
+        return result;
+    }
+}
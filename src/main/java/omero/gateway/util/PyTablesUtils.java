@@ -20,6 +20,8 @@
  */
 package omero.gateway.util;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -50,6 +52,9 @@ public class PyTablesUtils {
     /** Maximum number of rows to retrieve at one time from a table. */
     private static final int MAX_TABLE_ROW_RETRIEVAL = 100000;
 
+    /** Maximum number of slices requested at once from a table. */
+    private static final int MAX_PARALLEL_SLICES = 4;
+
     /**
      * Transforms the passed table data for a given image.
      *
@@ -111,22 +116,29 @@ public class PyTablesUtils {
                 columns[i] = i;
             }
 
+            // Several slices are requested at once, each one is translated
+            // once received
             int rowOffset = 0;
             int rowCount = 0;
-            int rowsToGo = totalRowCount;
             long[] rowSubset;
+            Deque<Ice.AsyncResult> pending = new ArrayDeque<Ice.AsyncResult>();
+            Deque<int[]> ranges = new ArrayDeque<int[]>();
             Map<Integer, Integer> indexes = new HashMap<Integer, Integer>();
-            while (rowsToGo > 0) {
-                rowCount = (int) Math.min(MAX_TABLE_ROW_RETRIEVAL,
-                        totalRowCount - rowOffset);
-                rowSubset = new long[rowCount];
-                System.arraycopy(rows, rowOffset, rowSubset, 0, rowCount);
-                d = table.slice(columns, rowSubset);
-                for (int i = 0; i < cols.length; i++) {
-                    translateTableResult(d, data, rowOffset, rowCount, indexes);
+            while (rowOffset < totalRowCount || !pending.isEmpty()) {
+                if (rowOffset < totalRowCount
+                        && pending.size() < MAX_PARALLEL_SLICES) {
+                    rowCount = (int) Math.min(MAX_TABLE_ROW_RETRIEVAL,
+                            totalRowCount - rowOffset);
+                    rowSubset = new long[rowCount];
+                    System.arraycopy(rows, rowOffset, rowSubset, 0, rowCount);
+                    pending.add(table.begin_slice(columns, rowSubset));
+                    ranges.add(new int[] {rowOffset, rowCount});
+                    rowOffset += rowCount;
+                    continue;
                 }
-                rowOffset += rowCount;
-                rowsToGo -= rowCount;
+                int[] range = ranges.poll();
+                d = table.end_slice(pending.poll());
+                translateTableResult(d, data, range[0], range[1], indexes);
             }
             TableResult tr = new TableResult(data, headers);
             tr.setIndexes(indexes);
@@ -162,6 +174,8 @@ public class PyTablesUtils {
      *            into.
      * @param length
      *            Number of rows of data to be copied.
+     * @param indexes
+     *            The indexes of the ROI, image and well columns.
      */
     private static void translateTableResult(Data src, Object[][] dst,
             int offset, int length, Map<Integer, Integer> indexes) {
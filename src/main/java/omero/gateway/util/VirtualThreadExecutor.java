@@ -0,0 +1,179 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+package omero.gateway.util;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs each task on a new virtual thread, with an optional limit on the
+ * number of tasks running at the same time; the other tasks wait, parked,
+ * until a running one completes. Virtual threads are available from Java
+ * 21 on; they are looked up by reflection so that the library still runs
+ * on older versions, see {@link #isSupported()}.
+ *
+ * @since 5.11.1
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService {
+
+    /** The prefix of the names of the threads */
+    private static final String THREAD_NAME = "omero-gateway-";
+
+    /** The executor creating a virtual thread per task */
+    private final ExecutorService delegate;
+
+    /** Bounds the number of running tasks, <code>null</code> if unbounded */
+    private final Semaphore permits;
+
+    /** The maximum number of running tasks, <code>0</code> if unbounded */
+    private final int maxConcurrency;
+
+    /**
+     * Returns <code>true</code> if the JVM supports virtual threads,
+     * <code>false</code> otherwise.
+     *
+     * @return See above.
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxConcurrency
+     *            The maximum number of tasks running at the same time,
+     *            <code>0</code> for no limit
+     * @throws UnsupportedOperationException
+     *             If the JVM doesn't support virtual threads
+     */
+    public VirtualThreadExecutor(int maxConcurrency) {
+        if (maxConcurrency < 0)
+            throw new IllegalArgumentException("Invalid concurrency limit "
+                    + maxConcurrency);
+        this.delegate = newThreadPerTaskExecutor();
+        this.maxConcurrency = maxConcurrency;
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency)
+                : null;
+    }
+
+    /**
+     * Creates an executor starting a named virtual thread per task, i.e.
+     * <code>Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+     * .name(THREAD_NAME, 0).factory())</code>.
+     *
+     * @return See above.
+     */
+    private static ExecutorService newThreadPerTaskExecutor() {
+        if (!isSupported())
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or later");
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(builder, THREAD_NAME, 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod(
+                    "factory").invoke(builder);
+            Method m = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return (ExecutorService) m.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(
+                    "Could not create a virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Returns the maximum number of tasks running at the same time,
+     * <code>0</code> if there is no limit.
+     *
+     * @return See above.
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (permits == null) {
+            delegate.execute(command);
+            return;
+        }
+        delegate.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    // shut down while waiting, the task won't run
+                    if (command instanceof Future)
+                        ((Future<?>) command).cancel(false);
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
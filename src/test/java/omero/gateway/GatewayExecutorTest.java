@@ -0,0 +1,143 @@
+/*
+ *------------------------------------------------------------------------------
+ *  Copyright (C) 2026 University of Dundee. All rights reserved.
+ *
+ *
+ *  This program is free software; you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along
+ *  with this program; if not, write to the Free Software Foundation, Inc.,
+ *  51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ *------------------------------------------------------------------------------
+ */
+
+package omero.gateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import omero.gateway.util.VirtualThreadExecutor;
+
+/**
+ * Unit tests for the executors of the asynchronous tasks of the
+ * {@link Gateway}.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class GatewayExecutorTest {
+
+    private static final int MAX_CONCURRENCY = 3;
+
+    private static final int TASKS = 20;
+
+    /**
+     * Runs tasks on the executor and returns the highest number of tasks
+     * which ran at the same time.
+     * @param executor the executor to test, shut down on return
+     * @return the highest number of concurrent tasks
+     * @throws Exception unexpected
+     */
+    private static int maxConcurrentTasks(ExecutorService executor) throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final List<Future<Void>> results = new ArrayList<Future<Void>>();
+        try {
+            for (int i = 0; i < TASKS; i++) {
+                results.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        final int n = running.incrementAndGet();
+                        int m = max.get();
+                        while (n > m && !max.compareAndSet(m, n)) {
+                            m = max.get();
+                        }
+                        Thread.sleep(20);
+                        running.decrementAndGet();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        return max.get();
+    }
+
+    /**
+     * Checks that the tasks ran concurrently without exceeding the limit. Reaching the limit
+     * exactly depends on the scheduling of the threads, so it isn't checked.
+     * @param max the highest number of concurrent tasks
+     */
+    private static void assertConcurrency(int max) {
+        Assert.assertTrue(max <= MAX_CONCURRENCY, max + " concurrent tasks");
+        Assert.assertTrue(max > 1, "Tasks did not run concurrently");
+    }
+
+    /**
+     * Test that the virtual thread executor runs at most the given number of tasks at the same time.
+     * @throws Exception unexpected
+     */
+    @Test
+    public void testVirtualThreadConcurrencyLimit() throws Exception {
+        if (!VirtualThreadExecutor.isSupported()) {
+            throw new SkipException("Virtual threads require Java 21 or later");
+        }
+        final ExecutorService executor = Gateway.newExecutor(MAX_CONCURRENCY, true);
+        Assert.assertTrue(executor instanceof VirtualThreadExecutor);
+        Assert.assertEquals(((VirtualThreadExecutor) executor).getMaxConcurrency(), MAX_CONCURRENCY);
+        assertConcurrency(maxConcurrentTasks(executor));
+    }
+
+    /**
+     * Test that the thread pool used without virtual threads runs at most the given number of tasks at the same time.
+     * @throws Exception unexpected
+     */
+    @Test
+    public void testFallbackConcurrencyLimit() throws Exception {
+        final ExecutorService executor = Gateway.newExecutor(MAX_CONCURRENCY, false);
+        Assert.assertTrue(executor instanceof ThreadPoolExecutor);
+        Assert.assertEquals(((ThreadPoolExecutor) executor).getMaximumPoolSize(), MAX_CONCURRENCY);
+        assertConcurrency(maxConcurrentTasks(executor));
+    }
+
+    /**
+     * Test that the executor matches the JVM and that the concurrency limit is validated.
+     */
+    @Test
+    public void testNewExecutor() {
+        final ExecutorService executor = Gateway.newExecutor(0, VirtualThreadExecutor.isSupported());
+        try {
+            Assert.assertEquals(executor instanceof VirtualThreadExecutor, VirtualThreadExecutor.isSupported());
+        } finally {
+            executor.shutdown();
+        }
+        try {
+            Gateway.newExecutor(-1, false);
+            Assert.fail("negative limit accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
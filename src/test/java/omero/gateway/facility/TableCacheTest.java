@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.facility;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import omero.grid.BoolColumn;
+import omero.grid.Column;
+import omero.grid.Data;
+import omero.grid.DoubleArrayColumn;
+import omero.grid.ImageColumn;
+import omero.grid.LongColumn;
+import omero.grid.StringColumn;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the local layout of the {@link TableCache}.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class TableCacheTest {
+
+    /** The number of rows of the table */
+    private static final int ROWS = 25000;
+
+    /** The directory of the cache */
+    private File dir;
+
+    /**
+     * A table with a column of each layout, the values are derived from the
+     * row number.
+     */
+    private static class Table implements TableCache.Source {
+
+        @Override
+        public Column[] getHeaders() {
+            return new Column[] { new LongColumn("id", "", null),
+                    new StringColumn("s", "a string", 16, null),
+                    new DoubleArrayColumn("d", "", 2, null),
+                    new BoolColumn("b", "", null),
+                    new ImageColumn("image", "", null) };
+        }
+
+        @Override
+        public long getNumberOfRows() {
+            return ROWS;
+        }
+
+        @Override
+        public Data read(long[] columns, long start, long stop) {
+            int n = (int) (stop - start);
+            long[] ids = new long[n];
+            String[] strings = new String[n];
+            double[][] doubles = new double[n][];
+            boolean[] bools = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                long row = start + i;
+                ids[i] = row;
+                strings[i] = "row" + row + "é";
+                doubles[i] = new double[] { row, -row };
+                bools[i] = row % 2 == 0;
+            }
+            Data data = new Data();
+            data.columns = new Column[] { new LongColumn("id", "", ids),
+                    new StringColumn("s", "a string", 16, strings),
+                    new DoubleArrayColumn("d", "", 2, doubles),
+                    new BoolColumn("b", "", bools),
+                    new ImageColumn("image", "", ids.clone()) };
+            return data;
+        }
+    }
+
+    /**
+     * Creates the directory of the cache.
+     *
+     * @throws Exception
+     *             If the directory cannot be created
+     */
+    @BeforeMethod
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("tablecache").toFile();
+    }
+
+    /**
+     * Deletes the directory of the cache.
+     */
+    @AfterMethod
+    public void tearDown() {
+        File[] entries = dir.listFiles();
+        if (entries != null)
+            for (File e : entries) {
+                File[] files = e.listFiles();
+                if (files != null)
+                    for (File f : files)
+                        f.delete();
+                e.delete();
+            }
+        dir.delete();
+    }
+
+    /**
+     * Test that any range of rows of a stored table is read back.
+     *
+     * @throws Exception
+     *             If an error occurred
+     */
+    @Test
+    public void testStoreAndRead() throws Exception {
+        TableCache cache = new TableCache(dir, 1L << 30);
+        Assert.assertNull(cache.lookup(5, "v1"));
+        TableCache.Entry entry = cache.store(5, "v1", new Table());
+        Assert.assertNotNull(entry);
+        Assert.assertEquals(entry.getNumberOfRows(), ROWS);
+        Assert.assertEquals(entry.getHeaders()[1].description, "a string");
+
+        entry = cache.lookup(5, "v1");
+        Data data = cache.read(entry, new long[] { 4, 1, 2, 3, 0 }, 12345,
+                12348);
+        Assert.assertEquals(data.rowNumbers, new long[] { 12345, 12346, 12347 });
+        Assert.assertEquals(((ImageColumn) data.columns[0]).values,
+                new long[] { 12345, 12346, 12347 });
+        Assert.assertEquals(((StringColumn) data.columns[1]).values,
+                new String[] { "row12345é", "row12346é",
+                        "row12347é" });
+        Assert.assertEquals(((DoubleArrayColumn) data.columns[2]).values[2],
+                new double[] { 12347, -12347 });
+        Assert.assertEquals(((BoolColumn) data.columns[3]).values,
+                new boolean[] { false, true, false });
+        Assert.assertEquals(((LongColumn) data.columns[4]).values[0], 12345);
+        Assert.assertEquals(data.columns[1].name, "s");
+
+        // the end of the range is limited to the number of rows
+        data = cache.read(entry, new long[] { 1 }, ROWS - 1, ROWS + 10);
+        Assert.assertEquals(((StringColumn) data.columns[0]).values,
+                new String[] { "row" + (ROWS - 1) + "é" });
+        Assert.assertEquals(cache.getHitCount(), 2);
+        Assert.assertNull(cache.lookup(5, "v2"));
+        Assert.assertEquals(cache.getMissCount(), 2);
+    }
+
+    /**
+     * Test that an invalidated or replaced table isn't read anymore.
+     *
+     * @throws Exception
+     *             If an error occurred
+     */
+    @Test
+    public void testInvalidate() throws Exception {
+        TableCache cache = new TableCache(dir, 1L << 30);
+        TableCache.Entry entry = cache.store(5, "v1", new Table());
+        cache.invalidate(5);
+        Assert.assertNull(cache.lookup(5, "v1"));
+        Assert.assertNull(cache.read(entry, new long[] { 0 }, 0, 5));
+        Assert.assertEquals(cache.getSize(), 0);
+
+        entry = cache.store(5, "v1", new Table());
+        Assert.assertNotNull(cache.store(5, "v2", new Table()));
+        Assert.assertNull(cache.read(entry, new long[] { 0 }, 0, 5));
+        Assert.assertNotNull(cache.lookup(5, "v2"));
+    }
+
+    /**
+     * Test that a table larger than the cache is not kept.
+     *
+     * @throws Exception
+     *             If an error occurred
+     */
+    @Test
+    public void testTooLarge() throws Exception {
+        TableCache cache = new TableCache(dir, 100000);
+        Assert.assertNull(cache.store(5, "v1", new Table()));
+        Assert.assertNull(cache.lookup(5, "v1"));
+        Assert.assertEquals(cache.getSize(), 0);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.facility;
+
+import omero.IllegalArgumentException;
+import omero.gateway.model.TableData;
+import omero.gateway.model.TableDataColumn;
+import omero.grid.Column;
+import omero.grid.DoubleArrayColumn;
+import omero.grid.DoubleColumn;
+import omero.grid.ImageColumn;
+import omero.grid.LongColumn;
+import omero.grid.StringColumn;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the incremental table updates of the
+ * {@link TablesFacilityHelper}.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class TablesFacilityHelperTest {
+
+    /**
+     * Test that only the modified rows are selected.
+     */
+    @Test
+    public void testChangedRows() {
+        LongColumn current = new LongColumn("id", "", new long[] {1, 2, 3, 4});
+        LongColumn update = new LongColumn("id", "", new long[] {1, 5, 3, 6});
+        int[] changed = TablesFacilityHelper.changedRows(current, update);
+        Assert.assertEquals(changed, new int[] {1, 3});
+
+        LongColumn subset = (LongColumn) TablesFacilityHelper.subset(update,
+                changed);
+        Assert.assertEquals(subset.values, new long[] {5, 6});
+        Assert.assertEquals(subset.name, "id");
+        Assert.assertEquals(update.values.length, 4);
+
+        StringColumn s1 = new StringColumn("s", "", 1, new String[] {"a", "b"});
+        StringColumn s2 = new StringColumn("s", "", 1, new String[] {"a", "b"});
+        Assert.assertEquals(TablesFacilityHelper.changedRows(s1, s2).length, 0);
+
+        DoubleArrayColumn d1 = new DoubleArrayColumn("d", "", 2,
+                new double[][] {{1, 2}, {3, 4}});
+        DoubleArrayColumn d2 = new DoubleArrayColumn("d", "", 2,
+                new double[][] {{1, 2}, {3, 5}});
+        Assert.assertEquals(TablesFacilityHelper.changedRows(d1, d2),
+                new int[] {1});
+    }
+
+    /**
+     * Test that a column with the type and sizes of the table is accepted.
+     */
+    @Test
+    public void testCheckColumn() {
+        Column header = new DoubleArrayColumn("d", "", 2, null);
+        DoubleArrayColumn ok = new DoubleArrayColumn("x", "", 2,
+                new double[][] {{1, 2}});
+        Assert.assertSame(TablesFacilityHelper.checkColumn(header, ok), ok);
+        Assert.assertEquals(ok.name, "d");
+
+        StringColumn s = new StringColumn("x", "", 1, new String[] {"ab"});
+        TablesFacilityHelper.checkColumn(new StringColumn("s", "", 2, null), s);
+        Assert.assertEquals(s.size, 2);
+    }
+
+    /**
+     * Test that the size of an array column can't be changed.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCheckArraySize() {
+        TablesFacilityHelper.checkColumn(new DoubleArrayColumn("d", "", 2,
+                null), new DoubleArrayColumn("d", "", 3,
+                new double[][] {{1, 2, 3}}));
+    }
+
+    /**
+     * Test that the type of a column can't be changed.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCheckType() {
+        TablesFacilityHelper.checkColumn(new DoubleArrayColumn("d", "", 2,
+                null), new LongColumn("d", "", new long[] {1}));
+    }
+
+    /**
+     * Test that the strings can't be longer than the size of the column.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCheckStringSize() {
+        // 2 characters but 3 bytes
+        TablesFacilityHelper.checkColumn(new StringColumn("s", "", 2, null),
+                new StringColumn("s", "", 3, new String[] {"a", "\u00e9a"}));
+    }
+
+    /**
+     * Test that the ids of a table read with {@link TablesFacility.ReferenceMode#ID}
+     * are written back to the reference column.
+     */
+    @Test
+    public void testCheckIdColumn() {
+        Column header = new ImageColumn("image", "", null);
+        Column ids = TablesFacilityHelper.checkColumn(header, new LongColumn(
+                "x", "", new long[] {1, 2}));
+        Assert.assertTrue(ids instanceof ImageColumn);
+        Assert.assertEquals(ids.name, "image");
+        Assert.assertEquals(((ImageColumn) ids).values, new long[] {1, 2});
+        Assert.assertNull(((ImageColumn) header).values);
+    }
+
+    /**
+     * Test that the edits of the boxed view of a columnar table are written.
+     */
+    @Test
+    public void testParseEditedTableData() {
+        TableData data = TableData.fromColumns(new TableDataColumn[] {
+                new TableDataColumn("d", 0, Double.class),
+                new TableDataColumn("l", 1, Long.class) }, new Object[] {
+                new double[] {1, 2}, new long[] {3, 4}});
+        data.getData()[0][1] = 5.0;
+        data.getData()[1][0] = 6L;
+        TablesFacilityHelper helper = new TablesFacilityHelper(null, null);
+        helper.parseTableData(data);
+        Column[] columns = helper.getGridColumns();
+        Assert.assertEquals(((DoubleColumn) columns[0]).values,
+                new double[] {1, 5});
+        Assert.assertEquals(((LongColumn) columns[1]).values,
+                new long[] {6, 4});
+    }
+}
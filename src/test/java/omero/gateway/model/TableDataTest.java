@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the columnar representation of {@link TableData}.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class TableDataTest {
+
+    /**
+     * @return the column definitions used by the tests
+     */
+    private static TableDataColumn[] columns() {
+        return new TableDataColumn[] {
+                new TableDataColumn("double", 0, Double.class),
+                new TableDataColumn("long", 1, Long.class),
+                new TableDataColumn("bool", 2, Boolean.class),
+                new TableDataColumn("floats", 3, Float[].class),
+                new TableDataColumn("string", 4, String.class) };
+    }
+
+    /**
+     * @return a columnar table with two rows
+     */
+    private static TableData columnar() {
+        return TableData.fromColumns(columns(), new Object[] {
+                new double[] { 1.5, 2.5 }, new long[] { 3, 4 },
+                new boolean[] { true, false },
+                new float[][] { { 1f, 2f }, { 3f, 4f } },
+                new String[] { "a", "b" } });
+    }
+
+    /**
+     * Test that the typed accessors return the backing arrays.
+     */
+    @Test
+    public void testTypedAccessors() {
+        TableData data = columnar();
+        Assert.assertTrue(data.isColumnar());
+        Assert.assertFalse(data.isEmpty());
+        Assert.assertSame(data.getDoubleColumn(0), data.getColumn(0));
+        Assert.assertEquals(data.getLongColumn(1)[1], 4L);
+        Assert.assertFalse(data.getBooleanColumn(2)[1]);
+        Assert.assertEquals(data.getFloatArrayColumn(3)[1][0], 3f);
+    }
+
+    /**
+     * Test that the boxed view matches the columnar data and that both
+     * representations are equal.
+     */
+    @Test
+    public void testBoxedView() {
+        TableData data = columnar();
+        Object[][] boxed = data.getData();
+        Assert.assertEquals(boxed[0], new Double[] { 1.5, 2.5 });
+        Assert.assertEquals(boxed[3][1], new Float[] { 3f, 4f });
+        Assert.assertSame(data.getData(), boxed);
+
+        TableData other = new TableData(columns(), boxed);
+        Assert.assertFalse(other.isColumnar());
+        Assert.assertEquals(other, data);
+        Assert.assertEquals(other.getLongColumn(1), new long[] { 3, 4 });
+        Assert.assertEquals(other.getFloatArrayColumn(3)[0],
+                new float[] { 1f, 2f });
+    }
+
+    /**
+     * Test that the edits of the boxed view are seen by the column
+     * accessors used to save the table.
+     */
+    @Test
+    public void testEditBoxedView() {
+        TableData data = columnar();
+        Object[][] boxed = data.getData();
+        Assert.assertFalse(data.isColumnar());
+        boxed[0][1] = 7.5;
+        boxed[1][0] = 9L;
+        Assert.assertSame(data.getColumn(0), boxed[0]);
+        Assert.assertEquals(data.getDoubleColumn(0), new double[] { 1.5, 7.5 });
+        Assert.assertEquals(data.getLongColumn(1), new long[] { 9, 4 });
+    }
+
+    /**
+     * Test that printing and comparing a columnar table don't detach the
+     * typed arrays obtained before.
+     */
+    @Test
+    public void testToStringKeepsColumns() {
+        TableData data = columnar();
+        double[] values = data.getDoubleColumn(0);
+        Assert.assertTrue(data.toString().contains("2.5"));
+        Assert.assertEquals(data, columnar());
+        Assert.assertTrue(data.isColumnar());
+        values[1] = 7.5;
+        Assert.assertEquals(data.getDoubleColumn(0), new double[] { 1.5, 7.5 });
+        Assert.assertEquals(data.getData()[0][1], 7.5);
+    }
+
+    /**
+     * Test that a column can't be read as a different type.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrongType() {
+        columnar().getLongColumn(0);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.rnd;
+
+import java.nio.ByteBuffer;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for decoding the pixel values of a {@link Plane2D}.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class Plane2DTest {
+
+    private static final int SIZE_X = 3;
+
+    private static final int SIZE_Y = 2;
+
+    /**
+     * @param values the pixel values in row-major order
+     * @return the big-endian bytes of the values
+     */
+    private static byte[] toBytes(short[] values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length * 2);
+        buffer.asShortBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * @param values the pixel values in row-major order
+     * @return the big-endian bytes of the values
+     */
+    private static byte[] toBytes(float[] values) {
+        final ByteBuffer buffer = ByteBuffer.allocate(values.length * 4);
+        buffer.asFloatBuffer().put(values);
+        return buffer.array();
+    }
+
+    /**
+     * Test that signed 16-bit values are decoded consistently by all accessors.
+     */
+    @Test
+    public void testInt16() {
+        final short[] values = {-3, -2, -1, 0, 1, Short.MAX_VALUE};
+        final Plane2D plane = new Plane2D(toBytes(values), SIZE_X, SIZE_Y, 2,
+                BytesConverter.getConverter(DataSink.INT_16));
+        Assert.assertEquals(plane.getShortValues(), values);
+        final int[] ints = plane.getIntValues();
+        final double[] doubles = plane.getDoubleValues();
+        final double[][] pixels = plane.getPixelValues();
+        for (int y = 0; y < SIZE_Y; y++) {
+            for (int x = 0; x < SIZE_X; x++) {
+                final int i = y * SIZE_X + x;
+                Assert.assertEquals(ints[i], values[i]);
+                Assert.assertEquals(doubles[i], values[i]);
+                Assert.assertEquals(pixels[x][y], values[i]);
+                Assert.assertEquals(plane.getPixelValue(x, y), values[i]);
+            }
+        }
+    }
+
+    /**
+     * Test that unsigned 16-bit values are zero-extended.
+     */
+    @Test
+    public void testUint16() {
+        final short[] values = {-3, -2, -1, 0, 1, Short.MAX_VALUE};
+        final Plane2D plane = new Plane2D(toBytes(values), SIZE_X, SIZE_Y, 2,
+                BytesConverter.getConverter(DataSink.UINT_16));
+        Assert.assertEquals(plane.getShortValues(), values);
+        final int[] ints = plane.getIntValues();
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(ints[i], values[i] & 0xFFFF);
+            Assert.assertEquals(plane.getDoubleValues()[i], values[i] & 0xFFFF);
+        }
+    }
+
+    /**
+     * Test that float values are decoded without conversion.
+     */
+    @Test
+    public void testFloat() {
+        final float[] values = {-1.5f, 0f, 0.25f, Float.MAX_VALUE, Float.MIN_VALUE, 42f};
+        final Plane2D plane = new Plane2D(toBytes(values), SIZE_X, SIZE_Y, 4,
+                BytesConverter.getConverter(DataSink.FLOAT));
+        Assert.assertEquals(plane.getFloatValues(), values);
+        Assert.assertEquals(plane.getPixelValue(0, 1), (double) Float.MAX_VALUE);
+    }
+
+    /**
+     * Test that unsigned 8-bit values are zero-extended by the bulk converters.
+     */
+    @Test
+    public void testUint8() {
+        final byte[] values = {-1, 0, 1, -128, 127, 5};
+        final Plane2D plane = new Plane2D(values, SIZE_X, SIZE_Y, 1,
+                BytesConverter.getConverter(DataSink.UINT_8));
+        final short[] shorts = plane.getShortValues();
+        final float[] floats = plane.getFloatValues();
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(shorts[i], values[i] & 0xFF);
+            Assert.assertEquals(floats[i], (float) (values[i] & 0xFF));
+        }
+    }
+
+    /**
+     * Test that a caller-supplied array is reused when it is large enough.
+     */
+    @Test
+    public void testReuseBuffer() {
+        final short[] values = {-3, -2, -1, 0, 1, Short.MAX_VALUE};
+        final Plane2D plane = new Plane2D(toBytes(values), SIZE_X, SIZE_Y, 2,
+                BytesConverter.getConverter(DataSink.INT_16));
+        final int[] large = new int[values.length + 1];
+        Assert.assertSame(plane.getIntValues(large), large);
+        Assert.assertEquals(large[values.length - 1], Short.MAX_VALUE);
+        final int[] small = new int[values.length - 1];
+        Assert.assertNotSame(plane.getIntValues(small), small);
+    }
+
+    /**
+     * Test that floating-point pixels cannot be read as integers.
+     */
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testFloatAsInt() {
+        final Plane2D plane = new Plane2D(new byte[SIZE_X * SIZE_Y * 4], SIZE_X, SIZE_Y, 4,
+                BytesConverter.getConverter(DataSink.FLOAT));
+        plane.getIntValues();
+    }
+}
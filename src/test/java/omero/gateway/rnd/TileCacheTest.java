@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.rnd;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the memory and disk tiers of the {@link TileCache}.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class TileCacheTest {
+
+    private static final int TILE_SIZE = 4;
+
+    /**
+     * @param value the value of all the pixels
+     * @return a 2x2 uint8 tile
+     */
+    private static Plane2D tile(int value) {
+        final byte[] data = new byte[TILE_SIZE];
+        Arrays.fill(data, (byte) value);
+        return new Plane2D(data, 2, 2, 1, BytesConverter.getConverter(DataSink.UINT_8));
+    }
+
+    /**
+     * @param x the x coordinate of the tile
+     * @return the key of the tile
+     */
+    private static TileCache.Key key(int x) {
+        return new TileCache.Key(1L, -1, 0, 0, 0, x, 0, 2, 2);
+    }
+
+    /**
+     * Test that the least recently used tile is dropped from memory.
+     */
+    @Test
+    public void testMemoryEviction() {
+        try (TileCache cache = new TileCache(2 * TILE_SIZE)) {
+            cache.put(key(0), tile(0));
+            cache.put(key(2), tile(1));
+            Assert.assertNotNull(cache.get(key(0)));
+            cache.put(key(4), tile(2));
+            Assert.assertNull(cache.get(key(2)));
+            Assert.assertNotNull(cache.get(key(0)));
+            Assert.assertNotNull(cache.get(key(4)));
+            Assert.assertEquals(cache.getMemoryHitCount(), 3);
+            Assert.assertEquals(cache.getMissCount(), 1);
+            Assert.assertEquals(cache.getEvictionCount(), 1);
+            Assert.assertEquals(cache.getMemorySize(), 2 * TILE_SIZE);
+        }
+    }
+
+    /**
+     * Test that tiles dropped from memory are read back from disk.
+     * @throws IOException unexpected
+     */
+    @Test
+    public void testDiskSpill() throws IOException {
+        final File dir = Files.createTempDirectory("tiles").toFile();
+        try (TileCache cache = new TileCache(TILE_SIZE, dir, 2 * TILE_SIZE)) {
+            cache.put(key(0), tile(10));
+            cache.put(key(2), tile(11));
+            cache.put(key(4), tile(12));
+            Assert.assertEquals(cache.getDiskSize(), 2 * TILE_SIZE);
+            final Plane2D tile = cache.get(key(0));
+            Assert.assertNotNull(tile);
+            Assert.assertEquals(tile.getPixelValue(1, 1), 10.0);
+            Assert.assertEquals(cache.getDiskHitCount(), 1);
+        } finally {
+            Assert.assertEquals(dir.list().length, 0);
+            dir.delete();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2026 University of Dundee & Open Microscopy Environment.
+ * All rights reserved.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package omero.gateway.util;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import omero.gateway.model.DataObject;
+import omero.gateway.model.FileAnnotationData;
+import omero.gateway.model.ImageData;
+import omero.gateway.model.PlateData;
+import omero.gateway.model.ROIData;
+import omero.gateway.model.TableData;
+import omero.gateway.model.TableDataColumn;
+import omero.gateway.model.WellData;
+import omero.model.FileAnnotation;
+import omero.model.FileAnnotationI;
+import omero.model.ImageI;
+import omero.model.OriginalFile;
+import omero.model.OriginalFileI;
+import omero.model.PlateI;
+import omero.model.RoiI;
+import omero.model.WellI;
+
+/**
+ * Unit tests for the conversion of {@link TableData} to and from Apache Arrow.
+ * @since 5.11.1
+ */
+@Test(groups = "unit")
+public class ArrowTablesTest {
+
+    /**
+     * @param fileId the id of the file
+     * @return a file annotation of the given file
+     */
+    private static FileAnnotationData fileAnnotation(long fileId) {
+        final FileAnnotation annotation = new FileAnnotationI();
+        annotation.setFile(new OriginalFileI(fileId, false));
+        return new FileAnnotationData(annotation);
+    }
+
+    /**
+     * @return a columnar table with a column of every supported type and two rows
+     */
+    private static TableData table() {
+        final TableDataColumn[] columns = new TableDataColumn[] {
+                new TableDataColumn("bool", "a boolean", 0, Boolean.class),
+                new TableDataColumn("double", 1, Double.class),
+                new TableDataColumn("long", 2, Long.class),
+                new TableDataColumn("string", 3, String.class),
+                new TableDataColumn("doubles", 4, Double[].class),
+                new TableDataColumn("floats", 5, Float[].class),
+                new TableDataColumn("longs", 6, Long[].class),
+                new TableDataColumn("image", 7, ImageData.class),
+                new TableDataColumn("roi", 8, ROIData.class),
+                new TableDataColumn("well", 9, WellData.class),
+                new TableDataColumn("plate", 10, PlateData.class),
+                new TableDataColumn("file", 11, OriginalFile.class),
+                new TableDataColumn("annotation", 12, FileAnnotationData.class) };
+        return TableData.fromColumns(columns, new Object[] {
+                new boolean[] { true, false },
+                new double[] { 1.5, -2.5 },
+                new long[] { 3, Long.MAX_VALUE },
+                new String[] { "a", "é" },
+                new double[][] { { 1, 2 }, { 3, 4 } },
+                new float[][] { { 1f, 2f, 3f }, { 4f, 5f, 6f } },
+                new long[][] { { 1 }, { 2 } },
+                new ImageData[] { new ImageData(new ImageI(1, false)), new ImageData(new ImageI(2, false)) },
+                new ROIData[] { new ROIData(new RoiI(3, false)), new ROIData(new RoiI(4, false)) },
+                new WellData[] { new WellData(new WellI(5, false)), new WellData(new WellI(6, false)) },
+                new PlateData[] { new PlateData(new PlateI(7, false)), new PlateData(new PlateI(8, false)) },
+                new OriginalFile[] { new OriginalFileI(9, false), new OriginalFileI(10, false) },
+                new FileAnnotationData[] { fileAnnotation(11), fileAnnotation(12) } });
+    }
+
+    /**
+     * @param value a reference value
+     * @return the id of the referenced object
+     */
+    private static long id(Object value) {
+        if (value instanceof OriginalFile) {
+            return ((OriginalFile) value).getId().getValue();
+        }
+        return ((DataObject) value).getId();
+    }
+
+    /**
+     * Test that every supported column type survives a round trip through Arrow.
+     */
+    @Test
+    public void testRoundTrip() {
+        final TableData data = table();
+        try (BufferAllocator allocator = new RootAllocator();
+                VectorSchemaRoot root = ArrowTables.toArrow(data, allocator)) {
+            Assert.assertEquals(root.getRowCount(), 2);
+            final TableData result = ArrowTables.fromArrow(root);
+            Assert.assertEquals(result.getNumberOfRows(), 2);
+            final TableDataColumn[] columns = result.getColumns();
+            Assert.assertEquals(columns.length, data.getColumns().length);
+            for (int i = 0; i < columns.length; i++) {
+                Assert.assertEquals(columns[i].getName(), data.getColumns()[i].getName());
+            }
+            Assert.assertEquals(columns[0].getDescription(), "a boolean");
+            Assert.assertEquals(result.getBooleanColumn(0), data.getBooleanColumn(0));
+            Assert.assertEquals(result.getDoubleColumn(1), data.getDoubleColumn(1));
+            Assert.assertEquals(result.getLongColumn(2), data.getLongColumn(2));
+            Assert.assertEquals((Object[]) result.getColumn(3), (Object[]) data.getColumn(3));
+            Assert.assertEquals(result.getDoubleArrayColumn(4), data.getDoubleArrayColumn(4));
+            Assert.assertEquals(result.getFloatArrayColumn(5), data.getFloatArrayColumn(5));
+            Assert.assertEquals(result.getLongArrayColumn(6), data.getLongArrayColumn(6));
+            final Class<?>[] types = new Class<?>[] { ImageData.class, ROIData.class,
+                WellData.class, PlateData.class, OriginalFile.class, OriginalFile.class };
+            long expectedId = 1;
+            for (int i = 7; i < columns.length; i++) {
+                Assert.assertEquals(columns[i].getType(), types[i - 7]);
+                final Object[] references = (Object[]) result.getColumn(i);
+                for (Object reference : references) {
+                    Assert.assertTrue(types[i - 7].isInstance(reference));
+                    Assert.assertEquals(id(reference), expectedId++);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a null reference is rejected instead of being exported as an invalid id.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullReference() {
+        final TableDataColumn[] columns = new TableDataColumn[] {
+                new TableDataColumn("image", 0, ImageData.class) };
+        final TableData data = TableData.fromColumns(columns, new Object[] {
+                new ImageData[] { new ImageData(new ImageI(1, false)), null } });
+        try (BufferAllocator allocator = new RootAllocator()) {
+            ArrowTables.toArrow(data, allocator).close();
+        }
+    }
+}